@@ -43,6 +43,7 @@ export const AuthProvider: React.FC<AuthProviderProps> = ({ children }) => {
         } catch (error) {
           // If token is invalid, clear authentication
           localStorage.removeItem('token');
+          localStorage.removeItem('refreshToken');
           setIsAuthenticated(false);
           setUser(null);
           setToken(null);
@@ -17,6 +17,7 @@ import {
 } from "@nextui-org/react";
 import { Plus, Edit3, LogOut, BookDashed, Sun, Moon, User, Settings } from "lucide-react";
 import { useTheme } from "./ThemeProvider";
+import { imageVariantUrl } from "../services/apiService";
 
 interface NavBarProps {
   isAuthenticated: boolean;
@@ -132,7 +133,7 @@ const NavBar: React.FC<NavBarProps> = ({
                     isBordered
                     as="button"
                     className="transition-transform"
-                    src={userProfile?.avatar}
+                    src={imageVariantUrl(userProfile?.avatar, 160)}
                     name={userProfile?.name}
                   />
                 </DropdownTrigger>
@@ -1,12 +1,11 @@
 import React from 'react';
 import { useNavigate, Link } from 'react-router-dom';
 import { Card, CardBody, CardFooter, CardHeader, Chip } from '@nextui-org/react';
-import { Post } from '../services/apiService';
+import { PostSummary, imageVariantUrl } from '../services/apiService';
 import { Calendar, Clock, Tag, Heart } from 'lucide-react';
-import DOMPurify from 'dompurify';
 
 interface PostListProps {
-  posts: Post[] | null;
+  posts: PostSummary[] | null;
   loading: boolean;
   error: string | null;
   page: number;
@@ -31,29 +30,6 @@ const PostList: React.FC<PostListProps> = ({
     });
   };
 
-  const createExcerpt = (content: string) => {
-    // First sanitize the HTML
-    const sanitizedContent = DOMPurify.sanitize(content, {
-      ALLOWED_TAGS: ['p', 'strong', 'em', 'br'],
-      ALLOWED_ATTR: []
-    });
-    
-    // Create a temporary div to parse the HTML
-    const tempDiv = document.createElement('div');
-    tempDiv.innerHTML = sanitizedContent;
-    
-    // Get the text content and limit it
-    let textContent = tempDiv.textContent || tempDiv.innerText || '';
-    textContent = textContent.trim();
-    
-    // Limit to roughly 200 characters, ending at the last complete word
-    if (textContent.length > 200) {
-      textContent = textContent.substring(0, 200).split(' ').slice(0, -1).join(' ') + '...';
-    }
-    
-    return textContent;
-  };
-
   if (error) {
     return (
       <div className="p-4 text-red-500 bg-red-50 rounded-lg">
@@ -62,7 +38,7 @@ const PostList: React.FC<PostListProps> = ({
     );
   }
 
-  const navToPostPage = (post: Post) => {
+  const navToPostPage = (post: PostSummary) => {
     navigate(`/posts/${post.id}`)
   }
 
@@ -104,7 +80,7 @@ const PostList: React.FC<PostListProps> = ({
                       {post.title}
                     </h2>
                     <div className="flex items-center gap-1 text-small text-default-500">
-                      <Heart size={16} />
+                      <Heart size={16} className={post.likedByMe ? 'text-danger' : undefined} fill={post.likedByMe ? 'currentColor' : 'none'} />
                       <span>{post.likesCount || 0}</span>
                     </div>
                 </CardHeader>
@@ -113,14 +89,21 @@ const PostList: React.FC<PostListProps> = ({
                     {post.coverImageUrl && (
                       <div className="flex-shrink-0">
                         <img
-                          src={post.coverImageUrl}
+                          src={imageVariantUrl(post.coverImageUrl, 160)}
+                          srcSet={post.coverImageUrl.startsWith('/api/v1/files/')
+                            ? `${imageVariantUrl(post.coverImageUrl, 160)} 160w, ${imageVariantUrl(post.coverImageUrl, 480)} 480w`
+                            : undefined}
+                          sizes="128px"
+                          loading="lazy"
+                          decoding="async"
                           alt={post.title}
-                          className="w-32 h-24 object-cover rounded-lg"
+                          className="w-32 h-24 object-cover rounded-lg bg-cover bg-center"
+                          style={post.coverImagePlaceholder ? { backgroundImage: `url(${post.coverImagePlaceholder})` } : undefined}
                         />
                       </div>
                     )}
                     <p className="line-clamp-3 flex-1">
-                      {createExcerpt(post.content)}
+                      {post.excerpt}
                     </p>
                   </div>
                 </CardBody>
@@ -1,52 +1,149 @@
-import React, { useState } from 'react';
+import React, { useEffect, useState } from 'react';
 import { Input } from '@nextui-org/react';
 import { Search, X } from 'lucide-react';
+import { useNavigate } from 'react-router-dom';
+import { apiService, Suggestion } from '../services/apiService';
 
 interface SearchBarProps {
   onSearch: (query: string) => void;
+  onTagSelect?: (tagId: string) => void;
+  onCategorySelect?: (categoryId: string) => void;
   placeholder?: string;
   initialValue?: string;
 }
 
+// wait for a short pause in typing before asking for suggestions
+const SUGGEST_DELAY_MS = 150;
+
+const TYPE_LABELS: Record<Suggestion['type'], string> = {
+  POST: 'Post',
+  TAG: 'Tag',
+  CATEGORY: 'Category',
+  AUTHOR: 'Author',
+};
+
 export const SearchBar: React.FC<SearchBarProps> = ({
   onSearch,
+  onTagSelect,
+  onCategorySelect,
   placeholder = 'Search posts by title, content, or author...',
   initialValue = '',
 }) => {
+  const navigate = useNavigate();
   const [searchQuery, setSearchQuery] = useState(initialValue);
+  const [suggestions, setSuggestions] = useState<Suggestion[]>([]);
+  const [showSuggestions, setShowSuggestions] = useState(false);
+
+  useEffect(() => {
+    const query = searchQuery.trim();
+    if (!query) {
+      setSuggestions([]);
+      return;
+    }
+    let cancelled = false;
+    const timer = setTimeout(async () => {
+      try {
+        const results = await apiService.getSuggestions(query);
+        if (!cancelled) setSuggestions(results);
+      } catch {
+        if (!cancelled) setSuggestions([]);
+      }
+    }, SUGGEST_DELAY_MS);
+    return () => {
+      cancelled = true;
+      clearTimeout(timer);
+    };
+  }, [searchQuery]);
 
   const handleSearch = (value: string) => {
     setSearchQuery(value);
+    setShowSuggestions(true);
     onSearch(value);
   };
 
   const handleClear = () => {
     setSearchQuery('');
+    setSuggestions([]);
     onSearch('');
   };
 
+  const handleSelect = (suggestion: Suggestion) => {
+    setShowSuggestions(false);
+    switch (suggestion.type) {
+      case 'POST':
+        navigate(`/posts/${suggestion.id}`);
+        return;
+      case 'AUTHOR':
+        navigate(`/users/${suggestion.id}/profile`);
+        return;
+      case 'TAG':
+        if (onTagSelect) {
+          handleClear();
+          onTagSelect(suggestion.id);
+          return;
+        }
+        break;
+      case 'CATEGORY':
+        if (onCategorySelect) {
+          handleClear();
+          onCategorySelect(suggestion.id);
+          return;
+        }
+        break;
+    }
+    // nothing better to do with it here, so search for the suggested text
+    setSearchQuery(suggestion.text);
+    onSearch(suggestion.text);
+  };
+
   return (
-    <Input
-      type="text"
-      placeholder={placeholder}
-      value={searchQuery}
-      onChange={(e) => handleSearch(e.target.value)}
-      startContent={<Search size={18} className="text-default-400" />}
-      endContent={
-        searchQuery && (
-          <button
-            onClick={handleClear}
-            className="text-default-400 hover:text-default-600"
-            aria-label="Clear search"
-          >
-            <X size={18} />
-          </button>
-        )
-      }
-      classNames={{
-        base: "w-full",
-        input: "text-sm",
-      }}
-    />
+    <div className="relative w-full">
+      <Input
+        type="text"
+        placeholder={placeholder}
+        value={searchQuery}
+        onChange={(e) => handleSearch(e.target.value)}
+        onFocus={() => setShowSuggestions(true)}
+        // delayed so that a click on a suggestion lands before the list closes
+        onBlur={() => setTimeout(() => setShowSuggestions(false), 150)}
+        onKeyDown={(e) => e.key === 'Escape' && setShowSuggestions(false)}
+        startContent={<Search size={18} className="text-default-400" />}
+        endContent={
+          searchQuery && (
+            <button
+              onClick={handleClear}
+              className="text-default-400 hover:text-default-600"
+              aria-label="Clear search"
+            >
+              <X size={18} />
+            </button>
+          )
+        }
+        classNames={{
+          base: "w-full",
+          input: "text-sm",
+        }}
+      />
+      {showSuggestions && suggestions.length > 0 && (
+        <ul
+          className="absolute z-50 mt-1 w-full rounded-lg border border-default-200 bg-content1 shadow-lg py-1"
+          role="listbox"
+        >
+          {suggestions.map((suggestion) => (
+            <li key={`${suggestion.type}-${suggestion.id}`}>
+              <button
+                type="button"
+                onMouseDown={(e) => e.preventDefault()}
+                onClick={() => handleSelect(suggestion)}
+                className="flex w-full items-center justify-between gap-3 px-3 py-2 text-left text-sm hover:bg-default-100"
+              >
+                <span className="truncate">{suggestion.text}</span>
+                <span className="shrink-0 text-xs text-default-400">{TYPE_LABELS[suggestion.type]}</span>
+              </button>
+            </li>
+          ))}
+        </ul>
+      )}
+    </div>
   );
 };
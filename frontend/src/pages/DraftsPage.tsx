@@ -7,11 +7,11 @@ import {
 } from '@nextui-org/react';
 import { Plus } from 'lucide-react';
 import { Link } from 'react-router-dom';
-import { apiService, Post } from '../services/apiService';
+import { apiService, PostSummary } from '../services/apiService';
 import PostList from '../components/PostList';
 
 const DraftsPage: React.FC = () => {
-  const [drafts, setDrafts] = useState<Post[] | null>(null);
+  const [drafts, setDrafts] = useState<PostSummary[] | null>(null);
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [page, setPage] = useState(1);
@@ -5,13 +5,14 @@ import {
   CardBody,
   Tabs,
   Tab,
+  Button,
 } from '@nextui-org/react';
-import { apiService, Post, Category, Tag } from '../services/apiService';
+import { apiService, PostSummary, Category, Tag } from '../services/apiService';
 import PostList from '../components/PostList';
 import { SearchBar } from '../components/SearchBar';
 
 const HomePage: React.FC = () => {
-  const [posts, setPosts] = useState<Post[] | null>(null);
+  const [posts, setPosts] = useState<PostSummary[] | null>(null);
   const [categories, setCategories] = useState<Category[]>([]);
   const [tags, setTags] = useState<Tag[]>([]);
   const [loading, setLoading] = useState(true);
@@ -19,8 +20,11 @@ const HomePage: React.FC = () => {
   const [page, setPage] = useState(1);
   const [sortBy, setSortBy] = useState("createdAt,desc");
   const [selectedCategory, setSelectedCategory] = useState<string|undefined>(undefined);
-  const [selectedTag, setSelectedTag] = useState<string | undefined>(undefined);
+  const [selectedTags, setSelectedTags] = useState<string[]>([]);
+  const [tagMode, setTagMode] = useState<'all' | 'any'>('all');
   const [searchQuery, setSearchQuery] = useState<string>('');
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
+  const [loadingMore, setLoadingMore] = useState(false);
 
   useEffect(() => {
     const fetchData = async () => {
@@ -29,14 +33,16 @@ const HomePage: React.FC = () => {
         const [postsResponse, categoriesResponse, tagsResponse] = await Promise.all([
           apiService.getPosts({
             categoryId: selectedCategory != undefined ? selectedCategory : undefined,
-            tagId: selectedTag || undefined,
+            tagIds: selectedTags,
+            tagMode,
             search: searchQuery || undefined
           }),
           apiService.getCategories(),
           apiService.getTags()
         ]);
 
-        setPosts(postsResponse);
+        setPosts(postsResponse.items);
+        setNextCursor(postsResponse.hasMore ? postsResponse.nextCursor ?? null : null);
         setCategories(categoriesResponse);
         setTags(tagsResponse);
         setError(null);
@@ -48,7 +54,27 @@ const HomePage: React.FC = () => {
     };
 
     fetchData();
-  }, [page, sortBy, selectedCategory, selectedTag, searchQuery]);
+  }, [page, sortBy, selectedCategory, selectedTags, tagMode, searchQuery]);
+
+  const loadMore = async () => {
+    if (!nextCursor) return;
+    try {
+      setLoadingMore(true);
+      const postsResponse = await apiService.getPosts({
+        categoryId: selectedCategory,
+        tagIds: selectedTags,
+        tagMode,
+        search: searchQuery || undefined,
+        cursor: nextCursor
+      });
+      setPosts((current) => [...(current ?? []), ...postsResponse.items]);
+      setNextCursor(postsResponse.hasMore ? postsResponse.nextCursor ?? null : null);
+    } catch (err) {
+      setError('Failed to load more articles. Please try again later.');
+    } finally {
+      setLoadingMore(false);
+    }
+  };
 
   const handleCategoryChange = (categoryId: string|undefined) => {
     if("all" === categoryId){
@@ -58,6 +84,12 @@ const HomePage: React.FC = () => {
     }
   };
 
+  const toggleTag = (tagId: string) => {
+    setSelectedTags((current) =>
+      current.includes(tagId) ? current.filter((id) => id !== tagId) : [...current, tagId]
+    );
+  };
+
   return (
     <div className="max-w-6xl mx-auto px-4 space-y-6">
       <Card className="mb-6 px-2">
@@ -68,6 +100,8 @@ const HomePage: React.FC = () => {
           <div className="flex flex-col gap-4">
             <SearchBar
               onSearch={setSearchQuery}
+              onTagSelect={(tagId) => setSelectedTags([tagId])}
+              onCategorySelect={setSelectedCategory}
               placeholder="Search articles by title, code, or contributor..."
               initialValue={searchQuery}
             />
@@ -92,13 +126,13 @@ const HomePage: React.FC = () => {
             </Tabs>
 
             {tags.length > 0 && (
-              <div className="flex gap-2 flex-wrap">
+              <div className="flex gap-2 flex-wrap items-center">
                 {tags.map((tag) => (
                   <button
                     key={tag.id}
-                    onClick={() => setSelectedTag(selectedTag == tag.id ? undefined : tag.id)}
+                    onClick={() => toggleTag(tag.id)}
                     className={`px-3 py-1 rounded-full text-sm ${
-                      selectedTag === tag.id
+                      selectedTags.includes(tag.id)
                         ? 'bg-primary text-white'
                         : 'bg-default-100 hover:bg-default-200'
                     }`}
@@ -106,6 +140,14 @@ const HomePage: React.FC = () => {
                     {tag.name} ({tag.postCount})
                   </button>
                 ))}
+                {selectedTags.length > 1 && (
+                  <button
+                    onClick={() => setTagMode(tagMode === 'all' ? 'any' : 'all')}
+                    className="px-3 py-1 text-sm text-primary hover:underline"
+                  >
+                    {tagMode === 'all' ? 'Matching all tags' : 'Matching any tag'}
+                  </button>
+                )}
               </div>
             )}
           </div>
@@ -121,6 +163,14 @@ const HomePage: React.FC = () => {
         onPageChange={setPage}
         onSortChange={setSortBy}
       />
+
+      {!loading && nextCursor && (
+        <div className="flex justify-center">
+          <Button variant="bordered" onPress={loadMore} isLoading={loadingMore}>
+            Load more
+          </Button>
+        </div>
+      )}
     </div>
   );
 };
@@ -24,7 +24,7 @@ import {
   ArrowLeft,
   Eye
 } from 'lucide-react';
-import { apiService, Post } from '../services/apiService';
+import { apiService, imageVariantUrl, Post, PostSummary } from '../services/apiService';
 import { LikeButton } from '../components/LikeButton';
 import ShareMenu from '../components/ShareMenu';
 import { ConfirmModal, useConfirmModal } from '../components/ConfirmModal';
@@ -47,6 +47,7 @@ const PostPage: React.FC<PostPageProps> = ({
   const [loading, setLoading] = useState(true);
   const [error, setError] = useState<string | null>(null);
   const [isDeleting, setIsDeleting] = useState(false);
+  const [relatedPosts, setRelatedPosts] = useState<PostSummary[]>([]);
   const { isOpen, onOpen, onClose } = useDisclosure();
   const { isOpen: isConfirmOpen, openConfirm, closeConfirm, config: confirmConfig } = useConfirmModal();
 
@@ -71,6 +72,18 @@ const PostPage: React.FC<PostPageProps> = ({
     fetchPost();
   }, [id]);
 
+  // related posts are a nice-to-have, the page works without them
+  useEffect(() => {
+    if (!id) return;
+    let cancelled = false;
+    apiService.getRelatedPosts(id)
+      .then((posts) => { if (!cancelled) setRelatedPosts(posts); })
+      .catch(() => { if (!cancelled) setRelatedPosts([]); });
+    return () => {
+      cancelled = true;
+    };
+  }, [id]);
+
   const confirmDelete = () => {
     if (!post) return;
 
@@ -242,7 +255,7 @@ const PostPage: React.FC<PostPageProps> = ({
         {post.coverImageUrl && (
           <div className="w-full flex justify-center bg-default-100 cursor-pointer" onClick={onOpen}>
             <img
-              src={post.coverImageUrl}
+              src={imageVariantUrl(post.coverImageUrl, 1200)}
               alt={post.title}
               className="max-h-80 w-auto object-contain hover:opacity-90 transition-opacity"
             />
@@ -275,6 +288,29 @@ const PostPage: React.FC<PostPageProps> = ({
         </CardFooter>
       </Card>
 
+      {relatedPosts.length > 0 && (
+        <Card className="w-full mt-6">
+          <CardHeader>
+            <h2 className="text-xl font-bold">Related posts</h2>
+          </CardHeader>
+          <CardBody className="flex flex-col gap-3 pt-0">
+            {relatedPosts.map((related) => (
+              <Link
+                key={related.id}
+                to={`/posts/${related.id}`}
+                className="flex flex-col gap-1 rounded-lg p-2 hover:bg-default-100"
+              >
+                <span className="font-medium">{related.title}</span>
+                <span className="text-small text-default-500">
+                  {related.category.name}
+                  {related.author && ` · ${related.author.name}`}
+                </span>
+              </Link>
+            ))}
+          </CardBody>
+        </Card>
+      )}
+
       {/* Image Preview Modal */}
       <Modal
         isOpen={isOpen}
@@ -17,7 +17,7 @@ import {
   Linkedin,
   Globe,
 } from 'lucide-react';
-import { apiService, UserProfile } from '../services/apiService';
+import { apiService, imageVariantUrl, UserProfile } from '../services/apiService';
 
 const ProfilePage: React.FC = () => {
   const { id } = useParams<{ id: string }>();
@@ -111,7 +111,7 @@ const ProfilePage: React.FC = () => {
             {/* Avatar */}
             <div className="flex-shrink-0">
               <Avatar
-                src={profile.avatarUrl}
+                src={imageVariantUrl(profile.avatarUrl, 480)}
                 name={profile.name}
                 className="w-32 h-32 text-large"
               />
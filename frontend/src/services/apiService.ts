@@ -10,6 +10,7 @@ export interface LoginRequest {
 export interface AuthResponse {
   token: string;
   expiresIn: number;
+  refreshToken: string;
 }
 
 export interface RegisterRequest {
@@ -79,6 +80,40 @@ export interface Post {
   status?: PostStatus;
 }
 
+// Card-sized post returned by list endpoints; the full content is only served by getPost
+export interface PostSummary {
+  id: string;
+  title: string;
+  excerpt?: string;
+  author?: {
+    id: string;
+    name: string;
+  };
+  category: Category;
+  tags: Tag[];
+  readingTime?: number;
+  viewCount?: number;
+  likesCount?: number;
+  coverImageUrl?: string;
+  coverImagePlaceholder?: string; // tiny data URI to show until the cover has loaded
+  createdAt: string;
+  updatedAt: string;
+  status?: PostStatus;
+  likedByMe?: boolean; // only present when the list was requested with a token
+}
+
+export interface CursorPage<T> {
+  items: T[];
+  nextCursor?: string | null;
+  hasMore: boolean;
+}
+
+export interface Suggestion {
+  text: string;
+  type: 'POST' | 'TAG' | 'CATEGORY' | 'AUTHOR';
+  id: string;
+}
+
 export interface CreatePostRequest {
   title: string;
   content: string;
@@ -110,9 +145,16 @@ export enum PostStatus {
   PUBLISHED = 'PUBLISHED'
 }
 
+// Uploaded covers and avatars are served downscaled to the smallest variant at least `width` pixels
+// wide; other URLs are used as they are
+export const imageVariantUrl = (url: string | undefined, width: number): string | undefined =>
+  url && url.startsWith('/api/v1/files/') ? `${url}?w=${width}` : url;
+
 class ApiService {
   private api: AxiosInstance;
   private static instance: ApiService;
+  // one refresh at a time, concurrent requests that hit a 401 all wait for it
+  private refreshing: Promise<boolean> | null = null;
 
   private constructor() {
     // Use environment variable for API URL in production, fallback to relative path for local
@@ -142,9 +184,16 @@ class ApiService {
     // Add response interceptor for error handling
     this.api.interceptors.response.use(
       (response: AxiosResponse) => response,
-      (error: AxiosError) => {
-        if (error.response?.status === 401) {
-          localStorage.removeItem('token');
+      async (error: AxiosError) => {
+        const request = error.config as (InternalAxiosRequestConfig & { retried?: boolean }) | undefined;
+        const url = request?.url ?? '';
+        if (error.response?.status === 401 && url !== '/auth/refresh' && url !== '/auth/logout') {
+          // the access token expired, get a new one and send the request again
+          if (request && !request.retried && url !== '/auth/login' && url !== '/auth/register' && await this.refreshTokens()) {
+            request.retried = true;
+            return this.api.request(request);
+          }
+          this.clearTokens();
           window.location.href = '/login';
         }
         return Promise.reject(this.handleError(error));
@@ -159,6 +208,40 @@ class ApiService {
     return ApiService.instance;
   }
 
+  private storeTokens(response: AuthResponse): void {
+    localStorage.setItem('token', response.token);
+    localStorage.setItem('refreshToken', response.refreshToken);
+  }
+
+  private clearTokens(): void {
+    localStorage.removeItem('token');
+    localStorage.removeItem('refreshToken');
+  }
+
+  private refreshTokens(): Promise<boolean> {
+    if (!this.refreshing) {
+      this.refreshing = this.exchangeRefreshToken().finally(() => {
+        this.refreshing = null;
+      });
+    }
+    return this.refreshing;
+  }
+
+  private async exchangeRefreshToken(): Promise<boolean> {
+    const refreshToken = localStorage.getItem('refreshToken');
+    if (!refreshToken) {
+      return false;
+    }
+    try {
+      const response: AxiosResponse<AuthResponse> = await this.api.post('/auth/refresh', { refreshToken });
+      this.storeTokens(response.data);
+      return true;
+    } catch {
+      // another tab may have exchanged the same token a moment ago and stored the new pair
+      return localStorage.getItem('refreshToken') !== refreshToken;
+    }
+  }
+
   private handleError(error: AxiosError): ApiError {
     if (error.response?.data) {
       return error.response.data as ApiError;
@@ -172,13 +255,13 @@ class ApiService {
   // Auth endpoints
   public async login(credentials: LoginRequest): Promise<AuthResponse> {
     const response: AxiosResponse<AuthResponse> = await this.api.post('/auth/login', credentials);
-    localStorage.setItem('token', response.data.token);
+    this.storeTokens(response.data);
     return response.data;
   }
 
   public async register(data: RegisterRequest): Promise<AuthResponse> {
     const response: AxiosResponse<AuthResponse> = await this.api.post('/auth/register', data);
-    localStorage.setItem('token', response.data.token);
+    this.storeTokens(response.data);
     return response.data;
   }
 
@@ -188,16 +271,32 @@ class ApiService {
   }
 
   public logout(): void {
-    localStorage.removeItem('token');
+    const token = localStorage.getItem('token');
+    const refreshToken = localStorage.getItem('refreshToken');
+    this.clearTokens();
+    if (refreshToken) {
+      // end the session on the server too, revoking the access token; signing out locally does not wait for it
+      this.api.post('/auth/logout', { refreshToken }, {
+        headers: token ? { Authorization: `Bearer ${token}` } : undefined
+      }).catch(() => undefined);
+    }
   }
 
   // Posts endpoints
   public async getPosts(params: {
     categoryId?: string;
     tagId?: string;
+    tagIds?: string[];
+    tagMode?: 'all' | 'any';
     search?: string;
-  }): Promise<Post[]> {
-    const response: AxiosResponse<Post[]> = await this.api.get('/posts', { params });
+    cursor?: string;
+    limit?: number;
+  }): Promise<CursorPage<PostSummary>> {
+    const { tagIds, ...rest } = params;
+    const response: AxiosResponse<CursorPage<PostSummary>> = await this.api.get('/posts', {
+      // the API takes several tags as one comma separated value
+      params: { ...rest, tagIds: tagIds && tagIds.length > 0 ? tagIds.join(',') : undefined }
+    });
     return response.data;
   }
 
@@ -206,6 +305,13 @@ class ApiService {
     return response.data;
   }
 
+  public async getRelatedPosts(id: string, limit = 5): Promise<PostSummary[]> {
+    const response: AxiosResponse<PostSummary[]> = await this.api.get(`/posts/${id}/related`, {
+      params: { limit }
+    });
+    return response.data;
+  }
+
   public async createPost(post: CreatePostRequest): Promise<Post> {
     const response: AxiosResponse<Post> = await this.api.post('/posts', post);
     return response.data;
@@ -224,8 +330,8 @@ class ApiService {
     page?: number;
     size?: number;
     sort?: string;
-  }): Promise<Post[]> {
-    const response: AxiosResponse<Post[]> = await this.api.get('/posts/drafts', { params });
+  }): Promise<PostSummary[]> {
+    const response: AxiosResponse<PostSummary[]> = await this.api.get('/posts/drafts', { params });
     return response.data;
   }
 
@@ -303,6 +409,22 @@ class ApiService {
     return response.data;
   }
 
+  // Which of the given posts the current user has liked, in one request
+  public async getLikedPostIds(postIds: string[]): Promise<string[]> {
+    if (postIds.length === 0) return [];
+    const response = await this.api.get<{ likedPostIds: string[] }>('/posts/likes', {
+      params: { postIds: postIds.join(',') }
+    });
+    return response.data.likedPostIds;
+  }
+
+  public async getSuggestions(query: string, limit = 8): Promise<Suggestion[]> {
+    const response: AxiosResponse<Suggestion[]> = await this.api.get('/search/suggest', {
+      params: { q: query, limit }
+    });
+    return response.data;
+  }
+
   // Profile endpoints
   public async getPublicProfile(userId: string): Promise<UserProfile> {
     const response: AxiosResponse<UserProfile> = await this.api.get(`/users/${userId}/profile`);
@@ -0,0 +1,27 @@
+package com.mehrdad.SafePost.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+@Configuration
+public class IndexRebuildConfig {
+
+    /*
+    Full rebuilds of the in-memory indexes after a bulk change (e.g. merging two tags) scan whole tables
+    and run for seconds, so they get their own threads instead of the common fork-join pool, which
+    parallel streams elsewhere rely on. Every index has at most one rebuild waiting (see IndexRebuild),
+    so the queue stays small.
+    */
+    @Bean
+    public ThreadPoolTaskExecutor indexRebuildExecutor(@Value("${search.rebuild.threads:1}") int threads) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(16);
+        executor.setThreadNamePrefix("index-rebuild-");
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        return executor;
+    }
+}
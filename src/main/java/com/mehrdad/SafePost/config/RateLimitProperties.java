@@ -0,0 +1,34 @@
+package com.mehrdad.SafePost.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+// Per-route request limits applied by RateLimitFilter, see "rate-limit.*" in application.properties
+@Data
+@ConfigurationProperties(prefix = "rate-limit")
+public class RateLimitProperties {
+
+    private boolean enabled = true;
+
+    private List<Policy> policies = new ArrayList<>();
+
+    public enum Key {
+        USER, // the signed-in user, or the client address for anonymous requests
+        IP
+    }
+
+    // allows `capacity` requests at once, refilled evenly over `period`
+    @Data
+    public static class Policy {
+        private String name;
+        private String method; // any method when not set
+        private String path; // Spring path pattern, e.g. /api/v1/posts/{id}/likes
+        private Key key = Key.USER;
+        private int capacity;
+        private Duration period = Duration.ofMinutes(1);
+    }
+}
@@ -1,13 +1,18 @@
 package com.mehrdad.SafePost.config;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mehrdad.SafePost.repositories.UserRepository;
 import com.mehrdad.SafePost.security.BlogUserDetailsService;
+import com.mehrdad.SafePost.security.BoundedPasswordEncoder;
 import com.mehrdad.SafePost.security.JwtAuthenticatrionFilter;
+import com.mehrdad.SafePost.security.RateLimitFilter;
 import com.mehrdad.SafePost.services.AuthenticationService;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.method.configuration.EnableMethodSecurity;
@@ -17,6 +22,7 @@ import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.factory.PasswordEncoderFactories;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.UsernamePasswordAuthenticationFilter;
 import org.springframework.web.cors.CorsConfiguration;
 import org.springframework.web.cors.CorsConfigurationSource;
@@ -26,6 +32,7 @@ import java.util.Arrays;
 
 @Configuration
 @EnableMethodSecurity
+@EnableConfigurationProperties(RateLimitProperties.class)
 public class SecurityConfig {
 
     @Value("${cors.allowed.origins:http://localhost:5173}")
@@ -36,6 +43,11 @@ public class SecurityConfig {
         return new JwtAuthenticatrionFilter(authenticationService);
     }
 
+    @Bean
+    public RateLimitFilter rateLimitFilter(RateLimitProperties rateLimitProperties, ObjectMapper objectMapper) {
+        return new RateLimitFilter(rateLimitProperties, objectMapper);
+    }
+
     @Bean
     public UserDetailsService userDetailsService(UserRepository userRepository) {
         // Return the UserDetailsService without creating test users
@@ -63,24 +75,32 @@ public class SecurityConfig {
     public SecurityFilterChain securityFilterChain(
             HttpSecurity http,
             JwtAuthenticatrionFilter jwtAuthenticatrionFilter,
+            RateLimitFilter rateLimitFilter,
             CorsConfigurationSource corsConfigurationSource) throws  Exception {
         http
                 .cors(cors -> cors.configurationSource(corsConfigurationSource))
                 .authorizeHttpRequests(auth -> auth
-                        .requestMatchers("/api/v1/files/covers/**").permitAll() // allow public access to cover images
-                        .requestMatchers("/api/v1/files/avatars/**").permitAll() // allow public access to avatars
+                        .requestMatchers(HttpMethod.GET, "/api/v1/files/covers/**").permitAll() // allow public access to cover images
+                        .requestMatchers(HttpMethod.GET, "/api/v1/files/avatars/**").permitAll() // allow public access to avatars
                         .requestMatchers(HttpMethod.POST, "/api/v1/auth/login").permitAll()
                         .requestMatchers(HttpMethod.POST, "/api/v1/auth/register").permitAll()
+                        .requestMatchers(HttpMethod.POST, "/api/v1/auth/refresh").permitAll() // the refresh token is the credential
+                        .requestMatchers(HttpMethod.POST, "/api/v1/auth/logout").permitAll() // revokes the refresh token it is given
                         .requestMatchers(HttpMethod.GET, "/api/v1/users/*/profile").permitAll() // allow public access to view profiles
                         .requestMatchers(HttpMethod.GET, "/api/v1/posts/drafts").authenticated() // user needs to be authenticated in oder to see the drafts
+                        .requestMatchers(HttpMethod.GET, "/api/v1/posts/likes").authenticated() // liked-by-me lookup is per user
                         .requestMatchers(HttpMethod.GET, "/api/v1/posts/**").permitAll() // any calls to the posts api will be permitted
                         .requestMatchers(HttpMethod.GET, "/api/v1/categories/**").permitAll() // any calls to the categories api will be permitted
                         .requestMatchers(HttpMethod.GET, "/api/v1/tags/**").permitAll() // any calls to the tags api will be permitted
+                        .requestMatchers(HttpMethod.GET, "/api/v1/search/**").permitAll() // search suggestions are public like the posts they point to
                         .anyRequest().authenticated() // anything else requires authentication
                 )
                 .csrf(csrf -> csrf.disable()) // disabling csrf tokens
+                // a missing or expired token is a 401, which tells the client to refresh it; 403 stays for lacking a role
+                .exceptionHandling(exceptions -> exceptions.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
                 .sessionManagement(session -> session.sessionCreationPolicy(SessionCreationPolicy.STATELESS)) // No HTTP sessions stored on the server. Each request must carry its own authentication (like a JWT token).
-                .addFilterBefore(jwtAuthenticatrionFilter, UsernamePasswordAuthenticationFilter.class);
+                .addFilterBefore(jwtAuthenticatrionFilter, UsernamePasswordAuthenticationFilter.class)
+                .addFilterAfter(rateLimitFilter, JwtAuthenticatrionFilter.class); // after it, to count signed-in users by id
         return http.build();
     }
 
@@ -90,11 +110,13 @@ public class SecurityConfig {
     // That instance is registered in the container.
     // Later, if any class has private final PasswordEncoder passwordEncoder; -→ Spring auto-injects it.
     @Bean
-    public PasswordEncoder passwordEncoder() {
+    public PasswordEncoder passwordEncoder(@Value("${auth.hashing.threads:2}") int threads,
+                                           @Value("${auth.hashing.queue-capacity:64}") int queueCapacity) {
         // Passwords should never be stored in plain text
         // This bean creates a PasswordEncoder (by default uses bcrypt).
         // When saving users, we encode their password. When logging in, Spring compares encoded values.
-        return PasswordEncoderFactories.createDelegatingPasswordEncoder();
+        // The hashing runs on its own bounded pool, see BoundedPasswordEncoder.
+        return new BoundedPasswordEncoder(PasswordEncoderFactories.createDelegatingPasswordEncoder(), threads, queueCapacity);
     }
 
     @Bean
@@ -4,11 +4,13 @@ import com.mehrdad.SafePost.domain.dtos.AuthResponse;
 import com.mehrdad.SafePost.domain.dtos.RegisterRequest;
 import com.mehrdad.SafePost.domain.dtos.UserProfileResponse;
 import com.mehrdad.SafePost.domain.dtos.LoginRequest;
+import com.mehrdad.SafePost.domain.dtos.RefreshTokenRequest;
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.security.BlogUserDetails;
 import com.mehrdad.SafePost.services.AuthenticationService;
-import com.mehrdad.SafePost.services.impl.AuthenticationServiceImpl;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -30,14 +32,7 @@ public class AuthController {
                 loginRequest.getPassword()
         );
 
-        String tokenValue = ((AuthenticationServiceImpl) authenticationService)
-                .generateToken(userDetails, loginRequest.isRememberMe());
-
-        int expiresIn = loginRequest.isRememberMe() ? 2592000 : 86400; // 30 days or 24h
-        AuthResponse authResponse = AuthResponse.builder()
-                .token(tokenValue)
-                .expiresIn(expiresIn)
-                .build();
+        AuthResponse authResponse = authenticationService.issueTokens(userDetails, loginRequest.isRememberMe());
         return ResponseEntity.ok(authResponse);
     }
 
@@ -46,21 +41,27 @@ public class AuthController {
         // Register the user
         User newUser = authenticationService.register(registerRequest);
 
-        // Authenticate the newly created user to get token
-        UserDetails userDetails = authenticationService.authenticate(
-                registerRequest.getEmail(),
-                registerRequest.getPassword()
-        );
-
-        String tokenValue = authenticationService.generateToken(userDetails);
-        AuthResponse authResponse = AuthResponse.builder()
-                .token(tokenValue)
-                .expiresIn(86400) // 24h
-                .build();
+        // The password was just set, no need to check it again to sign the new user in
+        AuthResponse authResponse = authenticationService.issueTokens(new BlogUserDetails(newUser), false);
 
         return new ResponseEntity<>(authResponse, HttpStatus.CREATED);
     }
 
+    @PostMapping("/refresh")
+    public ResponseEntity<AuthResponse> refresh(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest) {
+        AuthResponse authResponse = authenticationService.refresh(refreshTokenRequest.getRefreshToken());
+        return ResponseEntity.ok(authResponse);
+    }
+
+    // ends the session, and revokes the access token it is sent with so it cannot be used until it expires
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@Valid @RequestBody RefreshTokenRequest refreshTokenRequest,
+                                       @RequestHeader(value = HttpHeaders.AUTHORIZATION, required = false) String authorization) {
+        String accessToken = authorization != null && authorization.startsWith("Bearer ") ? authorization.substring(7) : null;
+        authenticationService.logout(refreshTokenRequest.getRefreshToken(), accessToken);
+        return ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/profile")
     public ResponseEntity<UserProfileResponse> getUserProfile(@RequestAttribute UUID userId) {
         UserProfileResponse profile = authenticationService.getUserProfile(userId);
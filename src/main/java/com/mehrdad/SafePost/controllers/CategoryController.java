@@ -1,12 +1,16 @@
 package com.mehrdad.SafePost.controllers;
 
+import com.mehrdad.SafePost.domain.CategoryPostCount;
+import com.mehrdad.SafePost.domain.TaxonomySnapshot;
 import com.mehrdad.SafePost.domain.dtos.CategoryDto;
 import com.mehrdad.SafePost.domain.dtos.CreateCategoryRequest;
 import com.mehrdad.SafePost.domain.entities.Category;
 import com.mehrdad.SafePost.mappers.CategoryMapper;
 import com.mehrdad.SafePost.services.CategoryService;
+import com.mehrdad.SafePost.services.TaxonomyService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
@@ -22,15 +26,21 @@ public class CategoryController {
 
     private final CategoryService categoryService;
     private final CategoryMapper categoryMapper;
+    private final TaxonomyService taxonomyService;
 
     @GetMapping
     public ResponseEntity<List<CategoryDto>> listCategories() {
-        List<CategoryDto> categories = categoryService.listCategories()
+        TaxonomySnapshot taxonomy = taxonomyService.getSnapshot();
+        List<CategoryDto> categories = taxonomy.categories().values()
                 .stream()
                 .map(categoryMapper::toDto)
                 .toList();
 
-        return ResponseEntity.ok(categories);
+        // no-cache makes clients revalidate with If-None-Match, answered with 304 while unchanged
+        return ResponseEntity.ok()
+                .eTag(taxonomy.categoriesEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(categories);
     }
 
     /* We could use the category dto in the argument, but I will be using a dedicated dto
@@ -49,6 +59,17 @@ public class CategoryController {
          );
     }
 
+    // moves all posts of the category to the one given in "to"
+    @PostMapping(path = "/{id}/move-posts")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<CategoryDto> movePosts(@PathVariable UUID id, @RequestParam UUID to) {
+        Category target = categoryService.movePosts(id, to);
+        // counted after the move, the snapshot is reloaded once the change committed
+        CategoryPostCount counted = taxonomyService.getSnapshot().categories()
+                .getOrDefault(target.getId(), new CategoryPostCount(target.getId(), target.getName(), 0));
+        return ResponseEntity.ok(categoryMapper.toDto(counted));
+    }
+
     @DeleteMapping(path = "/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteCategory(@PathVariable UUID id) {
@@ -1,8 +1,10 @@
 package com.mehrdad.SafePost.controllers;
 
+import com.mehrdad.SafePost.domain.ImageVariant;
 import com.mehrdad.SafePost.services.FileStorageService;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -14,6 +16,7 @@ import org.springframework.web.multipart.MultipartFile;
 import java.io.IOException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.UUID;
 
 @RestController
 @RequestMapping("/api/v1/files")
@@ -25,14 +28,15 @@ public class FileController {
 
     @PostMapping("/covers")
     public ResponseEntity<Map<String, String>> uploadCoverImage(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestAttribute UUID userId) {
         try {
             if (!fileStorageService.isValidImage(file)) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("error", "Invalid image file. Allowed formats: JPG, PNG, GIF, WebP. Max size: 5MB"));
             }
 
-            String filename = fileStorageService.storeCoverImage(file);
+            String filename = fileStorageService.storeCoverImage(file, userId);
             String url = "/api/v1/files/covers/" + filename;
 
             Map<String, String> response = new HashMap<>();
@@ -51,26 +55,12 @@ public class FileController {
         }
     }
 
+    // ?w= asks for the image at a display width, answered with the smallest variant at least that wide
     @GetMapping("/covers/{filename:.+}")
-    public ResponseEntity<Resource> serveCoverImage(@PathVariable String filename) {
+    public ResponseEntity<Resource> serveCoverImage(@PathVariable String filename,
+                                                    @RequestParam(name = "w", required = false) Integer width) {
         try {
-            Resource resource = fileStorageService.loadCoverImage(filename);
-
-            // Determine content type
-            String contentType = "image/jpeg"; // Default
-            if (filename.toLowerCase().endsWith(".png")) {
-                contentType = "image/png";
-            } else if (filename.toLowerCase().endsWith(".gif")) {
-                contentType = "image/gif";
-            } else if (filename.toLowerCase().endsWith(".webp")) {
-                contentType = "image/webp";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CACHE_CONTROL, "max-age=31536000") // Cache for 1 year
-                    .body(resource);
-
+            return serveImage(fileStorageService.loadCoverImage(filename, width));
         } catch (IOException e) {
             log.error("Failed to load cover image: {}", filename, e);
             return ResponseEntity.notFound().build();
@@ -78,9 +68,9 @@ public class FileController {
     }
 
     @DeleteMapping("/covers/{filename:.+}")
-    public ResponseEntity<Void> deleteCoverImage(@PathVariable String filename) {
+    public ResponseEntity<Void> deleteCoverImage(@PathVariable String filename, @RequestAttribute UUID userId) {
         try {
-            fileStorageService.deleteCoverImage(filename);
+            fileStorageService.deleteCoverImage(filename, userId);
             log.info("Cover image deleted successfully: {}", filename);
             return ResponseEntity.noContent().build();
         } catch (IOException e) {
@@ -91,14 +81,15 @@ public class FileController {
 
     @PostMapping("/avatars")
     public ResponseEntity<Map<String, String>> uploadAvatar(
-            @RequestParam("file") MultipartFile file) {
+            @RequestParam("file") MultipartFile file,
+            @RequestAttribute UUID userId) {
         try {
             if (!fileStorageService.isValidImage(file)) {
                 return ResponseEntity.badRequest()
                         .body(Map.of("error", "Invalid image file. Allowed formats: JPG, PNG, GIF, WebP. Max size: 5MB"));
             }
 
-            String filename = fileStorageService.storeAvatar(file);
+            String filename = fileStorageService.storeAvatar(file, userId);
             String url = "/api/v1/files/avatars/" + filename;
 
             Map<String, String> response = new HashMap<>();
@@ -118,25 +109,10 @@ public class FileController {
     }
 
     @GetMapping("/avatars/{filename:.+}")
-    public ResponseEntity<Resource> serveAvatar(@PathVariable String filename) {
+    public ResponseEntity<Resource> serveAvatar(@PathVariable String filename,
+                                                @RequestParam(name = "w", required = false) Integer width) {
         try {
-            Resource resource = fileStorageService.loadAvatar(filename);
-
-            // Determine content type
-            String contentType = "image/jpeg"; // Default
-            if (filename.toLowerCase().endsWith(".png")) {
-                contentType = "image/png";
-            } else if (filename.toLowerCase().endsWith(".gif")) {
-                contentType = "image/gif";
-            } else if (filename.toLowerCase().endsWith(".webp")) {
-                contentType = "image/webp";
-            }
-
-            return ResponseEntity.ok()
-                    .contentType(MediaType.parseMediaType(contentType))
-                    .header(HttpHeaders.CACHE_CONTROL, "max-age=31536000") // Cache for 1 year
-                    .body(resource);
-
+            return serveImage(fileStorageService.loadAvatar(filename, width));
         } catch (IOException e) {
             log.error("Failed to load avatar: {}", filename, e);
             return ResponseEntity.notFound().build();
@@ -144,9 +120,9 @@ public class FileController {
     }
 
     @DeleteMapping("/avatars/{filename:.+}")
-    public ResponseEntity<Void> deleteAvatar(@PathVariable String filename) {
+    public ResponseEntity<Void> deleteAvatar(@PathVariable String filename, @RequestAttribute UUID userId) {
         try {
-            fileStorageService.deleteAvatar(filename);
+            fileStorageService.deleteAvatar(filename, userId);
             log.info("Avatar deleted successfully: {}", filename);
             return ResponseEntity.noContent().build();
         } catch (IOException e) {
@@ -154,4 +130,25 @@ public class FileController {
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).build();
         }
     }
+
+    private ResponseEntity<Resource> serveImage(ImageVariant image) {
+        String filename = image.path().getFileName().toString().toLowerCase();
+
+        // Determine content type
+        String contentType = "image/jpeg"; // Default
+        if (filename.endsWith(".png")) {
+            contentType = "image/png";
+        } else if (filename.endsWith(".gif")) {
+            contentType = "image/gif";
+        } else if (filename.endsWith(".webp")) {
+            contentType = "image/webp";
+        }
+
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(contentType))
+                // Cache for 1 year, unless the original stands in for a variant that is still being generated;
+                // filenames are content hashes, the bytes behind a URL never change
+                .header(HttpHeaders.CACHE_CONTROL, image.pending() ? "max-age=60" : "max-age=31536000, immutable")
+                .body(new FileSystemResource(image.path()));
+    }
 }
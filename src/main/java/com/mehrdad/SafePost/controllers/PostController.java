@@ -1,15 +1,22 @@
 package com.mehrdad.SafePost.controllers;
 
 import com.mehrdad.SafePost.domain.CreatePostRequest;
+import com.mehrdad.SafePost.domain.TagFilter;
 import com.mehrdad.SafePost.domain.UpdatePostRequest;
 import com.mehrdad.SafePost.domain.dtos.CreatePostRequestDto;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
 import com.mehrdad.SafePost.domain.dtos.PostDto;
+import com.mehrdad.SafePost.domain.dtos.PostSummaryDto;
 import com.mehrdad.SafePost.domain.dtos.UpdatePostRequestDto;
 import com.mehrdad.SafePost.domain.entities.Post;
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.domain.enums.TagMatchMode;
 import com.mehrdad.SafePost.mappers.PostMapper;
+import com.mehrdad.SafePost.services.PostLikeService;
 import com.mehrdad.SafePost.services.PostService;
 import com.mehrdad.SafePost.services.UserService;
+import com.mehrdad.SafePost.util.HyperLogLog;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.HttpStatus;
@@ -17,6 +24,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
@@ -27,34 +35,46 @@ public class PostController {
     private final PostService postService;
     private final PostMapper postMapper;
     private final UserService userService;
+    private final PostLikeService postLikeService;
 
     @GetMapping
-    public ResponseEntity<List<PostDto>> getAllPosts(
+    public ResponseEntity<CursorPage<PostSummaryDto>> getAllPosts(
             @RequestParam(required = false) UUID categoryId,
             @RequestParam(required = false) UUID tagId,
-            @RequestParam(required = false) String search) {
+            @RequestParam(required = false) Set<UUID> tagIds, // comma separated, e.g. tagIds=a,b,c
+            @RequestParam(defaultValue = "all") String tagMode, // posts with "all" of the tagIds or "any" of them
+            @RequestParam(required = false) String search,
+            @RequestParam(defaultValue = "false") boolean fuzzy, // typo-tolerant search over titles and tags
+            @RequestParam(required = false) String cursor,
+            @RequestParam(defaultValue = "20") int limit,
+            @RequestAttribute(required = false) UUID userId) {
 
-        List<Post> posts;
+        CursorPage<PostSummaryDto> posts;
+        TagFilter tags = TagFilter.of(tagId, tagIds, TagMatchMode.fromParam(tagMode));
 
         // If search query is provided, use search method
         if (search != null && !search.trim().isEmpty()) {
-            posts = postService.searchPosts(search, categoryId, tagId);
+            posts = fuzzy
+                    ? postService.fuzzySearchPosts(search, categoryId, tags, cursor, limit)
+                    : postService.searchPosts(search, categoryId, tags, cursor, limit);
         } else {
-            posts = postService.getAllPosts(categoryId, tagId);
+            posts = postService.getAllPosts(categoryId, tags, cursor, limit);
         }
 
-        // convert them all to the post DTOs
-        List<PostDto> postDtos =  posts.stream().map(postMapper::toDto).toList();
-        return ResponseEntity.ok(postDtos);
+        // signed-in readers get their like state with the page instead of one request per card
+        if (userId != null) {
+            markLikedByMe(posts.getItems(), userId);
+        }
+
+        // list endpoints only ship summaries, the full content is served by getPost
+        return ResponseEntity.ok(posts);
     }
 
     // Draft post endpoint
     @GetMapping(path = "/drafts")
-    public ResponseEntity<List<PostDto>> getDrafts(@RequestAttribute UUID userId) {
-        User loggedInUser = userService.getUserById(userId);
-        List<Post> draftPosts = postService.getDraftPosts(loggedInUser);
-        List<PostDto> postDtos = draftPosts.stream().map(postMapper::toDto).toList();
-        return ResponseEntity.ok(postDtos);
+    public ResponseEntity<List<PostSummaryDto>> getDrafts(@RequestAttribute UUID userId) {
+        List<PostSummaryDto> draftPosts = postService.getDraftPosts(userId);
+        return ResponseEntity.ok(draftPosts);
     }
 
     @PostMapping
@@ -83,20 +103,46 @@ public class PostController {
     }
 
     @GetMapping(path = "/{id}")
-    public ResponseEntity<PostDto> getPost(@PathVariable UUID id) {
+    public ResponseEntity<PostDto> getPost(
+            @PathVariable UUID id,
+            @RequestAttribute(required = false) UUID userId,
+            HttpServletRequest request) {
         Post post = postService.getPost(id);
 
         // Increment view count
-        postService.incrementViewCount(id);
+        postService.incrementViewCount(id, viewerHash(userId, request));
 
         PostDto postDto = postMapper.toDto(post);
 
         return ResponseEntity.ok(postDto);
     }
 
+    @GetMapping(path = "/{id}/related")
+    public ResponseEntity<List<PostSummaryDto>> getRelatedPosts(
+            @PathVariable UUID id,
+            @RequestParam(defaultValue = "5") int limit) {
+        return ResponseEntity.ok(postService.getRelatedPosts(id, limit));
+    }
+
+    // logged-in viewers are identified by their id, anonymous ones by their address alone, since a header the
+    // client sets could make every request a new viewer; behind a proxy the address is only the client's
+    // with server.forward-headers-strategy set
+    private long viewerHash(UUID userId, HttpServletRequest request) {
+        if (userId != null) {
+            return HyperLogLog.hash(userId);
+        }
+        return HyperLogLog.hash(request.getRemoteAddr());
+    }
+
     @DeleteMapping(path = "/{id}")
     public ResponseEntity<Void> deletePost(@PathVariable UUID id, @RequestAttribute UUID userId) {
         postService.deletePost(id, userId);
         return ResponseEntity.noContent().build();
     }
+
+    private void markLikedByMe(List<PostSummaryDto> posts, UUID userId) {
+        Set<UUID> likedPostIds = postLikeService.getLikedPostIds(
+                userId, posts.stream().map(PostSummaryDto::getId).toList());
+        posts.forEach(post -> post.setLikedByMe(likedPostIds.contains(post.getId())));
+    }
 }
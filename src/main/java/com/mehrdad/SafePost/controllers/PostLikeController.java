@@ -1,21 +1,23 @@
 package com.mehrdad.SafePost.controllers;
 
 import com.mehrdad.SafePost.domain.dtos.LikeResponse;
+import com.mehrdad.SafePost.domain.dtos.LikedPostsResponse;
 import com.mehrdad.SafePost.services.PostLikeService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.util.Set;
 import java.util.UUID;
 
 @RestController
-@RequestMapping("/api/v1/posts/{postId}/likes")
+@RequestMapping("/api/v1/posts")
 @RequiredArgsConstructor
 public class PostLikeController {
 
     private final PostLikeService postLikeService;
 
-    @PostMapping
+    @PostMapping(path = "/{postId}/likes")
     public ResponseEntity<LikeResponse> toggleLike(
             @PathVariable UUID postId,
             @RequestAttribute UUID userId) {
@@ -23,7 +25,7 @@ public class PostLikeController {
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping
+    @GetMapping(path = "/{postId}/likes")
     public ResponseEntity<LikeResponse> getLikeStatus(
             @PathVariable UUID postId,
             @RequestAttribute(required = false) UUID userId) {
@@ -37,4 +39,15 @@ public class PostLikeController {
 
         return ResponseEntity.ok(response);
     }
+
+    // like state of a whole page of posts in one request, e.g. GET /api/v1/posts/likes?postIds=a,b,c
+    @GetMapping(path = "/likes")
+    public ResponseEntity<LikedPostsResponse> getLikedPosts(
+            @RequestParam Set<UUID> postIds,
+            @RequestAttribute UUID userId) {
+        LikedPostsResponse response = LikedPostsResponse.builder()
+                .likedPostIds(postLikeService.getLikedPostIds(userId, postIds))
+                .build();
+        return ResponseEntity.ok(response);
+    }
 }
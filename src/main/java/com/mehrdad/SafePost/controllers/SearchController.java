@@ -0,0 +1,39 @@
+package com.mehrdad.SafePost.controllers;
+
+import com.mehrdad.SafePost.domain.dtos.SearchCacheStatsDto;
+import com.mehrdad.SafePost.domain.dtos.SuggestionDto;
+import com.mehrdad.SafePost.services.SearchResultCache;
+import com.mehrdad.SafePost.services.SuggestionService;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping(path = "/api/v1/search")
+@RequiredArgsConstructor
+public class SearchController {
+
+    private final SuggestionService suggestionService;
+    private final SearchResultCache searchResultCache;
+
+    // completions for the search box while the user is typing, e.g. GET /api/v1/search/suggest?q=spr
+    @GetMapping(path = "/suggest")
+    public ResponseEntity<List<SuggestionDto>> suggest(
+            @RequestParam("q") String query,
+            @RequestParam(defaultValue = "8") int limit) {
+        return ResponseEntity.ok(suggestionService.suggest(query, limit));
+    }
+
+    // hit and miss counts of the search result cache, for tuning its size and ttl
+    @GetMapping(path = "/cache/stats")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<SearchCacheStatsDto> getCacheStats() {
+        return ResponseEntity.ok(searchResultCache.stats());
+    }
+}
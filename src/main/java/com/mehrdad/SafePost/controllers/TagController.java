@@ -1,17 +1,24 @@
 package com.mehrdad.SafePost.controllers;
 
+import com.mehrdad.SafePost.domain.TagPostCount;
+import com.mehrdad.SafePost.domain.TaxonomySnapshot;
+import com.mehrdad.SafePost.domain.dtos.BulkCreateTagsRequest;
 import com.mehrdad.SafePost.domain.dtos.CreateTagsRequest;
 import com.mehrdad.SafePost.domain.dtos.TagDto;
 import com.mehrdad.SafePost.domain.entities.Tag;
 import com.mehrdad.SafePost.mappers.TagMapper;
 import com.mehrdad.SafePost.services.TagService;
+import com.mehrdad.SafePost.services.TaxonomyService;
+import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 @RestController
@@ -21,31 +28,60 @@ public class TagController  {
 
     private final TagService tagService;
     private final TagMapper tagMapper;
+    private final TaxonomyService taxonomyService;
 
     @GetMapping
     public ResponseEntity<List<TagDto>> getAllTags() {
-        List<Tag> tags = tagService.getTags();
-        // convert the Tag entities to the DTOs
-        List<TagDto> tagRespons = tags.stream().map(tagMapper::toTagResponse).toList();
-        return ResponseEntity.ok(tagRespons);
+        TaxonomySnapshot taxonomy = taxonomyService.getSnapshot();
+        // convert the counted tags to the DTOs
+        List<TagDto> tagRespons = taxonomy.tags().values().stream().map(tagMapper::toTagResponse).toList();
+        // a client sending the ETag back gets 304 Not Modified until the tags change
+        return ResponseEntity.ok()
+                .eTag(taxonomy.tagsEtag())
+                .cacheControl(CacheControl.noCache())
+                .body(tagRespons);
     }
 
     @PostMapping
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<List<TagDto>> createTags(@RequestBody CreateTagsRequest createTagsRequest) {
         List<Tag> savedTags = tagService.createTags(createTagsRequest.getNames());
-        List<TagDto> createdTagRespons = savedTags.stream().map(tagMapper::toTagResponse).toList();
 
         return new ResponseEntity<>(
-                createdTagRespons,
+                toCountedTagResponses(savedTags),
                 HttpStatus.CREATED
         );
     }
 
+    // creates the missing tags and returns all of them, existing ones included
+    @PostMapping(path = "/bulk")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<List<TagDto>> createTagsInBulk(@Valid @RequestBody BulkCreateTagsRequest bulkCreateTagsRequest) {
+        List<Tag> savedTags = tagService.createTags(bulkCreateTagsRequest.getNames());
+        return new ResponseEntity<>(toCountedTagResponses(savedTags), HttpStatus.CREATED);
+    }
+
     @DeleteMapping(path ="/{id}")
     @PreAuthorize("hasRole('ADMIN')")
     public ResponseEntity<Void> deleteTag(@PathVariable UUID id) {
         tagService.deleteTag(id);
         return ResponseEntity.noContent().build();
     }
+
+    // re-tags all posts of the tag with the one given in "into", then deletes the tag
+    @PostMapping(path = "/{id}/merge")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<TagDto> mergeTag(@PathVariable UUID id, @RequestParam UUID into) {
+        Tag target = tagService.mergeTag(id, into);
+        return ResponseEntity.ok(toCountedTagResponses(List.of(target)).get(0));
+    }
+
+    // the post counts come from the taxonomy snapshot, which already includes the tags just created
+    private List<TagDto> toCountedTagResponses(List<Tag> tags) {
+        Map<UUID, TagPostCount> counted = taxonomyService.getSnapshot().tags();
+        return tags.stream()
+                .map(tag -> tagMapper.toTagResponse(
+                        counted.getOrDefault(tag.getId(), new TagPostCount(tag.getId(), tag.getName(), 0))))
+                .toList();
+    }
 }
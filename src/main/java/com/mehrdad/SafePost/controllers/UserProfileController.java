@@ -1,14 +1,18 @@
 package com.mehrdad.SafePost.controllers;
 
 import com.mehrdad.SafePost.domain.dtos.UpdateProfileRequest;
+import com.mehrdad.SafePost.domain.dtos.UpdateRoleRequest;
 import com.mehrdad.SafePost.domain.dtos.UserProfileResponse;
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.repositories.PostRepository;
 import com.mehrdad.SafePost.repositories.UserRepository;
 import com.mehrdad.SafePost.security.BlogUserDetails;
+import com.mehrdad.SafePost.services.UserService;
 import jakarta.validation.Valid;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.web.bind.annotation.*;
 
@@ -22,6 +26,8 @@ import java.util.UUID;
 public class UserProfileController {
 
     private final UserRepository userRepository;
+    private final PostRepository postRepository;
+    private final UserService userService;
 
     @GetMapping("/{id}/profile")
     public ResponseEntity<UserProfileResponse> getUserProfile(@PathVariable UUID id) {
@@ -41,12 +47,20 @@ public class UserProfileController {
                 .linkedinUrl(user.getLinkedinUrl())
                 .websiteUrl(user.getWebsiteUrl())
                 .location(user.getLocation())
-                .postCount(user.getPosts() != null ? user.getPosts().size() : 0)
+                .postCount((int) postRepository.countByAuthorId(user.getId()))
                 .build();
 
         return ResponseEntity.ok(response);
     }
 
+    // the user's current tokens stop working, they have to log in again to act with the new role
+    @PutMapping("/{id}/role")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<Void> changeRole(@PathVariable UUID id, @Valid @RequestBody UpdateRoleRequest request) {
+        userService.changeRole(id, request.getRole());
+        return ResponseEntity.noContent().build();
+    }
+
     @PutMapping("/profile")
     public ResponseEntity<UserProfileResponse> updateProfile(
             @AuthenticationPrincipal BlogUserDetails userDetails,
@@ -87,7 +101,7 @@ public class UserProfileController {
                 .linkedinUrl(user.getLinkedinUrl())
                 .websiteUrl(user.getWebsiteUrl())
                 .location(user.getLocation())
-                .postCount(user.getPosts() != null ? user.getPosts().size() : 0)
+                .postCount((int) postRepository.countByAuthorId(user.getId()))
                 .build();
 
         log.info("Profile updated for user: {}", user.getId());
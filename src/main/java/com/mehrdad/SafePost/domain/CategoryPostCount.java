@@ -0,0 +1,7 @@
+package com.mehrdad.SafePost.domain;
+
+import java.util.UUID;
+
+// a category with the number of published posts in it, counted by the database
+public record CategoryPostCount(UUID id, String name, long postCount) {
+}
@@ -0,0 +1,11 @@
+package com.mehrdad.SafePost.domain;
+
+import java.nio.file.Path;
+
+/**
+ * The file to send for an image requested at some width
+ * @param path A downscaled variant, or the original when there is no smaller one
+ * @param pending Whether the variants are still being generated, so a smaller file may exist soon
+ */
+public record ImageVariant(Path path, boolean pending) {
+}
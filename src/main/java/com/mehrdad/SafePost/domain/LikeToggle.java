@@ -0,0 +1,5 @@
+package com.mehrdad.SafePost.domain;
+
+// outcome of a like toggle: whether the user now likes the post and the post's updated like count
+public record LikeToggle(boolean liked, int likesCount) {
+}
@@ -0,0 +1,50 @@
+package com.mehrdad.SafePost.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.UUID;
+
+/*
+Keyset position inside the (created_at DESC, id DESC) ordering of posts.
+
+Clients only ever see the encoded form, an opaque url-safe string handed back as nextCursor,
+so the ordering columns can change later without breaking the API contract.
+*/
+public record PostCursor(LocalDateTime createdAt, UUID id) {
+
+    // Position before the newest possible post, used for the first page so every page runs the same
+    // "strictly after the cursor" query instead of needing a separate unbounded variant.
+    public static final PostCursor FIRST = new PostCursor(
+            LocalDateTime.of(9999, 12, 31, 23, 59, 59),
+            new UUID(-1L, -1L)
+    );
+
+    private static final String SEPARATOR = "|";
+
+    public static PostCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new PostCursor(
+                    LocalDateTime.parse(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static PostCursor of(LocalDateTime createdAt, UUID id) {
+        return new PostCursor(createdAt, id);
+    }
+
+    public String encode() {
+        String raw = createdAt + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,10 @@
+package com.mehrdad.SafePost.domain;
+
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// the searchable text of a published post together with the fields search results can be filtered on
+public record PostDocument(UUID id, String title, String content, String authorName,
+                           UUID categoryId, Set<UUID> tagIds, List<String> tagNames) {
+}
@@ -0,0 +1,29 @@
+package com.mehrdad.SafePost.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/*
+Read model for post cards in list endpoints.
+
+Built straight from a JPQL constructor expression, so the unbounded content column is never
+read. The teaser comes from the precomputed excerpt column instead. Tags are loaded separately
+for a whole page at once, see PostRepository.findTagsByPostIds.
+*/
+public record PostSummary(
+        UUID id,
+        String title,
+        String excerpt,
+        Integer readingTime,
+        Integer viewCount,
+        Integer likesCount,
+        String coverImageUrl,
+        LocalDateTime createdAt,
+        LocalDateTime updatedAt,
+        PostStatus status,
+        UUID authorId,
+        String authorName,
+        UUID categoryId,
+        String categoryName
+) {
+}
@@ -0,0 +1,7 @@
+package com.mehrdad.SafePost.domain;
+
+import java.util.UUID;
+
+// one (post, tag) pair of the post-tags join table, used to attach tags to a page of summaries
+public record PostTagRow(UUID postId, UUID tagId, String tagName) {
+}
@@ -0,0 +1,7 @@
+package com.mehrdad.SafePost.domain;
+
+import java.util.UUID;
+
+// one search hit: the post and its relevance for the query
+public record RankedPostId(UUID id, float rank) {
+}
@@ -0,0 +1,44 @@
+package com.mehrdad.SafePost.domain;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+/*
+Keyset position inside the (rank DESC, id DESC) ordering of ranked search results.
+
+Like PostCursor it is only handed to clients in its opaque encoded form. The rank is kept as the
+exact float the database computed, so the next page resumes strictly after the last row.
+*/
+public record SearchCursor(float rank, UUID id) {
+
+    // Position before the best possible match, used for the first page
+    public static final SearchCursor FIRST = new SearchCursor(Float.POSITIVE_INFINITY, new UUID(-1L, -1L));
+
+    private static final String SEPARATOR = "|";
+
+    public static SearchCursor decode(String cursor) {
+        if (cursor == null || cursor.isBlank()) {
+            return FIRST;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(SEPARATOR);
+            return new SearchCursor(
+                    Float.parseFloat(raw.substring(0, separator)),
+                    UUID.fromString(raw.substring(separator + 1))
+            );
+        } catch (IllegalArgumentException | IndexOutOfBoundsException ex) {
+            throw new IllegalArgumentException("Invalid cursor");
+        }
+    }
+
+    public static SearchCursor of(float rank, UUID id) {
+        return new SearchCursor(rank, id);
+    }
+
+    public String encode() {
+        String raw = rank + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+}
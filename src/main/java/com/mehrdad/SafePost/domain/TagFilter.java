@@ -0,0 +1,62 @@
+package com.mehrdad.SafePost.domain;
+
+import com.mehrdad.SafePost.domain.enums.TagMatchMode;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+Optional tag filter of the post list and search: posts carrying all of the tags, or at least one.
+
+Both modes reduce to "the post carries at least requiredMatches() of these tags", which the
+queries check with a single count over the post's tag links instead of one join per tag.
+*/
+public record TagFilter(Set<UUID> tagIds, TagMatchMode mode) {
+
+    public static final TagFilter NONE = new TagFilter(Set.of(), TagMatchMode.ALL);
+
+    private static final int MAX_TAGS = 10;
+
+    public TagFilter {
+        tagIds = Set.copyOf(tagIds);
+        if (tagIds.size() > MAX_TAGS) {
+            throw new IllegalArgumentException("Cannot filter by more than " + MAX_TAGS + " tags");
+        }
+    }
+
+    // the single tagId parameter is kept for older clients and simply joins the tagIds
+    public static TagFilter of(UUID tagId, Collection<UUID> tagIds, TagMatchMode mode) {
+        Set<UUID> ids = new LinkedHashSet<>();
+        if (tagId != null) {
+            ids.add(tagId);
+        }
+        if (tagIds != null) {
+            ids.addAll(tagIds);
+        }
+        return ids.isEmpty() ? NONE : new TagFilter(ids, mode);
+    }
+
+    public boolean isEmpty() {
+        return tagIds.isEmpty();
+    }
+
+    // how many of the filter's tags a post must carry; 0 when there is no filter
+    public int requiredMatches() {
+        if (isEmpty()) {
+            return 0;
+        }
+        return mode == TagMatchMode.ALL ? tagIds.size() : 1;
+    }
+
+    public boolean matches(Collection<UUID> postTagIds) {
+        int matched = 0;
+        for (UUID tagId : postTagIds) {
+            if (tagIds.contains(tagId)) {
+                matched++;
+            }
+        }
+        return matched >= requiredMatches();
+    }
+}
@@ -0,0 +1,7 @@
+package com.mehrdad.SafePost.domain;
+
+import java.util.UUID;
+
+// a tag with the number of published posts carrying it, counted by the database
+public record TagPostCount(UUID id, String name, long postCount) {
+}
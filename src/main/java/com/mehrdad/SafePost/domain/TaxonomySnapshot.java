@@ -0,0 +1,45 @@
+package com.mehrdad.SafePost.domain;
+
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Immutable copy of all categories and tags with their published post counts, sorted by name.
+
+The ETags are digests of the content, so every instance serving the same taxonomy hands out the
+same ETag, and a client only downloads a list again once it actually changed.
+*/
+public record TaxonomySnapshot(Map<UUID, CategoryPostCount> categories, String categoriesEtag,
+                               Map<UUID, TagPostCount> tags, String tagsEtag) {
+
+    public static TaxonomySnapshot of(List<CategoryPostCount> categories, List<TagPostCount> tags) {
+        List<CategoryPostCount> sortedCategories = categories.stream()
+                .sorted(Comparator.comparing(CategoryPostCount::name).thenComparing(CategoryPostCount::id))
+                .toList();
+        List<TagPostCount> sortedTags = tags.stream()
+                .sorted(Comparator.comparing(TagPostCount::name).thenComparing(TagPostCount::id))
+                .toList();
+        return new TaxonomySnapshot(
+                byId(sortedCategories, CategoryPostCount::id), etagOf(sortedCategories),
+                byId(sortedTags, TagPostCount::id), etagOf(sortedTags));
+    }
+
+    private static <T> Map<UUID, T> byId(List<T> items, Function<T, UUID> id) {
+        return items.stream().collect(Collectors.collectingAndThen(
+                Collectors.toMap(id, Function.identity(), (a, b) -> a, LinkedHashMap::new),
+                Collections::unmodifiableMap));
+    }
+
+    private static String etagOf(List<?> items) {
+        return "\"" + DigestUtils.md5DigestAsHex(items.toString().getBytes(StandardCharsets.UTF_8)) + "\"";
+    }
+}
@@ -0,0 +1,7 @@
+package com.mehrdad.SafePost.domain;
+
+import com.mehrdad.SafePost.domain.enums.Role;
+
+// The parts of a user a token has to agree with to be accepted
+public record UserAuthState(Role role, int tokenVersion) {
+}
@@ -11,5 +11,6 @@ import lombok.NoArgsConstructor;
 @Builder
 public class AuthResponse {
     private String token; // JWT (JSOn Web Token)
-    private long expiresIn;
+    private long expiresIn; // seconds until the token expires
+    private String refreshToken; // exchanged at /auth/refresh for a new token and refresh token
 }
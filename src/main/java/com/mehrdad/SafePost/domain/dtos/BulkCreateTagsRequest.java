@@ -0,0 +1,26 @@
+package com.mehrdad.SafePost.domain.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+// same name rules as CreateTagsRequest, for importing the tags of another site in one request
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@Builder
+public class BulkCreateTagsRequest {
+
+    @NotEmpty(message = "At least one tag name is required")
+    @Size(max = 50000, message = "Maximum {max} tags allowed")
+    private List<
+            @Size(min = 2, max = 30, message = "Tag name must be between {min} and {max} characters")
+            @Pattern(regexp = "^[\\w\\s-]+$", message = "Tag name can only contain letters, numbers, spaces and hyphens.")
+            String> names;
+}
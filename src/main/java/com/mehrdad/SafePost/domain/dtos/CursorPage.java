@@ -0,0 +1,40 @@
+package com.mehrdad.SafePost.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.function.Function;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class CursorPage<T> {
+    private List<T> items;
+    private String nextCursor; // null when this is the last page
+    private boolean hasMore;
+
+    // Builds a page from a query that fetched up to pageSize + 1 rows; the extra row only signals that
+    // another page exists, and the cursor of the last returned item becomes nextCursor.
+    public static <T> CursorPage<T> fromOverfetched(List<T> rows, int pageSize, Function<? super T, String> cursorOf) {
+        boolean hasMore = rows.size() > pageSize;
+        List<T> items = hasMore ? rows.subList(0, pageSize) : rows;
+        return CursorPage.<T>builder()
+                .items(items)
+                .nextCursor(hasMore ? cursorOf.apply(items.get(items.size() - 1)) : null)
+                .hasMore(hasMore)
+                .build();
+    }
+
+    // convert the items (e.g. entities to DTOs) while keeping the paging information
+    public <R> CursorPage<R> map(Function<? super T, ? extends R> mapper) {
+        return CursorPage.<R>builder()
+                .items(items.stream().<R>map(mapper).toList())
+                .nextCursor(nextCursor)
+                .hasMore(hasMore)
+                .build();
+    }
+}
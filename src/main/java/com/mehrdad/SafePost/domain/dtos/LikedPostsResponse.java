@@ -0,0 +1,17 @@
+package com.mehrdad.SafePost.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.Set;
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class LikedPostsResponse {
+    private Set<UUID> likedPostIds; // the subset of the requested posts the caller has liked
+}
@@ -20,5 +20,6 @@ public class LoginRequest  {
     @NotBlank(message = "Password is required")
     private String password;
 
+    // keeps the session (refresh token) for 30 days instead of 24h
     private boolean rememberMe = false;
 }
@@ -23,6 +23,7 @@ public class PostDto {
     private Set<TagDto> tags;
     private Integer readingTime;
     private Integer viewCount;
+    private Integer uniqueViewers;
     private Integer likesCount;
     private String coverImageUrl;
     private String coverImageFilename;
@@ -0,0 +1,34 @@
+package com.mehrdad.SafePost.domain.dtos;
+
+import com.mehrdad.SafePost.domain.PostStatus;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+// Card-sized view of a post for list endpoints, the full content is only served by GET /posts/{id}
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class PostSummaryDto {
+    private UUID id;
+    private String title;
+    private String excerpt;
+    private AuthorDto author;
+    private CategoryDto category;
+    private Set<TagDto> tags;
+    private Integer readingTime;
+    private Integer viewCount;
+    private Integer likesCount;
+    private String coverImageUrl;
+    private String coverImagePlaceholder; // tiny data URI shown while the cover loads
+    private LocalDateTime createdAt;
+    private LocalDateTime updatedAt;
+    private PostStatus status;
+    private Boolean likedByMe; // only set for authenticated callers
+}
@@ -0,0 +1,20 @@
+package com.mehrdad.SafePost.domain.dtos;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SearchCacheStatsDto {
+    private int size;
+    private int maxEntries;
+    private long hits;
+    private long misses;
+    private double hitRate; // hits / (hits + misses), 0 before the first lookup
+    private long staleEntries; // found but dropped because a post they may contain changed
+    private long evictions;
+}
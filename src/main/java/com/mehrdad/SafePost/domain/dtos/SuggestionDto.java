@@ -0,0 +1,19 @@
+package com.mehrdad.SafePost.domain.dtos;
+
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.UUID;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+public class SuggestionDto {
+    private String text;
+    private ContentType type;
+    private UUID id; // post, tag, category or user id depending on the type
+}
@@ -3,6 +3,7 @@ package com.mehrdad.SafePost.domain.entities;
 import com.mehrdad.SafePost.domain.PostStatus;
 import jakarta.persistence.*;
 import lombok.*;
+import org.hibernate.annotations.BatchSize;
 
 import java.time.LocalDateTime;
 import java.util.HashSet;
@@ -29,6 +30,10 @@ public class Post {
     @Column(nullable = false, columnDefinition = "TEXT")
     private String content;
 
+    // plain-text teaser derived from content on every write, served by the list endpoints
+    @Column(length = 300)
+    private String excerpt;
+
     @Column(nullable = false)
     @Enumerated(EnumType.STRING)
     private PostStatus status;
@@ -36,14 +41,21 @@ public class Post {
     @Column(nullable = false)
     private Integer readingTime;
 
-    @Column(nullable = false)
+    // maintained with atomic increments by the view flusher, so entity updates must never write it back
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer viewCount = 0;
 
-    @Column(nullable = false)
+    // changed only by the atomic like toggle, so entity updates must never write it back
+    @Column(nullable = false, updatable = false)
     @Builder.Default
     private Integer likesCount = 0;
 
+    // estimated from the viewer sketches by the view flusher, never written through the entity
+    @Column(nullable = false, insertable = false, updatable = false, columnDefinition = "INTEGER DEFAULT 0")
+    @Builder.Default
+    private Integer uniqueViewers = 0;
+
     @Column(length = 500)
     private String coverImageUrl;
 
@@ -64,7 +76,10 @@ public class Post {
     @JoinColumn(name="category_id", nullable = false)
     private Category category;
 
+    // when tags are touched lazily (e.g. several posts in one transaction), initialise them for a
+    // batch of posts per query rather than one query per post
     @ManyToMany
+    @BatchSize(size = 50)
     @JoinTable(
             name="post-tags",
             joinColumns = @JoinColumn(name="post-id"),
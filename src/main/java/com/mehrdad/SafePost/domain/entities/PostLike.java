@@ -7,7 +7,9 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 
 @Entity
-@Table(name = "post_likes")
+@Table(name = "post_likes", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_post_user_like", columnNames = {"post_id", "user_id"})
+})
 @NoArgsConstructor
 @AllArgsConstructor
 @Getter
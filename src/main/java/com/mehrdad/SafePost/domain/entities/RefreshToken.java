@@ -0,0 +1,47 @@
+package com.mehrdad.SafePost.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// only the SHA-256 of the token is stored, a leaked table does not let anyone sign in
+@Entity
+@Table(name = "refresh_tokens")
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class RefreshToken {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "user_id", nullable = false)
+    private User user;
+
+    @Column(nullable = false, unique = true, length = 64)
+    private String tokenHash;
+
+    // a token is exchanged once; the one issued in exchange inherits the session kind
+    @Column(nullable = false)
+    private boolean rememberMe;
+
+    @Column(nullable = false)
+    private LocalDateTime expiresAt;
+
+    // set when exchanged for a new token
+    private LocalDateTime usedAt;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
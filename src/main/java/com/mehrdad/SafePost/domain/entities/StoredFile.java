@@ -0,0 +1,38 @@
+package com.mehrdad.SafePost.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// an uploaded file of a directory ("covers", "avatars"), named after the SHA-256 of its content
+@Entity
+@Table(name = "stored_files", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stored_files_directory_filename", columnNames = {"directory", "filename"})
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class StoredFile {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(nullable = false, length = 16)
+    private String directory;
+
+    @Column(nullable = false, length = 80)
+    private String filename;
+
+    @Column(nullable = false)
+    private LocalDateTime createdAt;
+
+    @PrePersist
+    protected void onCreate() {
+        this.createdAt = LocalDateTime.now();
+    }
+}
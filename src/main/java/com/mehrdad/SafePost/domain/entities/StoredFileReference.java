@@ -0,0 +1,34 @@
+package com.mehrdad.SafePost.domain.entities;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.util.UUID;
+
+// how many uploads of a stored file a user has not deleted yet; only the user can release them
+@Entity
+@Table(name = "stored_file_references", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_stored_file_references_file_owner", columnNames = {"stored_file_id", "owner_id"})
+})
+@NoArgsConstructor
+@AllArgsConstructor
+@Getter
+@Setter
+@Builder
+public class StoredFileReference {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "stored_file_id", nullable = false)
+    private StoredFile storedFile;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "owner_id", nullable = false)
+    private User owner;
+
+    @Column(nullable = false)
+    private int refCount;
+}
@@ -37,6 +37,11 @@ public class User {
     @Builder.Default
     private Role role = Role.USER;
 
+    // part of every token issued to the user, incremented to invalidate them all
+    @Column(nullable = false)
+    @Builder.Default
+    private Integer tokenVersion = 0;
+
     @OneToMany(mappedBy = "author", cascade = CascadeType.ALL, orphanRemoval = true)
     @Builder.Default
     private List<Post> posts = new ArrayList<>();
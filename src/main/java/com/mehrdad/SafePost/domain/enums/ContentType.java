@@ -0,0 +1,9 @@
+package com.mehrdad.SafePost.domain.enums;
+
+// the kinds of things search suggestions can point to
+public enum ContentType {
+    POST,
+    TAG,
+    CATEGORY,
+    AUTHOR
+}
@@ -0,0 +1,18 @@
+package com.mehrdad.SafePost.domain.enums;
+
+import java.util.Locale;
+
+// how a filter on several tags combines them: posts carrying ALL of the tags, or ANY of them
+public enum TagMatchMode {
+    ALL,
+    ANY;
+
+    // the tagMode request parameter, case-insensitive ("all", "any")
+    public static TagMatchMode fromParam(String value) {
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException ex) {
+            throw new IllegalArgumentException("tagMode must be 'all' or 'any'");
+        }
+    }
+}
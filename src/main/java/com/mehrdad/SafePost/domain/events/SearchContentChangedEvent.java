@@ -0,0 +1,25 @@
+package com.mehrdad.SafePost.domain.events;
+
+import com.mehrdad.SafePost.domain.enums.ContentType;
+
+import java.util.Set;
+import java.util.UUID;
+
+// Published when posts, tags, categories or authors were created, changed or deleted. Listeners re-read
+// the current state themselves, so the event only says what to look at. Bulk changes publish one
+// event for all the ids, so listeners can reload them together.
+// Listeners use @TransactionalEventListener(fallbackExecution = true): they run once the publishing
+// transaction has committed, so they read what it wrote, or right away when published outside of one.
+public record SearchContentChangedEvent(ContentType type, Set<UUID> ids) {
+
+    // beyond this many ids, a listener with an in-memory index rebuilds it rather than applying each change
+    public static final int BULK_SIZE = 100;
+
+    public SearchContentChangedEvent(ContentType type, UUID id) {
+        this(type, Set.of(id));
+    }
+
+    public boolean isBulk() {
+        return ids.size() > BULK_SIZE;
+    }
+}
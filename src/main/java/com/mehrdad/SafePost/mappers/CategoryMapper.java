@@ -1,5 +1,6 @@
 package com.mehrdad.SafePost.mappers;
 
+import com.mehrdad.SafePost.domain.CategoryPostCount;
 import com.mehrdad.SafePost.domain.PostStatus;
 import com.mehrdad.SafePost.domain.dtos.CategoryDto;
 import com.mehrdad.SafePost.domain.dtos.CreateCategoryRequest;
@@ -20,6 +21,9 @@ public interface CategoryMapper {
     @Mapping(target = "postCount", source = "posts", qualifiedByName = "calculatePostCount")
     CategoryDto toDto(Category category);
 
+    // the listing already comes with the count
+    CategoryDto toDto(CategoryPostCount category);
+
     // convert from a CreateCategoryRequest to a Category
     Category toEntity(CreateCategoryRequest createCategoryRequest);
 
@@ -1,15 +1,20 @@
 package com.mehrdad.SafePost.mappers;
 
 import com.mehrdad.SafePost.domain.CreatePostRequest;
+import com.mehrdad.SafePost.domain.PostSummary;
 import com.mehrdad.SafePost.domain.UpdatePostRequest;
 import com.mehrdad.SafePost.domain.dtos.CreatePostRequestDto;
 import com.mehrdad.SafePost.domain.dtos.PostDto;
+import com.mehrdad.SafePost.domain.dtos.PostSummaryDto;
+import com.mehrdad.SafePost.domain.dtos.TagDto;
 import com.mehrdad.SafePost.domain.dtos.UpdatePostRequestDto;
 import com.mehrdad.SafePost.domain.entities.Post;
 import org.mapstruct.Mapper;
 import org.mapstruct.Mapping;
 import org.mapstruct.ReportingPolicy;
 
+import java.util.Set;
+
 @Mapper(componentModel = "spring", unmappedTargetPolicy = ReportingPolicy.IGNORE)
 public interface PostMapper {
 
@@ -20,6 +25,15 @@ public interface PostMapper {
     @Mapping(target = "tags", source = "tags")
     PostDto toDto(Post post);
 
+    // Summaries carry author and category as flat columns of the projection, the tags of a
+    // whole page are loaded by a separate query and handed in here.
+    @Mapping(target = "author.id", source = "summary.authorId")
+    @Mapping(target = "author.name", source = "summary.authorName")
+    @Mapping(target = "category.id", source = "summary.categoryId")
+    @Mapping(target = "category.name", source = "summary.categoryName")
+    @Mapping(target = "tags", source = "tags")
+    PostSummaryDto toSummaryDto(PostSummary summary, Set<TagDto> tags);
+
      CreatePostRequest toCreatePostRequest(CreatePostRequestDto dto);
 
      UpdatePostRequest toUpdatePostRequest(UpdatePostRequestDto dto);
@@ -1,6 +1,7 @@
 package com.mehrdad.SafePost.mappers;
 
 import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.TagPostCount;
 import com.mehrdad.SafePost.domain.dtos.TagDto;
 import com.mehrdad.SafePost.domain.entities.Post;
 import com.mehrdad.SafePost.domain.entities.Tag;
@@ -20,6 +21,9 @@ public interface TagMapper {
     @Mapping(target = "postCount", source = "posts", qualifiedByName = "calculatePostCount")
     TagDto toTagResponse(Tag tag);
 
+    // the listing already comes with the count
+    TagDto toTagResponse(TagPostCount tag);
+
     @Named("calculatePostCount")
     default Integer calculatePostCount(Set<Post> posts) {
         if (posts == null) {
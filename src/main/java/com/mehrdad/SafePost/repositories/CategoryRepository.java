@@ -1,8 +1,11 @@
 package com.mehrdad.SafePost.repositories;
 
+import com.mehrdad.SafePost.domain.CategoryPostCount;
+import com.mehrdad.SafePost.domain.PostStatus;
 import com.mehrdad.SafePost.domain.entities.Category;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -11,8 +14,11 @@ import java.util.UUID;
 @Repository
 public interface CategoryRepository extends JpaRepository<Category, UUID> {
 
-    @Query("SELECT c FROM Category c LEFT JOIN FETCH c.posts")
-    List<Category> findAllWithPostCount();
+    // counted in one GROUP BY, no post is loaded
+    @Query("SELECT new com.mehrdad.SafePost.domain.CategoryPostCount(c.id, c.name, COUNT(p.id)) " +
+           "FROM Category c LEFT JOIN c.posts p ON p.status = :status " +
+           "GROUP BY c.id, c.name")
+    List<CategoryPostCount> findAllWithPostCount(@Param("status") PostStatus status);
 
     boolean existsByNameIgnoreCase(String name);
 }
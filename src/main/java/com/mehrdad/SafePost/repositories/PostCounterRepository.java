@@ -0,0 +1,155 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.LikeToggle;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.IntSupplier;
+
+// Set-based counter updates on the posts table (views and likes). These bypass the Post entity on purpose: the
+// database applies the delta atomically, so there is no read-modify-write race and no need to
+// load the (potentially large) post row into memory.
+@Repository
+@RequiredArgsConstructor
+public class PostCounterRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // one JDBC batch of "view_count = view_count + delta" statements, sent in a single round trip;
+    // all or nothing, so the caller can retry a failed batch without counting any view twice
+    @Transactional
+    public void addViewCounts(Map<UUID, Long> deltas) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((postId, delta) -> batchArgs.add(new Object[]{delta, postId}));
+
+        jdbcTemplate.batchUpdate("UPDATE posts SET view_count = view_count + ? WHERE id = ?", batchArgs);
+    }
+
+    // same as addViewCounts for hot posts: each delta lands in one of the post's counter shards
+    @Transactional
+    public void addViewCountsToShards(Map<UUID, Long> deltas, IntSupplier shardPicker) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+
+        List<Object[]> batchArgs = new ArrayList<>(deltas.size());
+        deltas.forEach((postId, delta) -> batchArgs.add(new Object[]{shardPicker.getAsInt(), delta, postId}));
+
+        // SELECT ... FROM posts skips posts deleted in the meantime instead of failing on the foreign key
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO post_counter_shards (post_id, shard, views_delta) " +
+                "SELECT p.id, ?, ? FROM posts p WHERE p.id = ? " +
+                "ON CONFLICT (post_id, shard) DO UPDATE SET views_delta = post_counter_shards.views_delta + EXCLUDED.views_delta",
+                batchArgs);
+    }
+
+    /*
+    Toggles a like in a single statement and round trip:
+      - "removed" deletes the user's like if there is one
+      - "added" inserts a like only when nothing was removed; ON CONFLICT covers a concurrent toggle
+        that inserted the same like first (uk_post_user_like)
+      - the outer UPDATE applies the net delta of both to likes_count and returns the new value
+
+    All parts share one snapshot, so "added" cannot see the row "removed" just deleted; that is why
+    the insert is guarded by NOT EXISTS (SELECT 1 FROM removed) instead of relying on the conflict.
+    The user likes the post afterwards whenever nothing was removed, even if the insert lost the race.
+    Returns empty when the post does not exist.
+    */
+    public Optional<LikeToggle> toggleLike(UUID postId, UUID userId) {
+        List<LikeToggle> result = jdbcTemplate.query(
+                "WITH removed AS (" +
+                "    DELETE FROM post_likes WHERE post_id = ? AND user_id = ? RETURNING 1" +
+                "), added AS (" +
+                "    INSERT INTO post_likes (id, post_id, user_id, created_at) " +
+                "    SELECT gen_random_uuid(), p.id, ?, CURRENT_TIMESTAMP FROM posts p " +
+                "    WHERE p.id = ? AND NOT EXISTS (SELECT 1 FROM removed) " +
+                "    ON CONFLICT ON CONSTRAINT uk_post_user_like DO NOTHING RETURNING 1" +
+                ") " +
+                "UPDATE posts SET likes_count = GREATEST(likes_count " +
+                "    + (SELECT COUNT(*) FROM added) - (SELECT COUNT(*) FROM removed), 0) " +
+                "WHERE id = ? " +
+                "RETURNING likes_count, NOT EXISTS (SELECT 1 FROM removed) AS liked",
+                (rs, rowNum) -> new LikeToggle(rs.getBoolean("liked"), rs.getInt("likes_count")),
+                postId, userId, userId, postId, postId);
+        return result.stream().findFirst();
+    }
+
+    /*
+    toggleLike for hot posts. The like row itself is handled the same way, but the net delta is added
+    to the given counter shard instead of posts.likes_count, so concurrent togglers of a viral post
+    only contend when they pick the same shard. The returned count includes the unfolded shards.
+    */
+    public Optional<LikeToggle> toggleLikeInShard(UUID postId, UUID userId, int shard) {
+        List<Boolean> liked = jdbcTemplate.query(
+                "WITH removed AS (" +
+                "    DELETE FROM post_likes WHERE post_id = ? AND user_id = ? RETURNING 1" +
+                "), added AS (" +
+                "    INSERT INTO post_likes (id, post_id, user_id, created_at) " +
+                "    SELECT gen_random_uuid(), p.id, ?, CURRENT_TIMESTAMP FROM posts p " +
+                "    WHERE p.id = ? AND NOT EXISTS (SELECT 1 FROM removed) " +
+                "    ON CONFLICT ON CONSTRAINT uk_post_user_like DO NOTHING RETURNING 1" +
+                ") " +
+                "INSERT INTO post_counter_shards (post_id, shard, likes_delta) " +
+                "SELECT p.id, ?, (SELECT COUNT(*) FROM added) - (SELECT COUNT(*) FROM removed) FROM posts p WHERE p.id = ? " +
+                "ON CONFLICT (post_id, shard) DO UPDATE SET likes_delta = post_counter_shards.likes_delta + EXCLUDED.likes_delta " +
+                "RETURNING NOT EXISTS (SELECT 1 FROM removed) AS liked",
+                (rs, rowNum) -> rs.getBoolean("liked"),
+                postId, userId, userId, postId, shard, postId);
+        if (liked.isEmpty()) {
+            return Optional.empty();
+        }
+        // a separate statement, so it sees the shard row written above
+        return countLikesWithShards(postId).map(likesCount -> new LikeToggle(liked.get(0), likesCount));
+    }
+
+    // posts.likes_count plus the deltas still waiting in its counter shards
+    public Optional<Integer> countLikesWithShards(UUID postId) {
+        return jdbcTemplate.query(
+                "SELECT GREATEST(p.likes_count + COALESCE((SELECT SUM(s.likes_delta) FROM post_counter_shards s " +
+                "WHERE s.post_id = p.id), 0), 0) FROM posts p WHERE p.id = ?",
+                (rs, rowNum) -> rs.getInt(1),
+                postId).stream().findFirst();
+    }
+
+    /*
+    Moves every pending shard delta into posts in one statement: the shard rows are deleted and their
+    sums applied to the posts they belong to. Writers that arrive meanwhile wait for the delete and
+    then start fresh shard rows, which the next fold picks up. Returns the number of posts updated.
+    */
+    public int foldCounterShards() {
+        return jdbcTemplate.update(
+                "WITH folded AS (" +
+                "    DELETE FROM post_counter_shards RETURNING post_id, likes_delta, views_delta" +
+                "), totals AS (" +
+                "    SELECT post_id, SUM(likes_delta) AS likes, SUM(views_delta) AS views FROM folded GROUP BY post_id" +
+                ") " +
+                "UPDATE posts p SET likes_count = GREATEST(p.likes_count + t.likes, 0), view_count = p.view_count + t.views " +
+                "FROM totals t WHERE p.id = t.post_id");
+    }
+
+    public Set<UUID> findHotPostIds() {
+        return new HashSet<>(jdbcTemplate.queryForList("SELECT id FROM posts WHERE hot", UUID.class));
+    }
+
+    public void setHot(Collection<UUID> postIds, boolean hot) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("UPDATE posts SET hot = ? WHERE id = ?",
+                postIds.stream().map(postId -> new Object[]{hot, postId}).toList());
+    }
+}
@@ -0,0 +1,115 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.PostDocument;
+import com.mehrdad.SafePost.domain.PostStatus;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+// Reads published posts as plain search documents for the in-process search index, in portable SQL
+@Repository
+@RequiredArgsConstructor
+public class PostDocumentRepository {
+
+    // indexes that only look at titles and tags leave out the content, by far the largest column
+    private static final String DOCUMENT_SELECT =
+            "SELECT p.id, p.title, %s AS content, p.category_id, u.name AS author_name " +
+            "FROM posts p JOIN users u ON u.id = p.author_id " +
+            "WHERE p.status = ? ";
+
+    private static final String TAG_SELECT =
+            "SELECT pt.\"post-id\" AS post_id, t.id AS tag_id, t.name AS tag_name " +
+            "FROM \"post-tags\" pt JOIN tags t ON t.id = pt.\"tag-id\" ";
+
+    private static final int FETCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /*
+    Streams every published post to the consumer in batches of batchSize documents, with a null
+    content unless withContent is set.
+    The posts are read through a server-side cursor (which needs the read-only transaction),
+    so memory use stays bounded by the batch size no matter how many posts there are.
+    */
+    @Transactional(readOnly = true)
+    public void streamPublishedDocuments(int batchSize, boolean withContent, Consumer<List<PostDocument>> batchConsumer) {
+        Map<UUID, TagList> tagsByPost = new HashMap<>();
+        jdbcTemplate.query(TAG_SELECT, (RowCallbackHandler) rs -> tagsByPost
+                .computeIfAbsent(rs.getObject("post_id", UUID.class), id -> new TagList())
+                .add(rs.getObject("tag_id", UUID.class), rs.getString("tag_name")));
+
+        List<PostDocument> batch = new ArrayList<>(batchSize);
+        jdbcTemplate.query(
+                connection -> {
+                    PreparedStatement statement = connection.prepareStatement(documentSelect(withContent));
+                    statement.setString(1, PostStatus.PUBLISHED.name());
+                    statement.setFetchSize(FETCH_SIZE);
+                    return statement;
+                },
+                (RowCallbackHandler) rs -> {
+                    batch.add(toDocument(rs, tagsByPost.getOrDefault(rs.getObject("id", UUID.class), new TagList())));
+                    if (batch.size() == batchSize) {
+                        batchConsumer.accept(List.copyOf(batch));
+                        batch.clear();
+                    }
+                });
+        if (!batch.isEmpty()) {
+            batchConsumer.accept(List.copyOf(batch));
+        }
+    }
+
+    // Empty when the post does not exist or is not published. Runs in its own transaction because it
+    // is called after the writing transaction has committed.
+    @Transactional(readOnly = true, propagation = Propagation.REQUIRES_NEW)
+    public Optional<PostDocument> findPublishedDocument(UUID postId, boolean withContent) {
+        TagList tags = new TagList();
+        jdbcTemplate.query(TAG_SELECT + "WHERE pt.\"post-id\" = ?",
+                (RowCallbackHandler) rs -> tags.add(rs.getObject("tag_id", UUID.class), rs.getString("tag_name")),
+                postId);
+
+        return jdbcTemplate.query(documentSelect(withContent) + "AND p.id = ?",
+                (rs, rowNum) -> toDocument(rs, tags),
+                PostStatus.PUBLISHED.name(), postId).stream().findFirst();
+    }
+
+    private static String documentSelect(boolean withContent) {
+        return DOCUMENT_SELECT.formatted(withContent ? "p.content" : "NULL");
+    }
+
+    private static PostDocument toDocument(ResultSet rs, TagList tags) throws SQLException {
+        return new PostDocument(
+                rs.getObject("id", UUID.class),
+                rs.getString("title"),
+                rs.getString("content"),
+                rs.getString("author_name"),
+                rs.getObject("category_id", UUID.class),
+                tags.ids,
+                tags.names);
+    }
+
+    private static final class TagList {
+        private final Set<UUID> ids = new LinkedHashSet<>();
+        private final List<String> names = new ArrayList<>();
+
+        void add(UUID id, String name) {
+            ids.add(id);
+            names.add(name);
+        }
+    }
+}
@@ -1,20 +1,22 @@
 package com.mehrdad.SafePost.repositories;
 
-import com.mehrdad.SafePost.domain.entities.Post;
 import com.mehrdad.SafePost.domain.entities.PostLike;
-import com.mehrdad.SafePost.domain.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 @Repository
 public interface PostLikeRepository extends JpaRepository<PostLike, UUID> {
 
-    Optional<PostLike> findByPostAndUser(Post post, User user);
+    // resolved on the foreign key columns, so neither the post nor the user has to be loaded
+    boolean existsByPostIdAndUserId(UUID postId, UUID userId);
 
-    boolean existsByPostAndUser(Post post, User user);
-
-    void deleteByPostAndUser(Post post, User user);
+    // one lookup on the user's likes (idx_post_likes_user_id) for a whole page of posts
+    @Query("SELECT pl.post.id FROM PostLike pl WHERE pl.user.id = :userId AND pl.post.id IN :postIds")
+    Set<UUID> findLikedPostIds(@Param("userId") UUID userId, @Param("postIds") Collection<UUID> postIds);
 }
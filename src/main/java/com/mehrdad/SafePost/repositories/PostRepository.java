@@ -1,55 +1,109 @@
 package com.mehrdad.SafePost.repositories;
 
 import com.mehrdad.SafePost.domain.PostStatus;
-import com.mehrdad.SafePost.domain.entities.Category;
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.PostTagRow;
 import com.mehrdad.SafePost.domain.entities.Post;
-import com.mehrdad.SafePost.domain.entities.Tag;
-import com.mehrdad.SafePost.domain.entities.User;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 @Repository
 public interface PostRepository extends JpaRepository<Post, UUID> {
-    // we need the post status because we only need the published posts
-    // the name of the function is by convention so that the spring data JpaRepository can implement it for us.
-    List<Post> findAllByStatusAndCategoryAndTagsContaining(PostStatus status, Category category, Tag tag);
-    List<Post> findAllByStatusAndCategory(PostStatus status, Category category);
-    List<Post> findAllByStatusAndTagsContaining(PostStatus status, Tag tag);
-    List<Post> findAllByStatus(PostStatus status);
-    List<Post> findALlByAuthorAndStatus(User author, PostStatus status);
-
-    // Search methods for full-text search
-    @Query("SELECT DISTINCT p FROM Post p " +
-           "LEFT JOIN p.author a " +
-           "WHERE p.status = :status AND " +
-           "(LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(a.name) LIKE LOWER(CONCAT('%', :query, '%')))")
-    List<Post> searchPosts(@Param("query") String query, @Param("status") PostStatus status);
 
-    @Query("SELECT DISTINCT p FROM Post p " +
-           "LEFT JOIN p.author a " +
-           "WHERE p.status = :status AND p.category.id = :categoryId AND " +
-           "(LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(a.name) LIKE LOWER(CONCAT('%', :query, '%')))")
-    List<Post> searchPostsByCategory(@Param("query") String query,
+    // Selects everything a post card needs except the tags, without ever touching p.content
+    String SUMMARY_SELECT = "SELECT new com.mehrdad.SafePost.domain.PostSummary(" +
+            "p.id, p.title, p.excerpt, p.readingTime, p.viewCount, p.likesCount, p.coverImageUrl, " +
+            "p.createdAt, p.updatedAt, p.status, a.id, a.name, c.id, c.name) " +
+            "FROM Post p JOIN p.author a JOIN p.category c ";
+
+    // Fetch plan for the single-post endpoints: the mapper needs author, category and tags, so load
+    // them in the same statement instead of three lazy round trips after the transaction has ended.
+    @EntityGraph(attributePaths = {"author", "category", "tags"})
+    Optional<Post> findWithDetailsById(UUID id);
+
+    long countByAuthorId(UUID authorId);
+
+    // guards for deleting a category or tag: one indexed lookup that stops at the first post
+    boolean existsByCategoryId(UUID categoryId);
+
+    boolean existsByTagsId(UUID tagId);
+
+    @Query("SELECT p.likesCount FROM Post p WHERE p.id = :id")
+    Optional<Integer> findLikesCountById(@Param("id") UUID id);
+
+    @Query(SUMMARY_SELECT +
+           "WHERE a.id = :authorId AND p.status = :status " +
+           "ORDER BY p.updatedAt DESC, p.id DESC")
+    List<PostSummary> findSummariesByAuthorAndStatus(@Param("authorId") UUID authorId,
+                                                     @Param("status") PostStatus status);
+
+    // tags of a whole page of posts in one query instead of one lazy load per post
+    @Query("SELECT new com.mehrdad.SafePost.domain.PostTagRow(p.id, t.id, t.name) " +
+           "FROM Post p JOIN p.tags t WHERE p.id IN :postIds")
+    List<PostTagRow> findTagsByPostIds(@Param("postIds") Collection<UUID> postIds);
+
+    // Keyset pagination over (createdAt DESC, id DESC): each page starts strictly after the cursor
+    // row, so page N costs the same index range scan as page 1 instead of an ever-growing OFFSET.
+    // The category filter is optional, a null value simply disables it. The tag filter asks for posts
+    // carrying at least requiredTags of tagIds (see TagFilter), 0 disables it.
+    @Query(SUMMARY_SELECT +
+           "WHERE p.status = :status " +
+           "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
+           "AND (:requiredTags = 0 OR (SELECT COUNT(t) FROM p.tags t WHERE t.id IN :tagIds) >= :requiredTags) " +
+           "AND (p.createdAt < :cursorCreatedAt OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> findSummaryPage(@Param("status") PostStatus status,
                                       @Param("categoryId") UUID categoryId,
-                                      @Param("status") PostStatus status);
+                                      @Param("tagIds") Collection<UUID> tagIds,
+                                      @Param("requiredTags") int requiredTags,
+                                      @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                      @Param("cursorId") UUID cursorId,
+                                      Limit limit);
+
+    // second phase of ranked search: summaries for the ids the search engine picked (in no particular order)
+    @Query(SUMMARY_SELECT + "WHERE p.id IN :ids")
+    List<PostSummary> findSummariesByIds(@Param("ids") Collection<UUID> ids);
+
+    // findSummariesByIds in the order of the given ids, leaving out posts that no longer exist
+    default List<PostSummary> findSummariesInOrder(List<UUID> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<UUID, PostSummary> summaries = findSummariesByIds(ids).stream()
+                .collect(Collectors.toMap(PostSummary::id, Function.identity()));
+        return ids.stream().map(summaries::get).filter(Objects::nonNull).toList();
+    }
 
-    @Query("SELECT DISTINCT p FROM Post p " +
-           "LEFT JOIN p.author a " +
-           "LEFT JOIN p.tags t " +
-           "WHERE p.status = :status AND t.id = :tagId AND " +
-           "(LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
+    // Substring search for databases without full-text support, paginated the same way as findSummaryPage
+    @Query(SUMMARY_SELECT +
+           "WHERE p.status = :status " +
+           "AND (:categoryId IS NULL OR p.category.id = :categoryId) " +
+           "AND (:requiredTags = 0 OR (SELECT COUNT(t) FROM p.tags t WHERE t.id IN :tagIds) >= :requiredTags) " +
+           "AND (LOWER(p.title) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
            "LOWER(p.content) LIKE LOWER(CONCAT('%', :query, '%')) OR " +
-           "LOWER(a.name) LIKE LOWER(CONCAT('%', :query, '%')))")
-    List<Post> searchPostsByTag(@Param("query") String query,
-                                 @Param("tagId") UUID tagId,
-                                 @Param("status") PostStatus status);
+           "LOWER(a.name) LIKE LOWER(CONCAT('%', :query, '%'))) " +
+           "AND (p.createdAt < :cursorCreatedAt OR (p.createdAt = :cursorCreatedAt AND p.id < :cursorId)) " +
+           "ORDER BY p.createdAt DESC, p.id DESC")
+    List<PostSummary> searchSummaryPage(@Param("query") String query,
+                                        @Param("status") PostStatus status,
+                                        @Param("categoryId") UUID categoryId,
+                                        @Param("tagIds") Collection<UUID> tagIds,
+                                        @Param("requiredTags") int requiredTags,
+                                        @Param("cursorCreatedAt") LocalDateTime cursorCreatedAt,
+                                        @Param("cursorId") UUID cursorId,
+                                        Limit limit);
 }
@@ -0,0 +1,95 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Types;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+// PostgreSQL full-text search over posts.search_vector (see V12__add_post_search_vector.sql)
+@Repository
+@RequiredArgsConstructor
+public class PostSearchRepository {
+
+    // The weighted document of a post, evaluated against the posts row "p". Markup is stripped from the
+    // content so tag and attribute names do not become search terms. It only reads the post and its tags,
+    // which are re-indexed whenever they change, so no other write can leave it stale.
+    private static final String SEARCH_DOCUMENT =
+            "setweight(to_tsvector('english', coalesce(p.title, '')), 'A') || " +
+            "setweight(to_tsvector('english', coalesce((SELECT string_agg(t.name, ' ') FROM \"post-tags\" pt " +
+            "    JOIN tags t ON t.id = pt.\"tag-id\" WHERE pt.\"post-id\" = p.id), '')), 'B') || " +
+            "setweight(to_tsvector('english', coalesce(regexp_replace(p.content, '<[^>]*>', ' ', 'g'), '')), 'C')";
+
+    // rank normalisation 1 divides by 1 + log(document length), so long posts do not win on size alone
+    private static final String RANK = "ts_rank_cd(p.search_vector, q.query, 1)";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /*
+    One page of matches for a websearch-style query ("quoted phrases", -excluded, or), best first.
+    Paginated by keyset on (rank, id) like the post list, so deep pages cost the same as the first.
+    Only ids and ranks are returned; the caller loads the summaries for them in a second query.
+    */
+    public List<RankedPostId> findRankedPostIds(String query, PostStatus status, UUID categoryId, TagFilter tags,
+                                                SearchCursor cursor, int limit) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("query", query)
+                .addValue("status", status.name())
+                .addValue("categoryId", categoryId, Types.OTHER)
+                .addValue("tagIds", tags.tagIds())
+                .addValue("requiredTags", tags.requiredMatches())
+                .addValue("rank", cursor.rank())
+                .addValue("cursorId", cursor.id())
+                .addValue("limit", limit);
+
+        return jdbcTemplate.query(
+                "SELECT p.id, " + RANK + " AS rank " +
+                "FROM posts p CROSS JOIN websearch_to_tsquery('english', :query) AS q(query) " +
+                "WHERE p.search_vector @@ q.query " +
+                "AND p.status = :status " +
+                "AND (CAST(:categoryId AS uuid) IS NULL OR p.category_id = CAST(:categoryId AS uuid)) " +
+                tagCondition(tags) +
+                "AND (" + RANK + " < CAST(:rank AS real) " +
+                "    OR (" + RANK + " = CAST(:rank AS real) AND p.id < :cursorId)) " +
+                "ORDER BY rank DESC, p.id DESC " +
+                "LIMIT :limit",
+                params,
+                (rs, rowNum) -> new RankedPostId(rs.getObject("id", UUID.class), rs.getFloat("rank")));
+    }
+
+    // posts carrying at least requiredMatches of the tags; left out entirely without a filter, as IN () is not valid SQL
+    private static String tagCondition(TagFilter tags) {
+        if (tags.isEmpty()) {
+            return "";
+        }
+        return "AND (SELECT count(*) FROM \"post-tags\" pt " +
+               "    WHERE pt.\"post-id\" = p.id AND pt.\"tag-id\" IN (:tagIds)) >= :requiredTags ";
+    }
+
+    // recompute the search documents of the given posts from their current title, tags and content
+    public void refreshSearchVectors(Collection<UUID> postIds) {
+        if (postIds.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.update(
+                "UPDATE posts p SET search_vector = " + SEARCH_DOCUMENT + " " +
+                "WHERE p.id IN (:postIds)",
+                new MapSqlParameterSource("postIds", postIds));
+    }
+
+    // index up to batchSize posts that have no search document yet; returns how many were indexed
+    public int indexMissingSearchVectors(int batchSize) {
+        return jdbcTemplate.update(
+                "UPDATE posts p SET search_vector = " + SEARCH_DOCUMENT + " " +
+                "WHERE p.id IN (SELECT id FROM posts WHERE search_vector IS NULL LIMIT :batchSize)",
+                new MapSqlParameterSource("batchSize", batchSize));
+    }
+}
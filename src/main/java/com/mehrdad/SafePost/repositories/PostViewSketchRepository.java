@@ -0,0 +1,105 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.util.HyperLogLog;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+// Persistence of the per-post unique viewer sketches (see HyperLogLog).
+// Each post has one row per day bucket ("2025-01-31") plus an all-time row ("all").
+@Repository
+@RequiredArgsConstructor
+public class PostViewSketchRepository {
+
+    public static final String ALL_TIME_BUCKET = "all";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    /*
+    Merges the buffered sketches into the stored day and all-time sketches and refreshes
+    posts.unique_viewers from the all-time estimate.
+
+    Sketches can only be merged in Java, so the stored rows are locked while merging: missing rows
+    are first created empty, then all of them are read FOR UPDATE. This keeps merges from several
+    application instances from overwriting each other.
+    */
+    @Transactional
+    public void mergeSketches(Map<UUID, HyperLogLog> pending, String dayBucket) {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<String> buckets = List.of(ALL_TIME_BUCKET, dayBucket);
+        byte[] emptySketch = new HyperLogLog().toBytes();
+
+        List<MapSqlParameterSource> placeholders = new ArrayList<>();
+        for (UUID postId : pending.keySet()) {
+            for (String bucket : buckets) {
+                placeholders.add(new MapSqlParameterSource()
+                        .addValue("postId", postId)
+                        .addValue("bucket", bucket)
+                        .addValue("sketch", emptySketch));
+            }
+        }
+        // skip posts that were deleted in the meantime instead of failing the whole batch on the foreign key
+        jdbcTemplate.batchUpdate(
+                "INSERT INTO post_view_sketches (post_id, bucket, sketch) " +
+                "SELECT :postId, :bucket, :sketch WHERE EXISTS (SELECT 1 FROM posts WHERE id = :postId) " +
+                "ON CONFLICT (post_id, bucket) DO NOTHING",
+                placeholders.toArray(MapSqlParameterSource[]::new));
+
+        Map<UUID, Map<String, HyperLogLog>> stored = new HashMap<>();
+        jdbcTemplate.query(
+                "SELECT post_id, bucket, sketch FROM post_view_sketches " +
+                "WHERE post_id IN (:postIds) AND bucket IN (:buckets) " +
+                "ORDER BY post_id, bucket FOR UPDATE",
+                new MapSqlParameterSource()
+                        .addValue("postIds", pending.keySet())
+                        .addValue("buckets", buckets),
+                rs -> {
+                    stored.computeIfAbsent(rs.getObject("post_id", UUID.class), id -> new HashMap<>())
+                            .put(rs.getString("bucket"), HyperLogLog.fromBytes(rs.getBytes("sketch")));
+                });
+
+        List<MapSqlParameterSource> sketchUpdates = new ArrayList<>();
+        List<MapSqlParameterSource> estimateUpdates = new ArrayList<>();
+        stored.forEach((postId, sketches) -> {
+            HyperLogLog viewers = pending.get(postId);
+            sketches.forEach((bucket, sketch) -> {
+                sketch.merge(viewers);
+                sketchUpdates.add(new MapSqlParameterSource()
+                        .addValue("postId", postId)
+                        .addValue("bucket", bucket)
+                        .addValue("sketch", sketch.toBytes()));
+            });
+            estimateUpdates.add(new MapSqlParameterSource()
+                    .addValue("postId", postId)
+                    .addValue("uniqueViewers", (int) sketches.get(ALL_TIME_BUCKET).estimate()));
+        });
+
+        jdbcTemplate.batchUpdate(
+                "UPDATE post_view_sketches SET sketch = :sketch, updated_at = CURRENT_TIMESTAMP " +
+                "WHERE post_id = :postId AND bucket = :bucket",
+                sketchUpdates.toArray(MapSqlParameterSource[]::new));
+        jdbcTemplate.batchUpdate(
+                "UPDATE posts SET unique_viewers = :uniqueViewers WHERE id = :postId",
+                estimateUpdates.toArray(MapSqlParameterSource[]::new));
+    }
+
+    // day buckets are only kept for a retention window, the all-time sketch is kept forever
+    public int deleteDayBucketsBefore(String oldestDayBucket) {
+        return jdbcTemplate.update(
+                "DELETE FROM post_view_sketches WHERE bucket <> :allTime AND bucket < :oldest",
+                new MapSqlParameterSource()
+                        .addValue("allTime", ALL_TIME_BUCKET)
+                        .addValue("oldest", oldestDayBucket));
+    }
+}
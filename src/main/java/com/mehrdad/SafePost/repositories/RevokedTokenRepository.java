@@ -0,0 +1,27 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.entities.RevokedToken;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface RevokedTokenRepository extends JpaRepository<RevokedToken, UUID> {
+
+    @Query("SELECT rt.jti FROM RevokedToken rt WHERE rt.expiresAt > :now")
+    List<UUID> findActiveJtis(@Param("now") LocalDateTime now);
+
+    boolean existsByJtiAndExpiresAtAfter(UUID jti, LocalDateTime now);
+
+    @Transactional
+    @Modifying
+    @Query("DELETE FROM RevokedToken rt WHERE rt.expiresAt <= :now")
+    int deleteExpired(@Param("now") LocalDateTime now);
+}
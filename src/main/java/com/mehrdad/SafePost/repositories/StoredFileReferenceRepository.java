@@ -0,0 +1,16 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.entities.StoredFileReference;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StoredFileReferenceRepository extends JpaRepository<StoredFileReference, UUID> {
+
+    Optional<StoredFileReference> findByStoredFileIdAndOwnerId(UUID storedFileId, UUID ownerId);
+
+    boolean existsByStoredFileId(UUID storedFileId);
+}
@@ -0,0 +1,23 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.entities.StoredFile;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface StoredFileRepository extends JpaRepository<StoredFile, UUID> {
+
+    Optional<StoredFile> findByDirectoryAndFilename(String directory, String filename);
+
+    // the row lock serializes adding and releasing references of one file, and removing it with the last
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT sf FROM StoredFile sf WHERE sf.directory = :directory AND sf.filename = :filename")
+    Optional<StoredFile> findForUpdate(@Param("directory") String directory, @Param("filename") String filename);
+}
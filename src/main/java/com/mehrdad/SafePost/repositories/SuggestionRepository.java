@@ -0,0 +1,115 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.util.SuggestionTrie;
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+/*
+Everything search suggestions can complete to, with its weight.
+
+A post weighs its engagement, likes * LIKE_WEIGHT + views. Tags, categories and authors weigh the
+engagement of their published posts plus one per post, so a name used by many quiet posts still
+ranks above an unused one. Authors are only suggested once they have published something.
+*/
+@Repository
+@RequiredArgsConstructor
+public class SuggestionRepository {
+
+    // one like says about as much about a post as ten views
+    private static final int LIKE_WEIGHT = 10;
+
+    private static final int MAX_IDS_PER_QUERY = 1000;
+
+    private static final String ENGAGEMENT = "(p.likes_count * " + LIKE_WEIGHT + " + p.view_count + 1)";
+
+    private static final String POSTS =
+            "SELECT p.id, p.title AS text, " + ENGAGEMENT + " - 1 AS weight FROM posts p WHERE p.status = :published";
+
+    private static final String TAGS =
+            "SELECT t.id, t.name AS text, COALESCE(SUM(" + ENGAGEMENT + "), 0) AS weight " +
+            "FROM tags t LEFT JOIN \"post-tags\" pt ON pt.\"tag-id\" = t.id " +
+            "LEFT JOIN posts p ON p.id = pt.\"post-id\" AND p.status = :published";
+
+    private static final String CATEGORIES =
+            "SELECT c.id, c.name AS text, COALESCE(SUM(" + ENGAGEMENT + "), 0) AS weight " +
+            "FROM categories c LEFT JOIN posts p ON p.category_id = c.id AND p.status = :published";
+
+    private static final String AUTHORS =
+            "SELECT u.id, u.name AS text, SUM(" + ENGAGEMENT + ") AS weight " +
+            "FROM users u JOIN posts p ON p.author_id = u.id AND p.status = :published";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public List<SuggestionTrie.Entry> findAll() {
+        List<SuggestionTrie.Entry> entries = new ArrayList<>();
+        entries.addAll(query(ContentType.POST, POSTS, null));
+        entries.addAll(query(ContentType.TAG, TAGS + " GROUP BY t.id, t.name", null));
+        entries.addAll(query(ContentType.CATEGORY, CATEGORIES + " GROUP BY c.id, c.name", null));
+        entries.addAll(query(ContentType.AUTHOR, AUTHORS + " GROUP BY u.id, u.name", null));
+        return entries;
+    }
+
+    // the current entries of the given items, without those that no longer exist or are not suggestable (e.g. drafts)
+    public List<SuggestionTrie.Entry> find(ContentType type, Collection<UUID> ids) {
+        List<UUID> idList = List.copyOf(ids);
+        List<SuggestionTrie.Entry> entries = new ArrayList<>();
+        // chunked, the driver allows only so many bind parameters per statement
+        for (int from = 0; from < idList.size(); from += MAX_IDS_PER_QUERY) {
+            List<UUID> chunk = idList.subList(from, Math.min(from + MAX_IDS_PER_QUERY, idList.size()));
+            entries.addAll(switch (type) {
+                case POST -> query(type, POSTS + " AND p.id IN (:ids)", chunk);
+                case TAG -> query(type, TAGS + " WHERE t.id IN (:ids) GROUP BY t.id, t.name", chunk);
+                case CATEGORY -> query(type, CATEGORIES + " WHERE c.id IN (:ids) GROUP BY c.id, c.name", chunk);
+                case AUTHOR -> query(type, AUTHORS + " WHERE u.id IN (:ids) GROUP BY u.id, u.name", chunk);
+            });
+        }
+        return entries;
+    }
+
+    // the author, category and tags of a post, whose weights change with it
+    public List<SuggestionTrie.Entry> findRelatedToPost(UUID postId) {
+        MapSqlParameterSource params = new MapSqlParameterSource("postId", postId);
+        List<UUID> authorAndCategory = jdbcTemplate.query(
+                "SELECT author_id, category_id FROM posts WHERE id = :postId", params,
+                (rs, rowNum) -> List.of(rs.getObject("author_id", UUID.class), rs.getObject("category_id", UUID.class)))
+                .stream().findFirst().orElse(List.of());
+        if (authorAndCategory.isEmpty()) {
+            return List.of();
+        }
+        List<UUID> tagIds = jdbcTemplate.queryForList(
+                "SELECT \"tag-id\" FROM \"post-tags\" WHERE \"post-id\" = :postId", params, UUID.class);
+
+        List<SuggestionTrie.Entry> entries = new ArrayList<>();
+        entries.addAll(query(ContentType.AUTHOR, AUTHORS + " WHERE u.id IN (:ids) GROUP BY u.id, u.name",
+                List.of(authorAndCategory.get(0))));
+        entries.addAll(query(ContentType.CATEGORY, CATEGORIES + " WHERE c.id IN (:ids) GROUP BY c.id, c.name",
+                List.of(authorAndCategory.get(1))));
+        if (!tagIds.isEmpty()) {
+            entries.addAll(query(ContentType.TAG, TAGS + " WHERE t.id IN (:ids) GROUP BY t.id, t.name", tagIds));
+        }
+        return entries;
+    }
+
+    private List<SuggestionTrie.Entry> query(ContentType type, String sql, Collection<UUID> ids) {
+        MapSqlParameterSource params = new MapSqlParameterSource("published", PostStatus.PUBLISHED.name());
+        if (ids != null) {
+            params.addValue("ids", ids);
+        }
+        return jdbcTemplate.query(sql, params, entryMapper(type));
+    }
+
+    private static RowMapper<SuggestionTrie.Entry> entryMapper(ContentType type) {
+        return (rs, rowNum) -> new SuggestionTrie.Entry(
+                type, rs.getObject("id", UUID.class), rs.getString("text"), rs.getLong("weight"));
+    }
+}
@@ -1,20 +1,23 @@
 package com.mehrdad.SafePost.repositories;
 
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.TagPostCount;
 import com.mehrdad.SafePost.domain.entities.Tag;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
 import java.util.List;
-import java.util.Set;
 import java.util.UUID;
 
 @Repository
 public interface TagRepository extends JpaRepository<Tag, UUID> {
 
-    @Query("SELECT t FROM Tag t LEFT JOIN FETCH t.posts")
-    List<Tag> findAllWithPostCount();
-
-    List<Tag> findByNameIn(Set<String> names);
+    // counted in one GROUP BY over the join table, no post is loaded
+    @Query("SELECT new com.mehrdad.SafePost.domain.TagPostCount(t.id, t.name, COUNT(p.id)) " +
+           "FROM Tag t LEFT JOIN t.posts p ON p.status = :status " +
+           "GROUP BY t.id, t.name")
+    List<TagPostCount> findAllWithPostCount(@Param("status") PostStatus status);
 }
@@ -0,0 +1,178 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.entities.Tag;
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.PreparedStatement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+Creates missing tags and looks up existing ones by name in a single statement per chunk of names,
+instead of one SELECT plus one INSERT per tag through the entity. The names travel as one text[]
+parameter, so a chunk costs one round trip no matter how many names it holds.
+
+Other databases (H2 in the tests) get the same result from portable statements: one lookup per
+chunk and one MERGE per missing name.
+*/
+@Repository
+@RequiredArgsConstructor
+public class TagUpsertRepository {
+
+    private static final int CHUNK_SIZE = 10_000;
+
+    /*
+    "existing" finds the tags already there for each (lowercase) name, preferring an exact match when
+    an older tag differs only in case; the insert adds the rest. ON CONFLICT covers a concurrent
+    upsert that inserted the same name first: such a name is in neither part, because "existing"
+    reads the snapshot from before it, and is looked up again by a second statement.
+    */
+    private static final String UPSERT =
+            "WITH input(name) AS (SELECT DISTINCT unnest(CAST(? AS text[]))), " +
+            "existing AS (" +
+            "    SELECT DISTINCT ON (i.name) t.id, t.name, i.name AS input_name FROM input i " +
+            "    JOIN tags t ON LOWER(t.name) = i.name ORDER BY i.name, t.name = i.name DESC, t.id" +
+            "), inserted AS (" +
+            "    INSERT INTO tags (id, name) " +
+            "    SELECT gen_random_uuid(), i.name FROM input i " +
+            "    WHERE NOT EXISTS (SELECT 1 FROM existing e WHERE e.input_name = i.name) " +
+            "    ON CONFLICT (name) DO NOTHING RETURNING id, name" +
+            ") " +
+            "SELECT id, name, input_name, FALSE AS created FROM existing " +
+            "UNION ALL SELECT id, name, name, TRUE FROM inserted";
+
+    private static final String FIND =
+            "SELECT DISTINCT ON (i.name) t.id, t.name, i.name AS input_name, FALSE AS created " +
+            "FROM unnest(CAST(? AS text[])) AS i(name) " +
+            "JOIN tags t ON LOWER(t.name) = i.name ORDER BY i.name, t.name = i.name DESC, t.id";
+
+    private static final int PORTABLE_CHUNK_SIZE = 1000;
+
+    private static final String PORTABLE_FIND =
+            "SELECT id, name, LOWER(name) AS input_name FROM tags WHERE LOWER(name) IN (:names) ORDER BY id";
+
+    private static final String PORTABLE_INSERT =
+            "MERGE INTO tags t USING (VALUES (CAST(:id AS UUID), CAST(:name AS VARCHAR(255)))) AS s(id, name) " +
+            "ON t.name = s.name WHEN NOT MATCHED THEN INSERT (id, name) VALUES (s.id, s.name)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedParameterJdbcTemplate;
+    private volatile Boolean postgres;
+
+    public record UpsertedTag(Tag tag, boolean created) {
+    }
+
+    /*
+    Returns the tag for every name, keyed by name and in the order given. Names are expected to be
+    lowercase already; existing tags match regardless of their case.
+    */
+    public Map<String, UpsertedTag> upsertByName(List<String> names) {
+        boolean postgres = isPostgres();
+        int chunkSize = postgres ? CHUNK_SIZE : PORTABLE_CHUNK_SIZE;
+        Map<String, UpsertedTag> tags = new LinkedHashMap<>();
+        for (int from = 0; from < names.size(); from += chunkSize) {
+            List<String> chunk = names.subList(from, Math.min(from + chunkSize, names.size()));
+            Map<String, UpsertedTag> found = new LinkedHashMap<>();
+            if (postgres) {
+                run(UPSERT, chunk, found);
+                if (found.size() < new HashSet<>(chunk).size()) {
+                    // lost a race against another upsert of the same names, now committed
+                    run(FIND, chunk.stream().filter(name -> !found.containsKey(name)).toList(), found);
+                }
+            } else {
+                upsertPortably(chunk, found);
+            }
+            chunk.forEach(name -> {
+                UpsertedTag tag = found.get(name);
+                if (tag == null) {
+                    throw new IllegalStateException("Tag " + name + " was neither found nor created");
+                }
+                tags.put(name, tag);
+            });
+        }
+        return tags;
+    }
+
+    /*
+    Same result as UPSERT: existing tags are looked up first, preferring an exact match, and each
+    missing name is inserted unless a tag with that name appeared meanwhile. A name whose insert hits
+    the unique key of a concurrent upsert is looked up again once that has committed.
+    */
+    private void upsertPortably(List<String> names, Map<String, UpsertedTag> found) {
+        findPortably(names, found);
+
+        List<String> raced = new ArrayList<>();
+        for (String name : new LinkedHashSet<>(names)) {
+            if (found.containsKey(name)) {
+                continue;
+            }
+            UUID id = UUID.randomUUID();
+            try {
+                int inserted = namedParameterJdbcTemplate.update(PORTABLE_INSERT,
+                        new MapSqlParameterSource().addValue("id", id).addValue("name", name));
+                if (inserted == 1) {
+                    found.put(name, new UpsertedTag(tag(id, name), true));
+                    continue;
+                }
+            } catch (DuplicateKeyException e) {
+                // inserted by a concurrent upsert
+            }
+            raced.add(name);
+        }
+        if (!raced.isEmpty()) {
+            findPortably(raced, found);
+        }
+    }
+
+    private void findPortably(List<String> names, Map<String, UpsertedTag> found) {
+        namedParameterJdbcTemplate.query(PORTABLE_FIND, new MapSqlParameterSource("names", names), rs -> {
+            String name = rs.getString("input_name");
+            UpsertedTag current = found.get(name);
+            // rows come by id, so the first tag wins unless a later one matches the name exactly
+            if (current == null || !current.tag().getName().equals(name) && rs.getString("name").equals(name)) {
+                found.put(name, new UpsertedTag(tag(rs.getObject("id", UUID.class), rs.getString("name")), false));
+            }
+        });
+    }
+
+    private boolean isPostgres() {
+        if (postgres == null) {
+            postgres = jdbcTemplate.execute((ConnectionCallback<Boolean>) connection ->
+                    "PostgreSQL".equals(connection.getMetaData().getDatabaseProductName()));
+        }
+        return postgres;
+    }
+
+    private static Tag tag(UUID id, String name) {
+        return Tag.builder()
+                .id(id)
+                .name(name)
+                .posts(new HashSet<>())
+                .build();
+    }
+
+    private void run(String sql, List<String> names, Map<String, UpsertedTag> found) {
+        RowMapper<Void> collect = (rs, rowNum) -> {
+            Tag tag = tag(rs.getObject("id", UUID.class), rs.getString("name"));
+            found.put(rs.getString("input_name"), new UpsertedTag(tag, rs.getBoolean("created")));
+            return null;
+        };
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setArray(1, connection.createArrayOf("text", names.toArray()));
+            return statement;
+        }, collect);
+    }
+}
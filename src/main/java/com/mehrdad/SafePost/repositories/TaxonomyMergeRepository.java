@@ -0,0 +1,53 @@
+package com.mehrdad.SafePost.repositories;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+// Set-based re-pointing of posts from one tag or category to another. Like PostCounterRepository, these
+// bypass the Post entity: each step is one statement, however many posts the tag or category has.
+@Repository
+@RequiredArgsConstructor
+public class TaxonomyMergeRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<UUID> findPostIdsWithTag(UUID tagId) {
+        return jdbcTemplate.queryForList("SELECT \"post-id\" FROM \"post-tags\" WHERE \"tag-id\" = ?", UUID.class, tagId);
+    }
+
+    public List<UUID> findPostIdsInCategory(UUID categoryId) {
+        return jdbcTemplate.queryForList("SELECT id FROM posts WHERE category_id = ?", UUID.class, categoryId);
+    }
+
+    public Set<UUID> findCategoryIdsOfPostsWithTag(UUID tagId) {
+        return new HashSet<>(jdbcTemplate.queryForList(
+                "SELECT DISTINCT p.category_id FROM posts p JOIN \"post-tags\" pt ON pt.\"post-id\" = p.id " +
+                "WHERE pt.\"tag-id\" = ?", UUID.class, tagId));
+    }
+
+    /*
+    Gives every post tagged sourceId the tag targetId instead; a post that already has both keeps a single
+    targetId row. Returns the number of posts that gained targetId.
+    */
+    public int moveTag(UUID sourceId, UUID targetId) {
+        int added = jdbcTemplate.update(
+                "INSERT INTO \"post-tags\" (\"post-id\", \"tag-id\") " +
+                "SELECT pt.\"post-id\", ? FROM \"post-tags\" pt WHERE pt.\"tag-id\" = ? " +
+                "AND NOT EXISTS (SELECT 1 FROM \"post-tags\" t " +
+                "    WHERE t.\"post-id\" = pt.\"post-id\" AND t.\"tag-id\" = ?)",
+                targetId, sourceId, targetId);
+        jdbcTemplate.update("DELETE FROM \"post-tags\" WHERE \"tag-id\" = ?", sourceId);
+        return added;
+    }
+
+    // returns the number of posts moved
+    public int moveCategory(UUID sourceId, UUID targetId) {
+        return jdbcTemplate.update("UPDATE posts SET category_id = ? WHERE category_id = ?", targetId, sourceId);
+    }
+}
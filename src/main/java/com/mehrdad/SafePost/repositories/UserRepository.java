@@ -1,7 +1,10 @@
 package com.mehrdad.SafePost.repositories;
 
+import com.mehrdad.SafePost.domain.UserAuthState;
 import com.mehrdad.SafePost.domain.entities.User;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
@@ -11,4 +14,8 @@ import java.util.UUID;
 public interface UserRepository extends JpaRepository<User, UUID> {
 
     Optional<User> findByEmail(String email);
+
+    // what a token is checked against, without loading the user
+    @Query("SELECT new com.mehrdad.SafePost.domain.UserAuthState(u.role, u.tokenVersion) FROM User u WHERE u.id = :id")
+    Optional<UserAuthState> findAuthStateById(@Param("id") UUID id);
 }
@@ -1,6 +1,7 @@
 package com.mehrdad.SafePost.security;
 
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.domain.enums.Role;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import org.springframework.security.core.GrantedAuthority;
@@ -19,6 +20,11 @@ public class BlogUserDetails implements UserDetails {
 
     private final User user;
 
+    // the principal of a request authenticated by a JWT: only id, email and role are known, there is no password
+    public static BlogUserDetails fromClaims(UUID id, String email, Role role) {
+        return new BlogUserDetails(User.builder().id(id).email(email).role(role).build());
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return List.of(new SimpleGrantedAuthority(user.getRole().getAuthority()));
@@ -0,0 +1,133 @@
+package com.mehrdad.SafePost.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mehrdad.SafePost.config.RateLimitProperties;
+import com.mehrdad.SafePost.domain.dtos.ApiErrorResponse;
+import com.mehrdad.SafePost.util.TokenBucket;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.server.PathContainer;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+Throttles the routes listed in rate-limit.policies with one token bucket per route and client,
+answering 429 with Retry-After once a client has used up its bucket.
+
+Runs right after JwtAuthenticatrionFilter, so requests can be counted per signed-in user rather
+than per address. The first policy matching the method and path applies; other requests pass
+untouched after a method comparison. Buckets live in a ConcurrentHashMap per route and are
+lock-free themselves, so a limited request costs a map lookup and a compare-and-set. Buckets that
+have filled up again are removed periodically, which bounds the map by the clients seen within
+one refill period.
+*/
+@Slf4j
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private record Route(RateLimitProperties.Policy policy, PathPattern pattern, long intervalNanos,
+                         Map<String, TokenBucket> buckets) {
+    }
+
+    private final boolean enabled;
+    private final List<Route> routes;
+    private final ObjectMapper objectMapper;
+
+    public RateLimitFilter(RateLimitProperties properties, ObjectMapper objectMapper) {
+        this.enabled = properties.isEnabled();
+        this.objectMapper = objectMapper;
+        this.routes = properties.getPolicies().stream()
+                .map(policy -> new Route(
+                        policy,
+                        PathPatternParser.defaultInstance.parse(policy.getPath()),
+                        policy.getPeriod().toNanos() / policy.getCapacity(),
+                        new ConcurrentHashMap<>()))
+                .toList();
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request,
+                                    HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        Route route = enabled ? match(request) : null;
+        if (route != null) {
+            String key = key(route.policy(), request);
+            long now = System.nanoTime();
+            TokenBucket bucket = route.buckets().get(key);
+            if (bucket == null) {
+                bucket = route.buckets().computeIfAbsent(key,
+                        k -> new TokenBucket(route.policy().getCapacity(), route.intervalNanos(), now));
+            }
+            long waitNanos = bucket.tryAcquire(now);
+            if (waitNanos > 0) {
+                reject(response, route.policy(), key, waitNanos);
+                return;
+            }
+        }
+        filterChain.doFilter(request, response);
+    }
+
+    @Scheduled(fixedDelayString = "${rate-limit.sweep-interval-ms:60000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        // a request racing with the removal may still take its token from the dropped bucket, letting one extra through
+        routes.forEach(route -> route.buckets().values().removeIf(bucket -> bucket.isFull(now)));
+    }
+
+    private Route match(HttpServletRequest request) {
+        PathContainer path = null;
+        for (Route route : routes) {
+            String method = route.policy().getMethod();
+            if (method != null && !method.equalsIgnoreCase(request.getMethod())) {
+                continue;
+            }
+            if (path == null) {
+                path = PathContainer.parsePath(request.getRequestURI().substring(request.getContextPath().length()));
+            }
+            if (route.pattern().matches(path)) {
+                return route;
+            }
+        }
+        return null;
+    }
+
+    // behind a proxy the address is only the client's with server.forward-headers-strategy set
+    private static String key(RateLimitProperties.Policy policy, HttpServletRequest request) {
+        if (policy.getKey() == RateLimitProperties.Key.USER) {
+            Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+            if (authentication != null && authentication.getPrincipal() instanceof BlogUserDetails userDetails) {
+                return "user:" + userDetails.getId();
+            }
+        }
+        return "ip:" + request.getRemoteAddr();
+    }
+
+    private void reject(HttpServletResponse response, RateLimitProperties.Policy policy, String key, long waitNanos) throws IOException {
+        long retryAfterSeconds = Math.max(1, TimeUnit.NANOSECONDS.toSeconds(waitNanos + TimeUnit.SECONDS.toNanos(1) - 1));
+        log.debug("Rate limit {} exceeded by {}", policy.getName(), key);
+
+        ApiErrorResponse error = ApiErrorResponse.builder()
+                .status(HttpStatus.TOO_MANY_REQUESTS.value())
+                .message("Too many requests, please try again in " + retryAfterSeconds + " seconds")
+                .build();
+        response.setStatus(HttpStatus.TOO_MANY_REQUESTS.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        objectMapper.writeValue(response.getOutputStream(), error);
+    }
+}
@@ -1,5 +1,6 @@
 package com.mehrdad.SafePost.services;
 
+import com.mehrdad.SafePost.domain.dtos.AuthResponse;
 import com.mehrdad.SafePost.domain.dtos.RegisterRequest;
 import com.mehrdad.SafePost.domain.dtos.UserProfileResponse;
 import com.mehrdad.SafePost.domain.entities.User;
@@ -12,5 +13,8 @@ public interface AuthenticationService {
     String generateToken(UserDetails userDetails);
     UserDetails validateToken(String token);
     User register(RegisterRequest request);
+    AuthResponse issueTokens(UserDetails userDetails, boolean rememberMe);
+    AuthResponse refresh(String refreshToken);
+    void logout(String refreshToken, String accessToken);
     UserProfileResponse getUserProfile(UUID userId);
 }
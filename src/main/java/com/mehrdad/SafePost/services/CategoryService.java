@@ -1,13 +1,15 @@
 package com.mehrdad.SafePost.services;
 
+import com.mehrdad.SafePost.domain.CategoryPostCount;
 import com.mehrdad.SafePost.domain.entities.Category;
 
 import java.util.List;
 import java.util.UUID;
 
 public interface CategoryService {
-    List<Category> listCategories();
+    List<CategoryPostCount> listCategories();
     Category createCategory(Category category);
     void deleteCategory(UUID id);
+    Category movePosts(UUID sourceId, UUID targetId);
     Category getCategoryById(UUID id);
 }
@@ -1,34 +1,46 @@
 package com.mehrdad.SafePost.services;
 
-import org.springframework.core.io.Resource;
+import com.mehrdad.SafePost.domain.ImageVariant;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.util.Optional;
+import java.util.UUID;
 
 public interface FileStorageService {
 
     /**
      * Store a cover image file and return the filename
      * @param file The file to store
-     * @return The unique filename
+     * @param ownerId The uploading user, who holds a reference to the file until deleting it
+     * @return The filename, derived from the SHA-256 of the content
      * @throws IOException if file cannot be stored
      */
-    String storeCoverImage(MultipartFile file) throws IOException;
+    String storeCoverImage(MultipartFile file, UUID ownerId) throws IOException;
 
     /**
-     * Load a cover image file as a Resource
+     * Pick the file to serve for a cover image displayed at a given width
      * @param filename The filename to load
-     * @return The file as a Resource
-     * @throws IOException if file cannot be loaded
+     * @param width The display width in pixels, null for the original
+     * @return A downscaled variant when there is one, otherwise the original
+     * @throws IOException if the original cannot be found
      */
-    Resource loadCoverImage(String filename) throws IOException;
+    ImageVariant loadCoverImage(String filename, Integer width) throws IOException;
 
     /**
-     * Delete a cover image file
+     * Get the inline placeholder of a cover image
+     * @param filename The filename of the cover image
+     * @return A data URI, empty while the image is being processed
+     */
+    Optional<String> getCoverImagePlaceholder(String filename);
+
+    /**
+     * Release one upload of a cover image file, deleting it with the last one
      * @param filename The filename to delete
+     * @param ownerId The user releasing one of their references; others' references are kept
      * @throws IOException if file cannot be deleted
      */
-    void deleteCoverImage(String filename) throws IOException;
+    void deleteCoverImage(String filename, UUID ownerId) throws IOException;
 
     /**
      * Validate if the file is a valid image
@@ -40,23 +52,26 @@ public interface FileStorageService {
     /**
      * Store an avatar image file and return the filename
      * @param file The file to store
-     * @return The unique filename
+     * @param ownerId The uploading user, who holds a reference to the file until deleting it
+     * @return The filename, derived from the SHA-256 of the content
      * @throws IOException if file cannot be stored
      */
-    String storeAvatar(MultipartFile file) throws IOException;
+    String storeAvatar(MultipartFile file, UUID ownerId) throws IOException;
 
     /**
-     * Load an avatar image file as a Resource
+     * Pick the file to serve for an avatar displayed at a given width
      * @param filename The filename to load
-     * @return The file as a Resource
-     * @throws IOException if file cannot be loaded
+     * @param width The display width in pixels, null for the original
+     * @return A downscaled variant when there is one, otherwise the original
+     * @throws IOException if the original cannot be found
      */
-    Resource loadAvatar(String filename) throws IOException;
+    ImageVariant loadAvatar(String filename, Integer width) throws IOException;
 
     /**
-     * Delete an avatar image file
+     * Release one upload of an avatar image file, deleting it with the last one
      * @param filename The filename to delete
+     * @param ownerId The user releasing one of their references; others' references are kept
      * @throws IOException if file cannot be deleted
      */
-    void deleteAvatar(String filename) throws IOException;
+    void deleteAvatar(String filename, UUID ownerId) throws IOException;
 }
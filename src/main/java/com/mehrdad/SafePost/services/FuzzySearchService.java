@@ -0,0 +1,22 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+
+import java.util.UUID;
+
+// Typo-tolerant search over post titles and tag names, e.g. "kuberentes" finds posts about Kubernetes.
+public interface FuzzySearchService {
+
+    /**
+     * Search published posts whose title or tag words are close to the query words, best match first
+     * @param query The trimmed, non-empty search query
+     * @param categoryId Optional category filter
+     * @param tags Tag filter, TagFilter.NONE for none
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param pageSize The number of posts per page
+     * @return The matching posts, with the cursor of the next page
+     */
+    CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize);
+}
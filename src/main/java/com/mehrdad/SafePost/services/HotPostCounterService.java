@@ -0,0 +1,30 @@
+package com.mehrdad.SafePost.services;
+
+import java.util.UUID;
+
+public interface HotPostCounterService {
+
+    /**
+     * Whether counter writes for the post currently go to its counter shards instead of the posts row
+     * @param postId The ID of the post
+     * @return true if the post is flagged hot
+     */
+    boolean isHot(UUID postId);
+
+    /**
+     * Record a counter write (e.g. a like toggle), used to detect posts that become hot
+     * @param postId The ID of the post
+     */
+    void recordWrite(UUID postId);
+
+    /**
+     * Pick the shard a hot post's next counter delta is written to
+     * @return A shard number between 0 (inclusive) and the configured shard count (exclusive)
+     */
+    int pickShard();
+
+    /**
+     * Fold all pending shard deltas back into the posts table and refresh the hot flags
+     */
+    void foldShards();
+}
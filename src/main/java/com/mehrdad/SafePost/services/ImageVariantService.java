@@ -0,0 +1,39 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.ImageVariant;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Optional;
+
+// Downscaled copies of uploaded images, so lists and avatars do not download the full original
+public interface ImageVariantService {
+
+    /**
+     * Generate the variants and the placeholder of an image in the background
+     * @param original The uploaded image
+     */
+    void scheduleVariants(Path original);
+
+    /**
+     * Pick the file to serve for an image displayed at a given width
+     * @param original The uploaded image
+     * @param width The width the image is displayed at, the original when null
+     * @return The smallest variant at least that wide, or the original
+     */
+    ImageVariant resolve(Path original, Integer width);
+
+    /**
+     * A tiny blurred preview to show while the image loads
+     * @param original The uploaded image
+     * @return A data URI, empty while the image is being processed or when it could not be decoded
+     */
+    Optional<String> getPlaceholder(Path original);
+
+    /**
+     * Delete the variants of an image that is being deleted
+     * @param original The uploaded image
+     * @throws IOException if a variant cannot be deleted
+     */
+    void deleteVariants(Path original) throws IOException;
+}
@@ -2,6 +2,8 @@ package com.mehrdad.SafePost.services;
 
 import com.mehrdad.SafePost.domain.dtos.LikeResponse;
 
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 public interface PostLikeService {
@@ -22,6 +24,14 @@ public interface PostLikeService {
      */
     boolean hasUserLikedPost(UUID postId, UUID userId);
 
+    /**
+     * Check which of the given posts a user has liked, with a single query
+     * @param userId The ID of the user
+     * @param postIds The IDs of the posts, e.g. one page of a feed
+     * @return The subset of postIds the user has liked
+     */
+    Set<UUID> getLikedPostIds(UUID userId, Collection<UUID> postIds);
+
     /**
      * Get the number of likes for a post
      * @param postId The ID of the post
@@ -0,0 +1,43 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+
+import java.util.Collection;
+import java.util.UUID;
+
+// Finds published posts for a search query. The implementation is chosen with the search.engine property.
+public interface PostSearchEngine {
+
+    /**
+     * Search published posts, one cursor page at a time
+     * @param query The trimmed, non-empty search query
+     * @param categoryId Optional category filter
+     * @param tags Tag filter, TagFilter.NONE for none
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param pageSize The number of posts per page
+     * @return The matching posts in the engine's order, with the cursor of the next page
+     */
+    CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize);
+
+    /**
+     * Bring the index up to date after a post was created or updated; runs inside the writing transaction
+     * @param postId The ID of the post
+     */
+    void indexPost(UUID postId);
+
+    /**
+     * indexPost for many posts at once, e.g. after their tags or category were merged
+     * @param postIds The IDs of the posts
+     */
+    default void indexPosts(Collection<UUID> postIds) {
+        postIds.forEach(this::indexPost);
+    }
+
+    /**
+     * Drop a deleted post from the index; runs inside the deleting transaction
+     * @param postId The ID of the post
+     */
+    void removePost(UUID postId);
+}
@@ -1,8 +1,10 @@
 package com.mehrdad.SafePost.services;
 
 import com.mehrdad.SafePost.domain.CreatePostRequest;
+import com.mehrdad.SafePost.domain.TagFilter;
 import com.mehrdad.SafePost.domain.UpdatePostRequest;
-import com.mehrdad.SafePost.domain.dtos.UpdatePostRequestDto;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.domain.dtos.PostSummaryDto;
 import com.mehrdad.SafePost.domain.entities.Post;
 import com.mehrdad.SafePost.domain.entities.User;
 
@@ -14,18 +16,24 @@ public interface PostService {
     // get a post with its id
     Post getPost(UUID id);
 
-    // getting all the posts
-    List<Post> getAllPosts(UUID categoryId, UUID tagId);
-    List<Post> getDraftPosts(User user);
+    // getting all the published posts, one cursor page at a time
+    CursorPage<PostSummaryDto> getAllPosts(UUID categoryId, TagFilter tags, String cursor, int limit);
+    List<PostSummaryDto> getDraftPosts(UUID authorId);
 
     // Search posts
-    List<Post> searchPosts(String query, UUID categoryId, UUID tagId);
+    CursorPage<PostSummaryDto> searchPosts(String query, UUID categoryId, TagFilter tags, String cursor, int limit);
+
+    // Typo-tolerant search over titles and tag names
+    CursorPage<PostSummaryDto> fuzzySearchPosts(String query, UUID categoryId, TagFilter tags, String cursor, int limit);
+
+    // the published posts most related to a post, most related first
+    List<PostSummaryDto> getRelatedPosts(UUID id, int limit);
 
     Post createPost(User user, CreatePostRequest createPostRequest);
     Post updatePost(UUID id, UUID userId, UpdatePostRequest updatePostRequest);
 
     void deletePost(UUID id, UUID userId);
 
-    // View counter
-    void incrementViewCount(UUID postId);
+    // View counter, viewerHash identifies the viewer for the unique viewer estimate
+    void incrementViewCount(UUID postId, long viewerHash);
 }
@@ -0,0 +1,33 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.entities.RefreshToken;
+
+import java.util.UUID;
+
+// Opaque, single-use tokens that keep a session alive by being exchanged for new access tokens
+public interface RefreshTokenService {
+
+    /**
+     * Issue a refresh token
+     * @param userId The user signing in
+     * @param rememberMe Whether the session outlives the usual refresh token lifetime
+     * @return The token, of which only a hash is stored
+     */
+    String issue(UUID userId, boolean rememberMe);
+
+    /**
+     * Use up a refresh token, to be replaced by the caller with a newly issued one
+     * @param token The token presented by the client
+     * @return The used token, with its user loaded
+     * @throws org.springframework.security.authentication.CredentialsExpiredException when the token is unknown,
+     * expired or already used; a token used again well after it was exchanged is taken as stolen and ends
+     * all sessions of its user
+     */
+    RefreshToken consume(String token);
+
+    /**
+     * Revoke a refresh token when signing out, unknown tokens are ignored
+     * @param token The token presented by the client
+     */
+    void revoke(String token);
+}
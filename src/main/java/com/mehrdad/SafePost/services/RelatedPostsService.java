@@ -0,0 +1,16 @@
+package com.mehrdad.SafePost.services;
+
+import java.util.List;
+import java.util.UUID;
+
+// Precomputed "related posts": the published posts most similar to a post by tags, category and text.
+public interface RelatedPostsService {
+
+    /**
+     * The ids of the posts most related to a published post, most related first
+     * @param postId The post to find related posts for
+     * @param limit The maximum number of ids, capped at the configured list size
+     * @return The related post ids, empty for a draft or unknown post
+     */
+    List<UUID> getRelatedPostIds(UUID postId, int limit);
+}
@@ -0,0 +1,37 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.domain.dtos.SearchCacheStatsDto;
+
+import java.util.Collection;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+// Remembers which posts a search returned, so repeated popular searches skip the search engine.
+public interface SearchResultCache {
+
+    /**
+     * One page of search results, from the cache when an up-to-date entry exists
+     * @param query The trimmed search query
+     * @param categoryId Optional category filter
+     * @param tags Tag filter, TagFilter.NONE for none
+     * @param cursor The nextCursor of the previous page, or null for the first page
+     * @param pageSize The number of posts per page
+     * @param search Runs the search when the cache cannot answer
+     * @return The page, with summaries loaded fresh even on a hit
+     */
+    CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize,
+                                   Supplier<CursorPage<PostSummary>> search);
+
+    /**
+     * Invalidate the cached searches a created, updated or deleted post may show up in; takes effect once
+     * the surrounding transaction commits
+     * @param categoryIds The post's categories before and after the change
+     * @param tagIds The post's tags before and after the change
+     */
+    void postChanged(Collection<UUID> categoryIds, Collection<UUID> tagIds);
+
+    SearchCacheStatsDto stats();
+}
@@ -0,0 +1,16 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.dtos.SuggestionDto;
+
+import java.util.List;
+
+public interface SuggestionService {
+
+    /**
+     * Complete a partly typed search to posts, tags, categories and authors
+     * @param prefix What the user has typed so far
+     * @param limit The maximum number of suggestions
+     * @return The best weighted completions, best first
+     */
+    List<SuggestionDto> suggest(String prefix, int limit);
+}
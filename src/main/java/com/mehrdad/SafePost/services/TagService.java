@@ -1,15 +1,18 @@
 package com.mehrdad.SafePost.services;
 
+import com.mehrdad.SafePost.domain.TagPostCount;
 import com.mehrdad.SafePost.domain.entities.Tag;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
 public interface TagService {
-    List<Tag> getTags();
-    List<Tag> createTags(Set<String> tagNames);
+    List<TagPostCount> getTags();
+    List<Tag> createTags(Collection<String> tagNames);
     void deleteTag(UUID id);
+    Tag mergeTag(UUID sourceId, UUID targetId);
     Tag getTagByID(UUID id);
     List<Tag> getTagByIds(Set<UUID> ids);
 }
@@ -0,0 +1,31 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.TaxonomySnapshot;
+import com.mehrdad.SafePost.domain.entities.Category;
+import com.mehrdad.SafePost.domain.entities.Tag;
+
+import java.util.Set;
+import java.util.UUID;
+
+// Categories and tags served from an in-memory snapshot instead of the database.
+public interface TaxonomyService {
+
+    // the current snapshot of all categories and tags with their post counts
+    TaxonomySnapshot getSnapshot();
+
+    /**
+     * Reference a category from a post without loading it
+     * @param id The category id
+     * @return A detached Category carrying only id and name, enough to be assigned to a post
+     * @throws jakarta.persistence.EntityNotFoundException When there is no such category
+     */
+    Category getCategoryReference(UUID id);
+
+    /**
+     * Reference tags from a post without loading them
+     * @param ids The tag ids
+     * @return Detached Tags carrying only id and name, enough to be assigned to a post
+     * @throws jakarta.persistence.EntityNotFoundException When any of the tags does not exist
+     */
+    Set<Tag> getTagReferences(Set<UUID> ids);
+}
@@ -0,0 +1,22 @@
+package com.mehrdad.SafePost.services;
+
+import java.time.Instant;
+import java.util.UUID;
+
+// Denylist of access tokens that must stop working before they expire
+public interface TokenRevocationService {
+
+    /**
+     * Revoke an access token
+     * @param jti The ID (jti claim) of the token
+     * @param expiresAt When the token expires, after which it no longer needs to be listed
+     */
+    void revoke(UUID jti, Instant expiresAt);
+
+    /**
+     * Whether an access token was revoked, checked on every authenticated request
+     * @param jti The ID (jti claim) of the token
+     * @return true when the token was revoked and has not expired yet
+     */
+    boolean isRevoked(UUID jti);
+}
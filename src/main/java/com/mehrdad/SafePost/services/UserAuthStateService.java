@@ -0,0 +1,24 @@
+package com.mehrdad.SafePost.services;
+
+import com.mehrdad.SafePost.domain.enums.Role;
+
+import java.util.UUID;
+
+// Decides whether the claims of a validly signed token still describe the user
+public interface UserAuthStateService {
+
+    /**
+     * Whether a token with these claims is still current
+     * @param userId The user the token was issued to
+     * @param role The role the token was issued with
+     * @param tokenVersion The token version the token was issued with
+     * @return false when the user no longer exists, has another role or had their tokens invalidated since
+     */
+    boolean isCurrent(UUID userId, Role role, int tokenVersion);
+
+    /**
+     * Forget what is known about the user, after their role or token version changed
+     * @param userId The ID of the user
+     */
+    void evict(UUID userId);
+}
@@ -1,9 +1,12 @@
 package com.mehrdad.SafePost.services;
 
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.domain.enums.Role;
 
 import java.util.UUID;
 
 public interface UserService {
     User getUserById(UUID id);
+    User changeRole(UUID id, Role role);
+    void revokeTokens(UUID id);
 }
@@ -0,0 +1,19 @@
+package com.mehrdad.SafePost.services;
+
+import java.util.UUID;
+
+public interface ViewCounterService {
+
+    /**
+     * Record a single view of a post. Only touches memory, the database is updated later by flush()
+     * @param postId The ID of the viewed post
+     * @param viewerHash 64-bit hash identifying the viewer (user id or client address)
+     */
+    void recordView(UUID postId, long viewerHash);
+
+    /**
+     * Write all buffered views to the database as one batch of atomic increments and merge the
+     * buffered viewer sketches into the stored unique viewer sketches
+     */
+    void flush();
+}
@@ -1,26 +1,36 @@
 package com.mehrdad.SafePost.services.impl;
 
+import com.mehrdad.SafePost.domain.dtos.AuthResponse;
 import com.mehrdad.SafePost.domain.dtos.RegisterRequest;
+import com.mehrdad.SafePost.domain.entities.RefreshToken;
 import com.mehrdad.SafePost.domain.dtos.UserProfileResponse;
 import com.mehrdad.SafePost.domain.entities.User;
 import com.mehrdad.SafePost.domain.enums.Role;
 import com.mehrdad.SafePost.repositories.UserRepository;
+import com.mehrdad.SafePost.security.BlogUserDetails;
 import com.mehrdad.SafePost.services.AuthenticationService;
+import com.mehrdad.SafePost.services.RefreshTokenService;
+import com.mehrdad.SafePost.services.TokenRevocationService;
+import com.mehrdad.SafePost.services.UserAuthStateService;
 import io.jsonwebtoken.Claims;
+import io.jsonwebtoken.JwtParser;
+import io.jsonwebtoken.JwtException;
 import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.security.Keys;
 import jakarta.persistence.EntityNotFoundException;
-import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.CredentialsExpiredException;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.security.Key;
+import java.time.Duration;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.Map;
@@ -32,72 +42,110 @@ In a stateless JWT system:
 1- Authenticate credentials
 - Take email + password from a login request.
 - Ask Spring Security’s AuthenticationManager to verify them (it will call UserDetailsService and PasswordEncoder under the hood).
+- The password check is the expensive part (bcrypt), it runs on the bounded pool of BoundedPasswordEncoder.
 
 2- Issue a JWT
 - If credentials are valid, build a signed JWT containing who the user is (and optionally roles/claims).
-- Return that token to the client.
+- Return that token to the client, together with a refresh token.
+- Access tokens are short-lived; the client exchanges its refresh token for a new pair when one expires, so a
+  long ("remember me") session never checks the password again. A revoked user loses access within minutes.
 - On future requests, the client sends Authorization: Bearer <token>, and your JWT filter validates the signature/expiry and sets the SecurityContext.
+
+3- Validate a JWT
+- The token carries the user's id, role and token version as claims, so the principal is built from the
+  token alone. The only lookup left is the (cached) check that role and token version are still current.
+- Every token has a random id (jti). Signing out revokes it, and a revoked id is rejected; checking
+  for one takes no query unless the in-memory filter in front of the denylist reports a match.
+- The signing key and the parser are built once; both are immutable and safe to share between requests.
 */
 
 @Service
-@RequiredArgsConstructor
 public class AuthenticationServiceImpl implements AuthenticationService {
 
+    private static final String USER_ID_CLAIM = "uid";
+    private static final String ROLE_CLAIM = "role";
+    private static final String TOKEN_VERSION_CLAIM = "ver";
+
     private final AuthenticationManager authenticationManager; // Spring Security engine that verifies credentials.
     private final UserDetailsService userDetailsService; // loads user (by email/username) + authorities
     private final UserRepository userRepository;
     private final PasswordEncoder passwordEncoder;
-
-    @Value("${jwt.secret}")
-    private String secretKey;
-
-    private final Long jwtExpiryMs = 86400000L; // 24 hours
-    private final Long jwtExpiryMsRememberMe = 2592000000L; // 30 days
+    private final UserAuthStateService userAuthStateService;
+    private final RefreshTokenService refreshTokenService;
+    private final TokenRevocationService tokenRevocationService;
+
+    private final Key signingKey;
+    private final JwtParser jwtParser;
+    private final long jwtExpiryMs;
+
+    public AuthenticationServiceImpl(AuthenticationManager authenticationManager,
+                                     UserDetailsService userDetailsService,
+                                     UserRepository userRepository,
+                                     PasswordEncoder passwordEncoder,
+                                     UserAuthStateService userAuthStateService,
+                                     RefreshTokenService refreshTokenService,
+                                     TokenRevocationService tokenRevocationService,
+                                     @Value("${jwt.secret}") String secretKey,
+                                     @Value("${jwt.access-token.ttl-seconds:900}") long accessTokenTtlSeconds) {
+        this.authenticationManager = authenticationManager;
+        this.userDetailsService = userDetailsService;
+        this.userRepository = userRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.userAuthStateService = userAuthStateService;
+        this.refreshTokenService = refreshTokenService;
+        this.tokenRevocationService = tokenRevocationService;
+        this.signingKey = Keys.hmacShaKeyFor(secretKey.getBytes());
+        this.jwtParser = Jwts.parserBuilder().setSigningKey(signingKey).build();
+        this.jwtExpiryMs = Duration.ofSeconds(accessTokenTtlSeconds).toMillis();
+    }
 
     @Override
     public UserDetails authenticate(String email, String password) {
-        authenticationManager.authenticate(
+        Authentication authentication = authenticationManager.authenticate(
                 new UsernamePasswordAuthenticationToken(email, password)
         );
-        return userDetailsService.loadUserByUsername(email);
+        // the user loaded to check the password, no need to load it again
+        return (UserDetails) authentication.getPrincipal();
     }
 
     @Override
     public String generateToken(UserDetails userDetails) {
-        return generateToken(userDetails, false);
-    }
-
-    public String generateToken(UserDetails userDetails, boolean rememberMe) {
         Map<String,Object> claims = new HashMap<>();
-        Long expiry = rememberMe ? jwtExpiryMsRememberMe : jwtExpiryMs;
+        if (userDetails instanceof BlogUserDetails blogUserDetails) {
+            User user = blogUserDetails.getUser();
+            claims.put(USER_ID_CLAIM, user.getId().toString());
+            claims.put(ROLE_CLAIM, user.getRole().name());
+            claims.put(TOKEN_VERSION_CLAIM, user.getTokenVersion());
+        }
         return Jwts.builder()
                 .setClaims(claims)
+                .setId(UUID.randomUUID().toString())
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
-                .setExpiration(new Date(System.currentTimeMillis() + expiry))
-                .signWith(getSigningKey(), SignatureAlgorithm.HS256)
+                .setExpiration(new Date(System.currentTimeMillis() + jwtExpiryMs))
+                .signWith(signingKey, SignatureAlgorithm.HS256)
                 .compact();
     }
 
     @Override
     public UserDetails validateToken(String token) {
-        String username = extractUsername(token);
-        return userDetailsService.loadUserByUsername(username);
-    }
-
-    // extract the username from the token
-    private String extractUsername(String token) {
-        Claims claims = Jwts.parserBuilder()
-                .setSigningKey(getSigningKey())
-                .build()
-                .parseClaimsJws(token)
-                .getBody();
-        return claims.getSubject(); // before we put the username in .setSubject(userDetails.getUsername())
-    }
+        Claims claims = jwtParser.parseClaimsJws(token).getBody();
+        if (claims.getId() != null && tokenRevocationService.isRevoked(UUID.fromString(claims.getId()))) {
+            throw new CredentialsExpiredException("Token " + claims.getId() + " was revoked");
+        }
+        String userId = claims.get(USER_ID_CLAIM, String.class);
+        if (userId == null) {
+            // issued before tokens carried claims, the user has to be looked up by the email in the subject
+            return userDetailsService.loadUserByUsername(claims.getSubject());
+        }
 
-    private Key getSigningKey() {
-        byte[] keyBytes = secretKey.getBytes();
-        return Keys.hmacShaKeyFor(keyBytes);
+        UUID id = UUID.fromString(userId);
+        Role role = Role.valueOf(claims.get(ROLE_CLAIM, String.class));
+        Integer tokenVersion = claims.get(TOKEN_VERSION_CLAIM, Integer.class);
+        if (tokenVersion == null || !userAuthStateService.isCurrent(id, role, tokenVersion)) {
+            throw new CredentialsExpiredException("Token of user " + id + " is no longer current");
+        }
+        return BlogUserDetails.fromClaims(id, claims.getSubject(), role);
     }
 
     @Override
@@ -118,6 +166,41 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         return userRepository.save(newUser);
     }
 
+    @Override
+    public AuthResponse issueTokens(UserDetails userDetails, boolean rememberMe) {
+        if (!(userDetails instanceof BlogUserDetails blogUserDetails)) {
+            throw new IllegalArgumentException("Tokens can only be issued to registered users");
+        }
+        return AuthResponse.builder()
+                .token(generateToken(userDetails))
+                .expiresIn(jwtExpiryMs / 1000)
+                .refreshToken(refreshTokenService.issue(blogUserDetails.getUser().getId(), rememberMe))
+                .build();
+    }
+
+    // signs the user in again with the role and token version they have now, without their password
+    @Override
+    public AuthResponse refresh(String refreshToken) {
+        RefreshToken used = refreshTokenService.consume(refreshToken);
+        return issueTokens(new BlogUserDetails(used.getUser()), used.isRememberMe());
+    }
+
+    @Override
+    public void logout(String refreshToken, String accessToken) {
+        refreshTokenService.revoke(refreshToken);
+        if (accessToken == null) {
+            return;
+        }
+        try {
+            Claims claims = jwtParser.parseClaimsJws(accessToken).getBody();
+            if (claims.getId() != null) {
+                tokenRevocationService.revoke(UUID.fromString(claims.getId()), claims.getExpiration().toInstant());
+            }
+        } catch (JwtException e) {
+            // expired or not ours, there is nothing left to revoke
+        }
+    }
+
     @Override
     public UserProfileResponse getUserProfile(UUID userId) {
         User user = userRepository.findById(userId)
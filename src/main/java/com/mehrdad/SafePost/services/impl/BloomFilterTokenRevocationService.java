@@ -0,0 +1,90 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.entities.RevokedToken;
+import com.mehrdad.SafePost.repositories.RevokedTokenRepository;
+import com.mehrdad.SafePost.services.TokenRevocationService;
+import com.mehrdad.SafePost.util.BloomFilter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.UUID;
+
+/*
+Revoked token ids are persisted in revoked_tokens and mirrored in an in-memory Bloom filter, so a
+request with a token that was never revoked (nearly all of them) costs a few bit probes and no query.
+Only a token the filter reports as maybe revoked is looked up, which also settles false positives.
+
+The filter is rebuilt at startup and periodically from the rows that have not expired yet: this
+drops tokens that expired since (a Bloom filter cannot remove items) and picks up tokens revoked
+through other instances. Until the first rebuild has finished every check goes to the database, so
+tokens revoked before a restart are not accepted while the application starts up.
+
+Accepted limit: a token revoked through another instance keeps working on this one until its next
+rebuild, so for at most jwt.revocation.rebuild-interval-ms. Lower it to shorten that window; each
+rebuild reads the rows of the tokens that have not expired yet.
+*/
+@Service
+@Slf4j
+public class BloomFilterTokenRevocationService implements TokenRevocationService {
+
+    private static final double FALSE_POSITIVE_RATE = 0.001;
+
+    private final RevokedTokenRepository revokedTokenRepository;
+    private final long expectedTokens;
+
+    // null until the first rebuild, while every check goes to the database
+    private volatile BloomFilter filter;
+
+    public BloomFilterTokenRevocationService(RevokedTokenRepository revokedTokenRepository,
+                                             @Value("${jwt.revocation.expected-tokens:100000}") long expectedTokens) {
+        this.revokedTokenRepository = revokedTokenRepository;
+        this.expectedTokens = expectedTokens;
+    }
+
+    @Override
+    public void revoke(UUID jti, Instant expiresAt) {
+        LocalDateTime expiry = LocalDateTime.ofInstant(expiresAt, ZoneId.systemDefault());
+        if (!expiry.isAfter(LocalDateTime.now())) {
+            return;
+        }
+        // stored before it is added under the rebuild's lock: a rebuild either reads the row or completes before the add
+        revokedTokenRepository.save(RevokedToken.builder().jti(jti).expiresAt(expiry).build());
+        synchronized (this) {
+            if (filter != null) {
+                filter.add(jti);
+            }
+        }
+    }
+
+    @Override
+    public boolean isRevoked(UUID jti) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(jti)) {
+            return false;
+        }
+        return revokedTokenRepository.existsByJtiAndExpiresAtAfter(jti, LocalDateTime.now());
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${jwt.revocation.rebuild-interval-ms:60000}",
+            initialDelayString = "${jwt.revocation.rebuild-interval-ms:60000}")
+    public synchronized void rebuild() {
+        LocalDateTime now = LocalDateTime.now();
+        revokedTokenRepository.deleteExpired(now);
+        List<UUID> active = revokedTokenRepository.findActiveJtis(now);
+
+        // sized for twice what is listed now, so revocations until the next rebuild keep the error rate
+        BloomFilter rebuilt = new BloomFilter(Math.max(expectedTokens, active.size() * 2L), FALSE_POSITIVE_RATE);
+        active.forEach(rebuilt::add);
+        filter = rebuilt;
+        log.debug("Rebuilt the token denylist filter with {} revoked tokens", active.size());
+    }
+}
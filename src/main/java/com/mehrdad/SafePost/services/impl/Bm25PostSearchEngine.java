@@ -0,0 +1,138 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostDocument;
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.repositories.PostDocumentRepository;
+import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.services.PostSearchEngine;
+import com.mehrdad.SafePost.util.Bm25Index;
+import com.mehrdad.SafePost.util.IndexRebuild;
+import com.mehrdad.SafePost.util.TextTokenizer;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/*
+Embedded search engine: an in-process BM25 index over all published posts (see Bm25Index).
+
+Candidate generation and ranking never touch the database; only the cards of the final page are
+loaded, by id. The index is built at startup from a streamed scan of the posts table, with
+documents tokenized in parallel, and kept current by re-reading single posts after each committed
+create, update or delete.
+
+Every instance holds its own index, so a change made through another instance only shows up here
+after the next restart. This engine suits single-instance deployments; use "postgres" otherwise.
+*/
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "bm25")
+@RequiredArgsConstructor
+@Slf4j
+public class Bm25PostSearchEngine implements PostSearchEngine {
+
+    // a term in the title counts as much as three in the body
+    private static final int TITLE_WEIGHT = 3;
+    private static final int TAG_WEIGHT = 2;
+    private static final int CONTENT_WEIGHT = 1;
+    private static final int AUTHOR_WEIGHT = 1;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final PostDocumentRepository postDocumentRepository;
+    private final PostRepository postRepository;
+
+    private volatile Bm25Index index = new Bm25Index();
+    private final IndexRebuild<UUID> indexRebuild = new IndexRebuild<>();
+
+    @Override
+    public CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize) {
+        List<RankedPostId> hits = index.search(
+                TextTokenizer.tokenize(query), categoryId, tags, SearchCursor.decode(cursor), pageSize + 1);
+
+        CursorPage<RankedPostId> page = CursorPage.fromOverfetched(
+                hits, pageSize, hit -> SearchCursor.of(hit.rank(), hit.id()).encode());
+
+        return CursorPage.<PostSummary>builder()
+                .items(postRepository.findSummariesInOrder(page.getItems().stream().map(RankedPostId::id).toList()))
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.isHasMore())
+                .build();
+    }
+
+    @Override
+    public void indexPost(UUID postId) {
+        afterCommit(() -> reindex(postId));
+    }
+
+    @Override
+    public void removePost(UUID postId) {
+        afterCommit(() -> {
+            indexRebuild.changing(postId);
+            index.remove(postId);
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        Bm25Index rebuilt = indexRebuild.run(() -> {
+            Bm25Index built = new Bm25Index();
+            // tokenizing dominates the build, so each batch is analysed in parallel and then appended in order
+            postDocumentRepository.streamPublishedDocuments(REBUILD_BATCH_SIZE, true, batch ->
+                    batch.parallelStream().map(this::analyze).toList().forEach(built::add));
+            return built;
+        }, built -> index = built, this::reindex);
+
+        log.info("Built search index for {} posts in {} ms", rebuilt.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    // reads the post back from the database, so repeated or out-of-order calls converge on its current state
+    private void reindex(UUID postId) {
+        indexRebuild.changing(postId);
+        postDocumentRepository.findPublishedDocument(postId, true).ifPresentOrElse(
+                document -> index.add(analyze(document)),
+                () -> index.remove(postId)); // deleted or back to draft
+    }
+
+    private Bm25Index.Document analyze(PostDocument document) {
+        Map<String, Integer> termFrequencies = new HashMap<>();
+        int length = addTerms(termFrequencies, document.title(), TITLE_WEIGHT)
+                + addTerms(termFrequencies, String.join(" ", document.tagNames()), TAG_WEIGHT)
+                + addTerms(termFrequencies, document.content(), CONTENT_WEIGHT)
+                + addTerms(termFrequencies, document.authorName(), AUTHOR_WEIGHT);
+        return new Bm25Index.Document(document.id(), termFrequencies, length, document.categoryId(), document.tagIds());
+    }
+
+    private static int addTerms(Map<String, Integer> termFrequencies, String text, int weight) {
+        List<String> terms = TextTokenizer.tokenize(text);
+        terms.forEach(term -> termFrequencies.merge(term, weight, Integer::sum));
+        return terms.size() * weight;
+    }
+
+    // the index must only see committed data, a rolled back write leaves it untouched
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
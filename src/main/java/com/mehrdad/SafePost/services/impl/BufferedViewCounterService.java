@@ -0,0 +1,157 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.repositories.PostCounterRepository;
+import com.mehrdad.SafePost.repositories.PostViewSketchRepository;
+import com.mehrdad.SafePost.services.HotPostCounterService;
+import com.mehrdad.SafePost.services.ViewCounterService;
+import com.mehrdad.SafePost.util.HyperLogLog;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/*
+Write-behind view counter.
+
+Every GET /posts/{id} only increments a LongAdder for that post. LongAdder spreads concurrent
+increments over internal cells, so even a single viral post does not make reader threads
+contend on one memory location. A scheduler periodically drains the adders and sends one JDBC
+batch of "view_count = view_count + ?" updates, so the read path never opens a write
+transaction and concurrent views are never lost.
+
+Alongside the raw count, each view offers the viewer's hash to a per-post HyperLogLog sketch.
+Refreshes and repeat visits hash to the same value and do not move the estimate, which is
+flushed into day and all-time sketches and surfaced as posts.unique_viewers.
+*/
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class BufferedViewCounterService implements ViewCounterService {
+
+    private static final int SKETCH_RETENTION_DAYS = 90;
+
+    private final PostCounterRepository postCounterRepository;
+    private final PostViewSketchRepository postViewSketchRepository;
+    private final HotPostCounterService hotPostCounterService;
+
+    private final ConcurrentHashMap<UUID, LongAdder> pendingViews = new ConcurrentHashMap<>();
+
+    // Adders removed from the map during the previous flush. A reader may have fetched one just
+    // before it was removed, so they are drained once more on the next flush before being dropped.
+    private List<Map.Entry<UUID, LongAdder>> retiredAdders = new ArrayList<>();
+
+    // viewers seen since the last flush; offers happen inside compute() so they are atomic with
+    // the remove() done by the flusher
+    private final ConcurrentHashMap<UUID, HyperLogLog> pendingViewers = new ConcurrentHashMap<>();
+
+    @Override
+    public void recordView(UUID postId, long viewerHash) {
+        pendingViews.computeIfAbsent(postId, id -> new LongAdder()).increment();
+        pendingViewers.compute(postId, (id, sketch) -> {
+            HyperLogLog viewers = sketch != null ? sketch : new HyperLogLog();
+            viewers.offer(viewerHash);
+            return viewers;
+        });
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${views.flush-interval-ms:5000}")
+    public synchronized void flush() {
+        // sorted by id so concurrent flushes from several instances lock rows in the same order
+        Map<UUID, Long> deltas = new TreeMap<>();
+
+        for (Map.Entry<UUID, LongAdder> retired : retiredAdders) {
+            long views = retired.getValue().sumThenReset();
+            if (views > 0) {
+                deltas.merge(retired.getKey(), views, Long::sum);
+            }
+        }
+
+        List<Map.Entry<UUID, LongAdder>> nowRetired = new ArrayList<>();
+        pendingViews.forEach((postId, adder) -> {
+            long views = adder.sumThenReset();
+            if (views > 0) {
+                deltas.merge(postId, views, Long::sum);
+            } else if (pendingViews.remove(postId, adder)) {
+                // idle since the last flush, stop tracking it so the map does not grow forever
+                nowRetired.add(Map.entry(postId, adder));
+            }
+        });
+        retiredAdders = nowRetired;
+
+        Map<UUID, Long> hotDeltas = new TreeMap<>();
+        for (UUID postId : List.copyOf(deltas.keySet())) {
+            if (hotPostCounterService.isHot(postId)) {
+                hotDeltas.put(postId, deltas.remove(postId));
+            }
+        }
+        writeViewCounts(deltas, postCounterRepository::addViewCounts);
+        // hot posts get their views through the counter shards so the flush does not queue on their rows either
+        writeViewCounts(hotDeltas, hot -> postCounterRepository.addViewCountsToShards(hot, hotPostCounterService::pickShard));
+
+        flushViewerSketches();
+    }
+
+    private void writeViewCounts(Map<UUID, Long> deltas, Consumer<Map<UUID, Long>> writer) {
+        if (deltas.isEmpty()) {
+            return;
+        }
+        try {
+            writer.accept(deltas);
+            log.debug("Flushed view counts for {} posts", deltas.size());
+        } catch (RuntimeException ex) {
+            // keep the views for the next attempt instead of dropping them
+            deltas.forEach((postId, views) -> pendingViews.computeIfAbsent(postId, id -> new LongAdder()).add(views));
+            log.error("Failed to flush view counts for {} posts, will retry", deltas.size(), ex);
+        }
+    }
+
+    private void flushViewerSketches() {
+        Map<UUID, HyperLogLog> sketches = new TreeMap<>();
+        for (UUID postId : pendingViewers.keySet()) {
+            HyperLogLog sketch = pendingViewers.remove(postId);
+            if (sketch != null) {
+                sketches.put(postId, sketch);
+            }
+        }
+        if (sketches.isEmpty()) {
+            return;
+        }
+
+        try {
+            postViewSketchRepository.mergeSketches(sketches, LocalDate.now(ZoneOffset.UTC).toString());
+        } catch (RuntimeException ex) {
+            // merging is idempotent, so putting the sketches back and retrying later is safe
+            sketches.forEach((postId, sketch) -> pendingViewers.merge(postId, sketch, (current, failed) -> {
+                current.merge(failed);
+                return current;
+            }));
+            log.error("Failed to flush viewer sketches for {} posts, will retry", sketches.size(), ex);
+        }
+    }
+
+    @Scheduled(cron = "${views.sketch-cleanup-cron:0 30 3 * * *}", zone = "UTC")
+    public void deleteExpiredDaySketches() {
+        String oldestKept = LocalDate.now(ZoneOffset.UTC).minusDays(SKETCH_RETENTION_DAYS).toString();
+        int deleted = postViewSketchRepository.deleteDayBucketsBefore(oldestKept);
+        log.info("Deleted {} day viewer sketches older than {}", deleted, oldestKept);
+    }
+
+    // graceful shutdown: write whatever is still buffered before the DataSource goes away
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+}
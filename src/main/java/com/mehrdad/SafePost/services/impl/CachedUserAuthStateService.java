@@ -0,0 +1,55 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.UserAuthState;
+import com.mehrdad.SafePost.domain.enums.Role;
+import com.mehrdad.SafePost.repositories.UserRepository;
+import com.mehrdad.SafePost.services.UserAuthStateService;
+import com.mehrdad.SafePost.util.LruCache;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.UUID;
+
+/*
+Role and token version of recently seen users, so an authenticated request usually needs no query.
+
+Changes made through this instance evict the user right away; a change made elsewhere (another
+instance, or directly in the database) is picked up once the entry expires, which bounds how long a
+token issued with the old role keeps working.
+*/
+@Service
+public class CachedUserAuthStateService implements UserAuthStateService {
+
+    private static final int MAX_ENTRIES = 10_000;
+
+    private final UserRepository userRepository;
+    private final LruCache<UUID, UserAuthState> states;
+
+    public CachedUserAuthStateService(UserRepository userRepository,
+                                      @Value("${jwt.user-cache.ttl-seconds:30}") long ttlSeconds) {
+        this.userRepository = userRepository;
+        this.states = new LruCache<>(MAX_ENTRIES, Duration.ofSeconds(ttlSeconds).toNanos());
+    }
+
+    @Override
+    public boolean isCurrent(UUID userId, Role role, int tokenVersion) {
+        UserAuthState state = states.get(userId);
+        if (state == null) {
+            Optional<UserAuthState> loaded = userRepository.findAuthStateById(userId);
+            if (loaded.isEmpty()) {
+                // deleted users are not cached, their tokens are rare and rejected either way
+                return false;
+            }
+            state = loaded.get();
+            states.put(userId, state);
+        }
+        return state.role() == role && state.tokenVersion() == tokenVersion;
+    }
+
+    @Override
+    public void evict(UUID userId) {
+        states.remove(userId);
+    }
+}
@@ -1,15 +1,25 @@
 package com.mehrdad.SafePost.services.impl;
 
+import com.mehrdad.SafePost.domain.CategoryPostCount;
+import com.mehrdad.SafePost.domain.PostStatus;
 import com.mehrdad.SafePost.domain.entities.Category;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
 import com.mehrdad.SafePost.repositories.CategoryRepository;
+import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.repositories.TaxonomyMergeRepository;
 import com.mehrdad.SafePost.services.CategoryService;
+import com.mehrdad.SafePost.services.PostSearchEngine;
+import com.mehrdad.SafePost.services.SearchResultCache;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -17,10 +27,15 @@ import java.util.UUID;
 public class CategoryServiceImpl implements CategoryService {
 
     private final CategoryRepository categoryRepository;
+    private final TaxonomyMergeRepository taxonomyMergeRepository;
+    private final PostRepository postRepository;
+    private final PostSearchEngine postSearchEngine;
+    private final SearchResultCache searchResultCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
-    public List<Category> listCategories() {
-        return categoryRepository.findAllWithPostCount();
+    public List<CategoryPostCount> listCategories() {
+        return categoryRepository.findAllWithPostCount(PostStatus.PUBLISHED);
     }
 
     @Override
@@ -30,20 +45,47 @@ public class CategoryServiceImpl implements CategoryService {
         if (categoryRepository.existsByNameIgnoreCase(categoryName)) {
             throw new IllegalArgumentException("Category with name " + categoryName + " already exists");
         }
-        return categoryRepository.save(category);
+        Category savedCategory = categoryRepository.save(category);
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.CATEGORY, savedCategory.getId()));
+        return savedCategory;
     }
 
     @Override
+    @Transactional
     public void deleteCategory(UUID id) {
-        Optional<Category> category = categoryRepository.findById(id);
-        if (category.isPresent()) {
+        if (categoryRepository.existsById(id)) {
             // if there are posts associated with the category, we throw an error
-            if (!category.get().getPosts().isEmpty()) {
+            if (postRepository.existsByCategoryId(id)) {
                 throw new IllegalArgumentException("Category with id " + id + " already has posts");
             }
             // as we know, we get all these CRUD functions for free when using the JpaRepository
             categoryRepository.deleteById(id);
+            eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.CATEGORY, id));
+        }
+    }
+
+    // moves every post of the source category to the target category; the emptied source can then be deleted
+    @Override
+    @Transactional
+    public Category movePosts(UUID sourceId, UUID targetId) {
+        if (sourceId.equals(targetId)) {
+            throw new IllegalArgumentException("Cannot move posts into the category they are in");
+        }
+        Category target = getCategoryById(targetId);
+        if (!categoryRepository.existsById(sourceId)) {
+            throw new EntityNotFoundException("Category with id " + sourceId + " not found");
+        }
+
+        Set<UUID> postIds = new HashSet<>(taxonomyMergeRepository.findPostIdsInCategory(sourceId));
+        taxonomyMergeRepository.moveCategory(sourceId, targetId);
+
+        postSearchEngine.indexPosts(postIds);
+        searchResultCache.postChanged(Set.of(sourceId, targetId), Set.of());
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.CATEGORY, Set.of(sourceId, targetId)));
+        if (!postIds.isEmpty()) {
+            eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.POST, postIds));
         }
+        return target;
     }
 
     @Override
@@ -1,39 +1,84 @@
 package com.mehrdad.SafePost.services.impl;
 
+import com.mehrdad.SafePost.domain.ImageVariant;
+import com.mehrdad.SafePost.domain.entities.StoredFile;
+import com.mehrdad.SafePost.domain.entities.StoredFileReference;
+import com.mehrdad.SafePost.repositories.StoredFileReferenceRepository;
+import com.mehrdad.SafePost.repositories.StoredFileRepository;
+import com.mehrdad.SafePost.repositories.UserRepository;
 import com.mehrdad.SafePost.services.FileStorageService;
+import com.mehrdad.SafePost.services.ImageVariantService;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
-import java.util.Arrays;
-import java.util.List;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Optional;
 import java.util.UUID;
+import java.util.regex.Pattern;
 
+/*
+Uploads are content-addressed: a file is named after the SHA-256 of its bytes, computed while the
+upload is copied to a temporary file, so the same image uploaded again is not stored twice and its
+URL always serves the same bytes, which is what makes the one-year Cache-Control of FileController
+safe. Every upload adds a reference for the uploading user and every delete releases one of the
+caller's, so the name being public does not let anyone remove a file others still use; the file and
+its variants are only removed with the last reference of any user.
+
+Files uploaded before this have random names and no references, and are deleted right away as before.
+*/
 @Service
 @Slf4j
 public class FileStorageServiceImpl implements FileStorageService {
 
     private final Path coverImagesLocation;
     private final Path avatarsLocation;
+    private final ImageVariantService imageVariantService;
+    private final StoredFileRepository storedFileRepository;
+    private final StoredFileReferenceRepository storedFileReferenceRepository;
+    private final UserRepository userRepository;
+    private final TransactionTemplate transactionTemplate;
     private static final long MAX_FILE_SIZE = 5 * 1024 * 1024; // 5MB
-    private static final List<String> ALLOWED_CONTENT_TYPES = Arrays.asList(
-            "image/jpeg",
-            "image/jpg",
-            "image/png",
-            "image/gif",
-            "image/webp"
+    private static final String COVERS = "covers";
+    private static final String AVATARS = "avatars";
+    private static final int MAX_STORE_ATTEMPTS = 3;
+    private static final Pattern CONTENT_ADDRESSED = Pattern.compile("[0-9a-f]{64}\\.[a-z]+");
+    // the extension follows the content type, so the same bytes always get the same name
+    private static final Map<String, String> EXTENSIONS = Map.of(
+            "image/jpeg", ".jpg",
+            "image/jpg", ".jpg",
+            "image/png", ".png",
+            "image/gif", ".gif",
+            "image/webp", ".webp"
     );
 
-    public FileStorageServiceImpl(@Value("${file.upload.dir:uploads/covers}") String uploadDir) throws IOException {
+    public FileStorageServiceImpl(@Value("${file.upload.dir:uploads/covers}") String uploadDir,
+                                  ImageVariantService imageVariantService,
+                                  StoredFileRepository storedFileRepository,
+                                  StoredFileReferenceRepository storedFileReferenceRepository,
+                                  UserRepository userRepository,
+                                  PlatformTransactionManager transactionManager) throws IOException {
+        this.imageVariantService = imageVariantService;
+        this.storedFileRepository = storedFileRepository;
+        this.storedFileReferenceRepository = storedFileReferenceRepository;
+        this.userRepository = userRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
         this.coverImagesLocation = Paths.get(uploadDir).toAbsolutePath().normalize();
         Files.createDirectories(this.coverImagesLocation);
 
@@ -45,7 +90,7 @@ public class FileStorageServiceImpl implements FileStorageService {
     }
 
     @Override
-    public String storeCoverImage(MultipartFile file) throws IOException {
+    public String storeCoverImage(MultipartFile file, UUID ownerId) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Cannot store empty file");
         }
@@ -54,46 +99,34 @@ public class FileStorageServiceImpl implements FileStorageService {
             throw new IllegalArgumentException("Invalid image file");
         }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-        String filename = UUID.randomUUID() + extension;
-
-        // Store file
-        Path targetLocation = this.coverImagesLocation.resolve(filename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
+        String filename = store(file, this.coverImagesLocation, COVERS, ownerId);
         log.info("Stored cover image: {}", filename);
         return filename;
     }
 
     @Override
-    public Resource loadCoverImage(String filename) throws IOException {
-        try {
-            Path filePath = this.coverImagesLocation.resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+    public ImageVariant loadCoverImage(String filename, Integer width) throws IOException {
+        return imageVariantService.resolve(existingFile(this.coverImagesLocation, filename), width);
+    }
 
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new IOException("File not found: " + filename);
-            }
-        } catch (MalformedURLException ex) {
-            throw new IOException("File not found: " + filename, ex);
+    @Override
+    public Optional<String> getCoverImagePlaceholder(String filename) {
+        if (filename == null || filename.isEmpty()) {
+            return Optional.empty();
         }
+        return imageVariantService.getPlaceholder(this.coverImagesLocation.resolve(filename).normalize());
     }
 
     @Override
-    public void deleteCoverImage(String filename) throws IOException {
+    @Transactional(rollbackFor = IOException.class)
+    public void deleteCoverImage(String filename, UUID ownerId) throws IOException {
         if (filename == null || filename.isEmpty()) {
             return;
         }
 
-        Path filePath = this.coverImagesLocation.resolve(filename).normalize();
-        Files.deleteIfExists(filePath);
-        log.info("Deleted cover image: {}", filename);
+        if (release(filename, this.coverImagesLocation, COVERS, ownerId)) {
+            log.info("Deleted cover image: {}", filename);
+        }
     }
 
     @Override
@@ -106,7 +139,7 @@ public class FileStorageServiceImpl implements FileStorageService {
 
         // Check content type
         String contentType = file.getContentType();
-        if (contentType == null || !ALLOWED_CONTENT_TYPES.contains(contentType.toLowerCase())) {
+        if (contentType == null || !EXTENSIONS.containsKey(contentType.toLowerCase())) {
             log.warn("Invalid content type: {}", contentType);
             return false;
         }
@@ -115,7 +148,7 @@ public class FileStorageServiceImpl implements FileStorageService {
     }
 
     @Override
-    public String storeAvatar(MultipartFile file) throws IOException {
+    public String storeAvatar(MultipartFile file, UUID ownerId) throws IOException {
         if (file.isEmpty()) {
             throw new IllegalArgumentException("Cannot store empty file");
         }
@@ -124,45 +157,167 @@ public class FileStorageServiceImpl implements FileStorageService {
             throw new IllegalArgumentException("Invalid image file");
         }
 
-        // Generate unique filename
-        String originalFilename = file.getOriginalFilename();
-        String extension = originalFilename != null && originalFilename.contains(".")
-                ? originalFilename.substring(originalFilename.lastIndexOf("."))
-                : ".jpg";
-        String filename = UUID.randomUUID() + extension;
-
-        // Store file
-        Path targetLocation = this.avatarsLocation.resolve(filename);
-        Files.copy(file.getInputStream(), targetLocation, StandardCopyOption.REPLACE_EXISTING);
-
+        String filename = store(file, this.avatarsLocation, AVATARS, ownerId);
         log.info("Stored avatar: {}", filename);
         return filename;
     }
 
     @Override
-    public Resource loadAvatar(String filename) throws IOException {
+    public ImageVariant loadAvatar(String filename, Integer width) throws IOException {
+        return imageVariantService.resolve(existingFile(this.avatarsLocation, filename), width);
+    }
+
+    @Override
+    @Transactional(rollbackFor = IOException.class)
+    public void deleteAvatar(String filename, UUID ownerId) throws IOException {
+        if (filename == null || filename.isEmpty()) {
+            return;
+        }
+
+        if (release(filename, this.avatarsLocation, AVATARS, ownerId)) {
+            log.info("Deleted avatar: {}", filename);
+        }
+    }
+
+    private String store(MultipartFile file, Path location, String directory, UUID ownerId) throws IOException {
+        Path temporary = Files.createTempFile(location, "upload-", ".tmp");
         try {
-            Path filePath = this.avatarsLocation.resolve(filename).normalize();
-            Resource resource = new UrlResource(filePath.toUri());
+            MessageDigest digest = sha256();
+            try (InputStream in = new DigestInputStream(file.getInputStream(), digest)) {
+                Files.copy(in, temporary, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String filename = HexFormat.of().formatHex(digest.digest())
+                    + EXTENSIONS.get(file.getContentType().toLowerCase());
+            Path target = location.resolve(filename);
 
-            if (resource.exists() && resource.isReadable()) {
-                return resource;
-            } else {
-                throw new IOException("File not found: " + filename);
+            for (int attempt = 0; attempt < MAX_STORE_ATTEMPTS; attempt++) {
+                createStoredFile(directory, filename);
+                Boolean created = inTransaction(() -> addReference(directory, filename, ownerId, temporary, target));
+                if (created != null) {
+                    if (created) {
+                        imageVariantService.scheduleVariants(target);
+                    }
+                    return filename;
+                }
             }
-        } catch (MalformedURLException ex) {
-            throw new IOException("File not found: " + filename, ex);
+            throw new IllegalStateException("Could not store " + filename + ", it keeps being deleted");
+        } finally {
+            Files.deleteIfExists(temporary);
         }
     }
 
-    @Override
-    public void deleteAvatar(String filename) throws IOException {
-        if (filename == null || filename.isEmpty()) {
+    // outside of a transaction, so a concurrent upload of the same content failing on the unique key is harmless
+    private void createStoredFile(String directory, String filename) {
+        if (storedFileRepository.findByDirectoryAndFilename(directory, filename).isPresent()) {
             return;
         }
+        try {
+            storedFileRepository.saveAndFlush(StoredFile.builder().directory(directory).filename(filename).build());
+        } catch (DataIntegrityViolationException e) {
+            log.debug("{} was stored concurrently", filename);
+        }
+    }
+
+    /*
+    Under the row lock, which a delete holds until it has removed the file: the reference is written
+    first and the file moved into place after, so a failed move rolls the reference back. Returns
+    whether the file was moved into place, null when the last reference was released since the row
+    was created, which removed the row as well.
+    */
+    private Boolean addReference(String directory, String filename, UUID ownerId, Path temporary, Path target) throws IOException {
+        Optional<StoredFile> storedFile = storedFileRepository.findForUpdate(directory, filename);
+        if (storedFile.isEmpty()) {
+            return null;
+        }
+        StoredFileReference reference = storedFileReferenceRepository
+                .findByStoredFileIdAndOwnerId(storedFile.get().getId(), ownerId)
+                .orElseGet(() -> StoredFileReference.builder()
+                        .storedFile(storedFile.get())
+                        .owner(userRepository.getReferenceById(ownerId))
+                        .build());
+        reference.setRefCount(reference.getRefCount() + 1);
+        storedFileReferenceRepository.saveAndFlush(reference);
 
-        Path filePath = this.avatarsLocation.resolve(filename).normalize();
+        if (Files.exists(target)) {
+            return false;
+        }
+        Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE);
+        return true;
+    }
+
+    /*
+    Releases one of the caller's references, and with the last reference of any user removes the file
+    and its variants; returns whether it did. Runs in the caller's transaction, so the row stays locked
+    until the file is gone.
+    */
+    private boolean release(String filename, Path location, String directory, UUID ownerId) throws IOException {
+        Path filePath = location.resolve(filename).normalize();
+        Optional<StoredFile> storedFile = storedFileRepository.findForUpdate(directory, filename);
+        if (storedFile.isEmpty()) {
+            if (CONTENT_ADDRESSED.matcher(filename).matches()) {
+                // no references left, or never stored
+                return false;
+            }
+            // uploaded before files were content-addressed
+            imageVariantService.deleteVariants(filePath);
+            Files.deleteIfExists(filePath);
+            return true;
+        }
+
+        Optional<StoredFileReference> reference = storedFileReferenceRepository
+                .findByStoredFileIdAndOwnerId(storedFile.get().getId(), ownerId);
+        if (reference.isEmpty()) {
+            log.debug("{} holds no reference to {}", ownerId, filename);
+            return false;
+        }
+        if (reference.get().getRefCount() > 1) {
+            reference.get().setRefCount(reference.get().getRefCount() - 1);
+            return false;
+        }
+        storedFileReferenceRepository.delete(reference.get());
+        storedFileReferenceRepository.flush();
+        if (storedFileReferenceRepository.existsByStoredFileId(storedFile.get().getId())) {
+            return false;
+        }
+
+        storedFileRepository.delete(storedFile.get());
+        storedFileRepository.flush();
+        imageVariantService.deleteVariants(filePath);
         Files.deleteIfExists(filePath);
-        log.info("Deleted avatar: {}", filename);
+        return true;
+    }
+
+    private interface IOCallback<T> {
+        T run() throws IOException;
+    }
+
+    private <T> T inTransaction(IOCallback<T> callback) throws IOException {
+        try {
+            return transactionTemplate.execute(status -> {
+                try {
+                    return callback.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static Path existingFile(Path location, String filename) throws IOException {
+        Path filePath = location.resolve(filename).normalize();
+        if (!Files.isRegularFile(filePath) || !Files.isReadable(filePath)) {
+            throw new IOException("File not found: " + filename);
+        }
+        return filePath;
     }
 }
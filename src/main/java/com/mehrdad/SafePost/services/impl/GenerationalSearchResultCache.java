@@ -0,0 +1,176 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.domain.dtos.SearchCacheStatsDto;
+import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.services.SearchResultCache;
+import com.mehrdad.SafePost.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/*
+Search result cache: normalized (query, filters, cursor, page size) -> the ids of the page, in order.
+
+Only ids are cached; the summaries are loaded by primary key on every hit, so like and view counts
+are always current and a hit costs one cheap query instead of a full-text search.
+
+Freshness uses generation counters instead of scanning the cache on writes. Every category and tag
+has a counter, plus one for "any post", and a post write bumps the counters of its categories and
+tags before and after the change. An entry remembers the sum of the counters it depends on:
+  - its category when it filters by category (every post entering, leaving or changing inside the
+    category bumps it),
+  - otherwise its tags when it filters by tags,
+  - otherwise the "any post" counter.
+Counters only grow, so an entry is current exactly when that sum is unchanged; stale entries are
+dropped lazily when they are looked up.
+
+Each instance only sees its own writes, so the ttl bounds how long another instance's change can
+stay hidden.
+*/
+@Service
+@Slf4j
+public class GenerationalSearchResultCache implements SearchResultCache {
+
+    private static final UUID ANY_POST = new UUID(0L, 0L);
+
+    private record Key(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize) {
+    }
+
+    private record Entry(List<UUID> postIds, String nextCursor, boolean hasMore, long stamp) {
+    }
+
+    private final PostRepository postRepository;
+    private final int maxEntries;
+    private final LruCache<Key, Entry> cache; // null when caching is disabled
+
+    private final ConcurrentHashMap<UUID, AtomicLong> generations = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder staleEntries = new LongAdder();
+
+    public GenerationalSearchResultCache(PostRepository postRepository,
+                                         @Value("${search.cache.max-entries:1000}") int maxEntries,
+                                         @Value("${search.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.postRepository = postRepository;
+        this.maxEntries = maxEntries;
+        this.cache = maxEntries > 0 ? new LruCache<>(maxEntries, Duration.ofSeconds(ttlSeconds).toNanos()) : null;
+        log.info("Search result cache {}", cache == null ? "disabled" : "holds " + maxEntries + " pages for " + ttlSeconds + "s");
+    }
+
+    @Override
+    public CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize,
+                                          Supplier<CursorPage<PostSummary>> search) {
+        if (cache == null) {
+            return search.get();
+        }
+
+        Key key = new Key(normalize(query), categoryId, tags, cursor, pageSize);
+        Set<UUID> dependencies = dependenciesOf(categoryId, tags);
+        // read before searching: a write committing during the search leaves this entry stale, not wrong
+        long stamp = stampOf(dependencies);
+
+        Entry entry = cache.get(key);
+        if (entry != null && entry.stamp() == stamp) {
+            hits.increment();
+            return CursorPage.<PostSummary>builder()
+                    .items(postRepository.findSummariesInOrder(entry.postIds()))
+                    .nextCursor(entry.nextCursor())
+                    .hasMore(entry.hasMore())
+                    .build();
+        }
+        if (entry != null) {
+            staleEntries.increment();
+        }
+        misses.increment();
+
+        CursorPage<PostSummary> page = search.get();
+        cache.put(key, new Entry(
+                page.getItems().stream().map(PostSummary::id).toList(),
+                page.getNextCursor(),
+                page.isHasMore(),
+                stamp));
+        return page;
+    }
+
+    @Override
+    public void postChanged(Collection<UUID> categoryIds, Collection<UUID> tagIds) {
+        Set<UUID> changed = new HashSet<>(categoryIds);
+        changed.addAll(tagIds);
+        changed.add(ANY_POST);
+        // bumped only after commit, otherwise a search could cache the old rows under the new stamp
+        afterCommit(() -> changed.forEach(id -> generations.computeIfAbsent(id, k -> new AtomicLong()).incrementAndGet()));
+    }
+
+    @Override
+    public SearchCacheStatsDto stats() {
+        long hitCount = hits.sum();
+        long missCount = misses.sum();
+        long lookups = hitCount + missCount;
+        return SearchCacheStatsDto.builder()
+                .size(cache == null ? 0 : cache.size())
+                .maxEntries(Math.max(maxEntries, 0))
+                .hits(hitCount)
+                .misses(missCount)
+                .hitRate(lookups == 0 ? 0 : (double) hitCount / lookups)
+                .staleEntries(staleEntries.sum())
+                .evictions(cache == null ? 0 : cache.evictions())
+                .build();
+    }
+
+    // "Spring  Boot" and "spring boot" find the same posts in every engine
+    private static String normalize(String query) {
+        return query.trim().replaceAll("\\s+", " ").toLowerCase(Locale.ROOT);
+    }
+
+    private static Set<UUID> dependenciesOf(UUID categoryId, TagFilter tags) {
+        if (categoryId != null) {
+            return Set.of(categoryId);
+        }
+        if (!tags.isEmpty()) {
+            return tags.tagIds();
+        }
+        return Set.of(ANY_POST);
+    }
+
+    private long stampOf(Set<UUID> dependencies) {
+        long stamp = 0;
+        for (UUID id : dependencies) {
+            AtomicLong generation = generations.get(id);
+            if (generation != null) {
+                stamp += generation.get();
+            }
+        }
+        return stamp;
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,52 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostCursor;
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.services.PostSearchEngine;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.data.domain.Limit;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.UUID;
+
+// Portable fallback (e.g. H2 in tests): unranked substring matching, newest posts first.
+// Every search scans all post bodies, so it is not meant for production data sizes.
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "like")
+@RequiredArgsConstructor
+public class LikePostSearchEngine implements PostSearchEngine {
+
+    private final PostRepository postRepository;
+
+    @Override
+    public CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize) {
+        PostCursor position = PostCursor.decode(cursor);
+        List<PostSummary> posts = postRepository.searchSummaryPage(
+                query,
+                PostStatus.PUBLISHED,
+                categoryId,
+                tags.tagIds(),
+                tags.requiredMatches(),
+                position.createdAt(),
+                position.id(),
+                Limit.of(pageSize + 1)
+        );
+        return CursorPage.fromOverfetched(posts, pageSize, post -> PostCursor.of(post.createdAt(), post.id()).encode());
+    }
+
+    @Override
+    public void indexPost(UUID postId) {
+        // nothing to maintain, the query reads the posts table directly
+    }
+
+    @Override
+    public void removePost(UUID postId) {
+        // nothing to maintain, the query reads the posts table directly
+    }
+}
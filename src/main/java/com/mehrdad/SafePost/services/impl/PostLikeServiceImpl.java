@@ -1,20 +1,20 @@
 package com.mehrdad.SafePost.services.impl;
 
+import com.mehrdad.SafePost.domain.LikeToggle;
 import com.mehrdad.SafePost.domain.dtos.LikeResponse;
-import com.mehrdad.SafePost.domain.entities.Post;
-import com.mehrdad.SafePost.domain.entities.PostLike;
-import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.repositories.PostCounterRepository;
 import com.mehrdad.SafePost.repositories.PostLikeRepository;
 import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.services.HotPostCounterService;
 import com.mehrdad.SafePost.services.PostLikeService;
-import com.mehrdad.SafePost.services.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.Optional;
+import java.util.Collection;
+import java.util.Set;
 import java.util.UUID;
 
 @Service
@@ -22,61 +22,61 @@ import java.util.UUID;
 @Slf4j
 public class PostLikeServiceImpl implements PostLikeService {
 
+    // same as the largest page of the post list
+    private static final int MAX_BATCH_SIZE = 100;
+
     private final PostLikeRepository postLikeRepository;
     private final PostRepository postRepository;
-    private final UserService userService;
+    private final PostCounterRepository postCounterRepository;
+    private final HotPostCounterService hotPostCounterService;
 
     @Override
     @Transactional
     public LikeResponse toggleLike(UUID postId, UUID userId) {
-        Post post = postRepository.findById(postId)
+        // like/unlike and the counter update happen in one statement, without loading the post or the user;
+        // hot posts add the delta to a counter shard instead of locking the posts row
+        LikeToggle toggle = (hotPostCounterService.isHot(postId)
+                ? postCounterRepository.toggleLikeInShard(postId, userId, hotPostCounterService.pickShard())
+                : postCounterRepository.toggleLike(postId, userId))
                 .orElseThrow(() -> new EntityNotFoundException("Post not found with id: " + postId));
-        User user = userService.getUserById(userId);
-
-        Optional<PostLike> existingLike = postLikeRepository.findByPostAndUser(post, user);
-
-        boolean liked;
-        if (existingLike.isPresent()) {
-            // Unlike: delete like and decrement counter
-            postLikeRepository.delete(existingLike.get());
-            post.setLikesCount(Math.max(0, post.getLikesCount() - 1));
-            liked = false;
-            log.info("User {} unliked post {}", userId, postId);
-        } else {
-            // Like: create like and increment counter
-            PostLike newLike = PostLike.builder()
-                    .post(post)
-                    .user(user)
-                    .build();
-            postLikeRepository.save(newLike);
-            post.setLikesCount(post.getLikesCount() + 1);
-            liked = true;
-            log.info("User {} liked post {}", userId, postId);
-        }
+        hotPostCounterService.recordWrite(postId);
 
-        postRepository.save(post);
+        log.debug("User {} {} post {}", userId, toggle.liked() ? "liked" : "unliked", postId);
 
         return LikeResponse.builder()
-                .likesCount(post.getLikesCount())
-                .liked(liked)
+                .likesCount(toggle.likesCount())
+                .liked(toggle.liked())
                 .build();
     }
 
     @Override
     @Transactional(readOnly = true)
     public boolean hasUserLikedPost(UUID postId, UUID userId) {
-        Post post = postRepository.findById(postId)
-                .orElseThrow(() -> new EntityNotFoundException("Post not found with id: " + postId));
-        User user = userService.getUserById(userId);
+        if (!postRepository.existsById(postId)) {
+            throw new EntityNotFoundException("Post not found with id: " + postId);
+        }
+        return postLikeRepository.existsByPostIdAndUserId(postId, userId);
+    }
 
-        return postLikeRepository.existsByPostAndUser(post, user);
+    @Override
+    @Transactional(readOnly = true)
+    public Set<UUID> getLikedPostIds(UUID userId, Collection<UUID> postIds) {
+        if (postIds.isEmpty()) {
+            return Set.of();
+        }
+        if (postIds.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Cannot look up more than " + MAX_BATCH_SIZE + " posts at once");
+        }
+        return postLikeRepository.findLikedPostIds(userId, postIds);
     }
 
     @Override
     @Transactional(readOnly = true)
     public Integer getLikesCount(UUID postId) {
-        Post post = postRepository.findById(postId)
+        // a hot post's count is only complete with the deltas not yet folded from its shards
+        return (hotPostCounterService.isHot(postId)
+                ? postCounterRepository.countLikesWithShards(postId)
+                : postRepository.findLikesCountById(postId))
                 .orElseThrow(() -> new EntityNotFoundException("Post not found with id: " + postId));
-        return post.getLikesCount();
     }
 }
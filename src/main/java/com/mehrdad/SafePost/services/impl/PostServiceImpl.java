@@ -1,28 +1,48 @@
 package com.mehrdad.SafePost.services.impl;
 
 import com.mehrdad.SafePost.domain.CreatePostRequest;
+import com.mehrdad.SafePost.domain.PostCursor;
 import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.PostTagRow;
+import com.mehrdad.SafePost.domain.TagFilter;
 import com.mehrdad.SafePost.domain.UpdatePostRequest;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.domain.dtos.PostSummaryDto;
+import com.mehrdad.SafePost.domain.dtos.TagDto;
 import com.mehrdad.SafePost.domain.entities.Category;
 import com.mehrdad.SafePost.domain.entities.Post;
 import com.mehrdad.SafePost.domain.entities.Tag;
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.domain.enums.ContentType;
 import com.mehrdad.SafePost.domain.enums.Role;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.mappers.PostMapper;
 import com.mehrdad.SafePost.repositories.PostRepository;
-import com.mehrdad.SafePost.services.CategoryService;
+import com.mehrdad.SafePost.services.FileStorageService;
+import com.mehrdad.SafePost.services.FuzzySearchService;
+import com.mehrdad.SafePost.services.PostSearchEngine;
 import com.mehrdad.SafePost.services.PostService;
-import com.mehrdad.SafePost.services.TagService;
+import com.mehrdad.SafePost.services.RelatedPostsService;
+import com.mehrdad.SafePost.services.SearchResultCache;
+import com.mehrdad.SafePost.services.TaxonomyService;
 import com.mehrdad.SafePost.services.UserService;
+import com.mehrdad.SafePost.services.ViewCounterService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
 import org.springframework.security.access.AccessDeniedException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
@@ -30,58 +50,59 @@ import java.util.stream.Collectors;
 public class PostServiceImpl implements PostService {
 
     private final PostRepository postRepository;
-    private final CategoryService categoryService;
-    private final TagService tagService;
+    private final TaxonomyService taxonomyService;
     private final UserService userService;
+    private final PostMapper postMapper;
+    private final ViewCounterService viewCounterService;
+    private final PostSearchEngine postSearchEngine;
+    private final SearchResultCache searchResultCache;
+    private final FuzzySearchService fuzzySearchService;
+    private final RelatedPostsService relatedPostsService;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FileStorageService fileStorageService;
 
     private static final int WORDS_PER_MINUTE = 200;
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 100;
+    private static final String COVER_IMAGE_URL_PREFIX = "/api/v1/files/covers/";
+    private static final int EXCERPT_LENGTH = 200;
+    private static final Pattern HTML_TAG = Pattern.compile("<[^>]*>");
 
     @Override
     public Post getPost(UUID id) {
-        return postRepository.findById(id)
+        return postRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Post not found with id: " + id));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Post> getAllPosts(UUID categoryId, UUID tagId) {
-
-        // both category id and tag id are specified
-        if (categoryId != null && tagId != null) {
-            Category category = categoryService.getCategoryById(categoryId);
-            Tag tag = tagService.getTagByID(tagId);
-            return postRepository.findAllByStatusAndCategoryAndTagsContaining(
-                    PostStatus.PUBLISHED,
-                    category,
-                    tag
-            );
-        }
-
-        // if category id exists only
-        if (categoryId != null) {
-            Category category = categoryService.getCategoryById(categoryId);
-            return postRepository.findAllByStatusAndCategory(
-                    PostStatus.PUBLISHED,
-                    category
-            );
-        }
-
-        // if tag id exists only
-        if (tagId != null) {
-            Tag tag = tagService.getTagByID(tagId);
-            return postRepository.findAllByStatusAndTagsContaining(
-                    PostStatus.PUBLISHED,
-                    tag
-            );
-        }
+    public CursorPage<PostSummaryDto> getAllPosts(UUID categoryId, TagFilter tags, String cursor, int limit) {
+        PostCursor position = PostCursor.decode(cursor);
+        int pageSize = clampPageSize(limit);
+
+        // fetch one extra row to find out whether there is a next page without a COUNT query
+        List<PostSummary> posts = postRepository.findSummaryPage(
+                PostStatus.PUBLISHED,
+                categoryId,
+                tags.tagIds(),
+                tags.requiredMatches(),
+                position.createdAt(),
+                position.id(),
+                Limit.of(pageSize + 1)
+        );
+        return toCursorPage(posts, pageSize);
+    }
 
-        // when both are null --> we want to return all the published posts
-        return postRepository.findAllByStatus(PostStatus.PUBLISHED);
+    @Override
+    @Transactional(readOnly = true)
+    public List<PostSummaryDto> getDraftPosts(UUID authorId) {
+        return toSummaryDtos(postRepository.findSummariesByAuthorAndStatus(authorId, PostStatus.DRAFT));
     }
 
     @Override
-    public List<Post> getDraftPosts(User user) {
-        return postRepository.findALlByAuthorAndStatus(user, PostStatus.DRAFT);
+    @Transactional(readOnly = true)
+    public List<PostSummaryDto> getRelatedPosts(UUID id, int limit) {
+        return toSummaryDtos(postRepository.findSummariesInOrder(relatedPostsService.getRelatedPostIds(id, limit)));
     }
 
     @Override
@@ -93,6 +114,7 @@ public class PostServiceImpl implements PostService {
         newPost.setStatus(createPostRequest.getStatus());
         newPost.setAuthor(user);
         newPost.setReadingTime(calculateReadingTime(createPostRequest.getContent()));
+        newPost.setExcerpt(createExcerpt(createPostRequest.getContent()));
 
         // Set cover image fields if provided
         newPost.setCoverImageUrl(createPostRequest.getCoverImageUrl());
@@ -100,14 +122,19 @@ public class PostServiceImpl implements PostService {
         newPost.setCoverImageSize(createPostRequest.getCoverImageSize());
         newPost.setCoverImageContentType(createPostRequest.getCoverImageContentType());
 
-        Category category = categoryService.getCategoryById(createPostRequest.getCategoryId());
+        // ids are checked against the taxonomy snapshot, the post only needs references to write its keys
+        Category category = taxonomyService.getCategoryReference(createPostRequest.getCategoryId());
         newPost.setCategory(category);
 
         Set<UUID> tagIds = createPostRequest.getTagIds();
-        List<Tag> tags = tagService.getTagByIds(tagIds);
-        newPost.setTags(new HashSet<>(tags));
-
-        return postRepository.save(newPost);
+        newPost.setTags(taxonomyService.getTagReferences(tagIds));
+
+        // flushed so the search index is built from the row and tags as just written
+        Post savedPost = postRepository.saveAndFlush(newPost);
+        postSearchEngine.indexPost(savedPost.getId());
+        searchResultCache.postChanged(Set.of(category.getId()), tagIds);
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.POST, savedPost.getId()));
+        return savedPost;
     }
 
     // simple private method to calculate the reading time of the post
@@ -120,10 +147,33 @@ public class PostServiceImpl implements PostService {
         return (int) Math.ceil((double) wordCount / WORDS_PER_MINUTE);
     }
 
+    // plain-text teaser for post cards: strip the editor HTML, collapse whitespace and
+    // cut at the last complete word before EXCERPT_LENGTH characters
+    private String createExcerpt(String content) {
+        if (content == null || content.isEmpty()) {
+            return "";
+        }
+
+        // &amp; goes last, so an escaped "&amp;lt;" comes out as the text "&lt;" it renders as
+        String text = HTML_TAG.matcher(content).replaceAll(" ")
+                .replace("&nbsp;", " ")
+                .replace("&lt;", "<")
+                .replace("&gt;", ">")
+                .replace("&amp;", "&")
+                .replaceAll("\\s+", " ")
+                .trim();
+        if (text.length() <= EXCERPT_LENGTH) {
+            return text;
+        }
+
+        int lastSpace = text.lastIndexOf(' ', EXCERPT_LENGTH);
+        return text.substring(0, lastSpace > 0 ? lastSpace : EXCERPT_LENGTH) + "...";
+    }
+
     @Override
     @Transactional
     public Post updatePost(UUID id, UUID userId, UpdatePostRequest updatePostRequest) {
-        Post existingPost = postRepository.findById(id)
+        Post existingPost = postRepository.findWithDetailsById(id)
                 .orElseThrow(() -> new EntityNotFoundException("Post with id " + id + " not found!"));
 
         // Check ownership - users can only update their own posts
@@ -131,24 +181,28 @@ public class PostServiceImpl implements PostService {
             throw new AccessDeniedException("You can only update your own posts");
         }
 
+        // cached searches are invalidated for where the post was as well as where it ends up
+        Set<UUID> affectedCategoryIds = new HashSet<>(Set.of(existingPost.getCategory().getId()));
+        Set<UUID> affectedTagIds = existingPost.getTags().stream().map(Tag::getId).collect(Collectors.toSet());
+
         String postContent = updatePostRequest.getContent();
 
         existingPost.setTitle(updatePostRequest.getTitle());
         existingPost.setContent(postContent);
         existingPost.setStatus(updatePostRequest.getStatus());
         existingPost.setReadingTime(calculateReadingTime(postContent));
+        existingPost.setExcerpt(createExcerpt(postContent));
 
         UUID updatePostRequestCategoryId = updatePostRequest.getCategoryId();
         if (!existingPost.getCategory().getId().equals(updatePostRequestCategoryId)) {
-            Category newCategory = categoryService.getCategoryById(updatePostRequestCategoryId);
+            Category newCategory = taxonomyService.getCategoryReference(updatePostRequestCategoryId);
             existingPost.setCategory(newCategory);
         }
 
         Set<UUID> existingTagIds = existingPost.getTags().stream().map(Tag::getId).collect(Collectors.toSet());
         Set<UUID> updatePostRequestTagIds = updatePostRequest.getTagIds();
         if (!existingTagIds.equals(updatePostRequestTagIds)) {
-            List<Tag> newTags = tagService.getTagByIds(updatePostRequestTagIds);
-            existingPost.setTags(new HashSet<>(newTags));
+            existingPost.setTags(taxonomyService.getTagReferences(updatePostRequestTagIds));
         }
 
         // Update cover image fields if provided
@@ -157,7 +211,13 @@ public class PostServiceImpl implements PostService {
         existingPost.setCoverImageSize(updatePostRequest.getCoverImageSize());
         existingPost.setCoverImageContentType(updatePostRequest.getCoverImageContentType());
 
-        return postRepository.save(existingPost);
+        Post savedPost = postRepository.saveAndFlush(existingPost);
+        postSearchEngine.indexPost(savedPost.getId());
+        affectedCategoryIds.add(savedPost.getCategory().getId());
+        affectedTagIds.addAll(updatePostRequestTagIds);
+        searchResultCache.postChanged(affectedCategoryIds, affectedTagIds);
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.POST, savedPost.getId()));
+        return savedPost;
     }
 
     @Override
@@ -174,50 +234,95 @@ public class PostServiceImpl implements PostService {
         }
 
         postRepository.delete(post);
+        postSearchEngine.removePost(id);
+        searchResultCache.postChanged(
+                Set.of(post.getCategory().getId()),
+                post.getTags().stream().map(Tag::getId).collect(Collectors.toSet()));
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.POST, id));
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.AUTHOR, post.getAuthor().getId()));
     }
 
     @Override
     @Transactional(readOnly = true)
-    public List<Post> searchPosts(String query, UUID categoryId, UUID tagId) {
+    public CursorPage<PostSummaryDto> searchPosts(String query, UUID categoryId, TagFilter tags, String cursor, int limit) {
         // If query is null or empty, return regular posts
         if (query == null || query.trim().isEmpty()) {
-            return getAllPosts(categoryId, tagId);
+            return getAllPosts(categoryId, tags, cursor, limit);
         }
 
-        String sanitizedQuery = query.trim();
-
-        // Search with both category and tag filters
-        if (categoryId != null && tagId != null) {
-            List<Post> categoryResults = postRepository.searchPostsByCategory(
-                    sanitizedQuery, categoryId, PostStatus.PUBLISHED);
-            // Filter by tag manually since we can't combine in single query
-            return categoryResults.stream()
-                    .filter(post -> post.getTags().stream()
-                            .anyMatch(tag -> tag.getId().equals(tagId)))
-                    .toList();
+        String trimmedQuery = query.trim();
+        int pageSize = clampPageSize(limit);
+        return toDtoPage(searchResultCache.search(trimmedQuery, categoryId, tags, cursor, pageSize,
+                () -> postSearchEngine.search(trimmedQuery, categoryId, tags, cursor, pageSize)));
+    }
+
+    @Override
+    @Transactional(readOnly = true)
+    public CursorPage<PostSummaryDto> fuzzySearchPosts(String query, UUID categoryId, TagFilter tags, String cursor, int limit) {
+        if (query == null || query.trim().isEmpty()) {
+            return getAllPosts(categoryId, tags, cursor, limit);
+        }
+
+        return toDtoPage(fuzzySearchService.search(query.trim(), categoryId, tags, cursor, clampPageSize(limit)));
+    }
+
+    private int clampPageSize(int limit) {
+        if (limit <= 0) {
+            return DEFAULT_PAGE_SIZE;
         }
+        return Math.min(limit, MAX_PAGE_SIZE);
+    }
+
+    // the repository returns up to pageSize + 1 rows, the extra row only signals that another page exists
+    private CursorPage<PostSummaryDto> toCursorPage(List<PostSummary> posts, int pageSize) {
+        return toDtoPage(CursorPage.fromOverfetched(
+                posts, pageSize, post -> PostCursor.of(post.createdAt(), post.id()).encode()));
+    }
+
+    private CursorPage<PostSummaryDto> toDtoPage(CursorPage<PostSummary> page) {
+        return CursorPage.<PostSummaryDto>builder()
+                .items(toSummaryDtos(page.getItems()))
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.isHasMore())
+                .build();
+    }
 
-        // Search with category filter
-        if (categoryId != null) {
-            return postRepository.searchPostsByCategory(
-                    sanitizedQuery, categoryId, PostStatus.PUBLISHED);
+    // attach the tags of all summaries with a single query, keeping the order of the summaries
+    private List<PostSummaryDto> toSummaryDtos(List<PostSummary> summaries) {
+        if (summaries.isEmpty()) {
+            return List.of();
         }
 
-        // Search with tag filter
-        if (tagId != null) {
-            return postRepository.searchPostsByTag(
-                    sanitizedQuery, tagId, PostStatus.PUBLISHED);
+        List<UUID> postIds = summaries.stream().map(PostSummary::id).toList();
+        Map<UUID, Set<TagDto>> tagsByPostId = new HashMap<>();
+        for (PostTagRow row : postRepository.findTagsByPostIds(postIds)) {
+            tagsByPostId.computeIfAbsent(row.postId(), id -> new HashSet<>())
+                    .add(TagDto.builder().id(row.tagId()).name(row.tagName()).build());
         }
 
-        // Search all posts
-        return postRepository.searchPosts(sanitizedQuery, PostStatus.PUBLISHED);
+        return summaries.stream()
+                .map(summary -> {
+                    PostSummaryDto dto = postMapper.toSummaryDto(
+                            summary,
+                            tagsByPostId.getOrDefault(summary.id(), Set.of()));
+                    dto.setCoverImagePlaceholder(coverImagePlaceholder(summary.coverImageUrl()));
+                    return dto;
+                })
+                .toList();
+    }
+
+    // only covers uploaded here have a placeholder, a cover may also be an external URL
+    private String coverImagePlaceholder(String coverImageUrl) {
+        if (coverImageUrl == null || !coverImageUrl.startsWith(COVER_IMAGE_URL_PREFIX)) {
+            return null;
+        }
+        return fileStorageService.getCoverImagePlaceholder(coverImageUrl.substring(COVER_IMAGE_URL_PREFIX.length()))
+                .orElse(null);
     }
 
     @Override
-    @Transactional
-    public void incrementViewCount(UUID postId) {
-        Post post = getPost(postId);
-        post.setViewCount(post.getViewCount() + 1);
-        postRepository.save(post);
+    public void incrementViewCount(UUID postId, long viewerHash) {
+        // buffered in memory and flushed in batches, see BufferedViewCounterService
+        viewCounterService.recordView(postId, viewerHash);
     }
 }
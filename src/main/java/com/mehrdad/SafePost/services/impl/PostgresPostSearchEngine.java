@@ -0,0 +1,92 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.repositories.PostSearchRepository;
+import com.mehrdad.SafePost.services.PostSearchEngine;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+/*
+Ranked full-text search on PostgreSQL.
+
+Each post stores a weighted tsvector (title > tags > content) in posts.search_vector, recomputed
+whenever the post is written and indexed by GIN. Queries are parsed with
+websearch_to_tsquery, so users can type "exact phrases", -exclusions and "or", and results are
+ordered by ts_rank_cd.
+*/
+@Service
+@ConditionalOnProperty(name = "search.engine", havingValue = "postgres", matchIfMissing = true)
+@RequiredArgsConstructor
+@Slf4j
+public class PostgresPostSearchEngine implements PostSearchEngine {
+
+    private static final int BACKFILL_BATCH_SIZE = 500;
+
+    private final PostSearchRepository postSearchRepository;
+    private final PostRepository postRepository;
+
+    @Override
+    public CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize) {
+        List<RankedPostId> hits = postSearchRepository.findRankedPostIds(
+                query, PostStatus.PUBLISHED, categoryId, tags, SearchCursor.decode(cursor), pageSize + 1);
+
+        CursorPage<RankedPostId> page = CursorPage.fromOverfetched(
+                hits, pageSize, hit -> SearchCursor.of(hit.rank(), hit.id()).encode());
+
+        // load the cards of the page in one query, in rank order
+        return CursorPage.<PostSummary>builder()
+                .items(postRepository.findSummariesInOrder(page.getItems().stream().map(RankedPostId::id).toList()))
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.isHasMore())
+                .build();
+    }
+
+    @Override
+    public void indexPost(UUID postId) {
+        postSearchRepository.refreshSearchVectors(Set.of(postId));
+    }
+
+    // one UPDATE per chunk of posts instead of one per post
+    @Override
+    public void indexPosts(Collection<UUID> postIds) {
+        List<UUID> ids = List.copyOf(postIds);
+        for (int from = 0; from < ids.size(); from += BACKFILL_BATCH_SIZE) {
+            postSearchRepository.refreshSearchVectors(ids.subList(from, Math.min(from + BACKFILL_BATCH_SIZE, ids.size())));
+        }
+    }
+
+    @Override
+    public void removePost(UUID postId) {
+        // the search document is part of the posts row and goes away with it
+    }
+
+    // posts written before the search_vector column existed are indexed in batches once on startup
+    @EventListener(ApplicationReadyEvent.class)
+    public void indexMissingPosts() {
+        int total = 0;
+        int indexed;
+        do {
+            indexed = postSearchRepository.indexMissingSearchVectors(BACKFILL_BATCH_SIZE);
+            total += indexed;
+        } while (indexed == BACKFILL_BATCH_SIZE);
+
+        if (total > 0) {
+            log.info("Built search documents for {} posts", total);
+        }
+    }
+}
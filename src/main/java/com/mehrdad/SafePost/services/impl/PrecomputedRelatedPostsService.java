@@ -0,0 +1,229 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostDocument;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.repositories.PostDocumentRepository;
+import com.mehrdad.SafePost.services.RelatedPostsService;
+import com.mehrdad.SafePost.util.IndexRebuild;
+import com.mehrdad.SafePost.util.RelatedPostIndex;
+import com.mehrdad.SafePost.util.RelatedPostIndex.Neighbour;
+import com.mehrdad.SafePost.util.TextTokenizer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+
+/*
+Related posts served from precomputed neighbour lists, so a request is one map lookup.
+
+Every published post keeps its 2 * size best neighbours from a RelatedPostIndex; the extra half
+lets a list lose a neighbour to an update or a delete without being recomputed.
+
+A full build loads all published posts and computes the lists of all posts in parallel on a
+fork-join pool. It runs at startup and periodically, which also brings the tf-idf weights back in
+line with the current posts. In between, a committed post change is applied incrementally: the
+post's own list is recomputed, and the post is moved in, within or out of the lists of the posts
+it shares tags or terms with, which the symmetric score allows without rescoring them.
+*/
+@Service
+@Slf4j
+public class PrecomputedRelatedPostsService implements RelatedPostsService {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private record State(RelatedPostIndex index, Map<UUID, NeighbourList> neighbours) {
+    }
+
+    // every post ranking at or above the cutoff is in the list; without a cutoff, every candidate is
+    private record NeighbourList(List<Neighbour> neighbours, Neighbour cutoff) {
+    }
+
+    private final PostDocumentRepository postDocumentRepository;
+    private final TaskExecutor indexRebuildExecutor;
+    private final int size;
+    private final int keep;
+
+    private volatile State state = new State(new RelatedPostIndex(), new ConcurrentHashMap<>());
+
+    // incremental updates run one at a time, and never while a rebuild swaps in its state
+    private final Object updateLock = new Object();
+    private final IndexRebuild<UUID> indexRebuild = new IndexRebuild<>();
+
+    public PrecomputedRelatedPostsService(PostDocumentRepository postDocumentRepository,
+                                          TaskExecutor indexRebuildExecutor,
+                                          @Value("${search.related.size:10}") int size) {
+        this.postDocumentRepository = postDocumentRepository;
+        this.indexRebuildExecutor = indexRebuildExecutor;
+        this.size = size;
+        this.keep = size * 2;
+    }
+
+    @Override
+    public List<UUID> getRelatedPostIds(UUID postId, int limit) {
+        State current = state;
+        NeighbourList list = current.neighbours().get(postId);
+        if (list == null) {
+            return List.of();
+        }
+        return list.neighbours().stream()
+                .map(Neighbour::postId)
+                // a list can still name a post that was unpublished since, when it only filled a category slot
+                .filter(current.index()::contains)
+                .limit(Math.min(Math.max(limit, 1), size))
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${search.related.rebuild-interval-ms:3600000}",
+            initialDelayString = "${search.related.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        State rebuilt = indexRebuild.run(this::build, built -> {
+            synchronized (updateLock) {
+                state = built;
+            }
+        }, this::reindex);
+
+        log.info("Computed related posts for {} posts in {} ms", rebuilt.index().size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(SearchContentChangedEvent event) {
+        if (event.type() != ContentType.POST) {
+            return;
+        }
+        if (event.isBulk()) {
+            // e.g. all posts of a merged tag; off the caller's thread, a rebuild takes a while
+            indexRebuild.schedule(indexRebuildExecutor, () -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to recompute related posts after a bulk change", ex);
+                }
+            });
+        } else {
+            event.ids().forEach(this::reindex);
+        }
+    }
+
+    private State build() {
+        List<RelatedPostIndex.Document> documents = new ArrayList<>();
+        postDocumentRepository.streamPublishedDocuments(REBUILD_BATCH_SIZE, true, batch ->
+                batch.forEach(document -> documents.add(toIndexDocument(document))));
+        RelatedPostIndex index = new RelatedPostIndex();
+        index.addAll(documents);
+
+        Map<UUID, NeighbourList> neighbours = new ConcurrentHashMap<>();
+        ForkJoinPool pool = new ForkJoinPool();
+        try {
+            pool.submit(() -> index.postIds().parallelStream()
+                    .forEach(postId -> neighbours.put(postId, best(index.neighbours(postId, keep))))).join();
+        } finally {
+            pool.shutdown();
+        }
+        return new State(index, neighbours);
+    }
+
+    private void reindex(UUID postId) {
+        indexRebuild.changing(postId);
+        Optional<RelatedPostIndex.Document> document = postDocumentRepository.findPublishedDocument(postId, true)
+                .map(PrecomputedRelatedPostsService::toIndexDocument);
+
+        synchronized (updateLock) {
+            State current = state;
+            RelatedPostIndex index = current.index();
+
+            // the posts that could have listed this one before the change, and those that could now
+            Set<UUID> affected = new LinkedHashSet<>();
+            index.allNeighbours(postId, keep).forEach(neighbour -> affected.add(neighbour.postId()));
+
+            Map<UUID, Float> scores = new HashMap<>();
+            if (document.isPresent()) {
+                index.put(document.get());
+                List<Neighbour> neighbours = index.allNeighbours(postId, keep);
+                neighbours.forEach(neighbour -> {
+                    affected.add(neighbour.postId());
+                    scores.put(neighbour.postId(), neighbour.score());
+                });
+                current.neighbours().put(postId, best(neighbours));
+            } else {
+                // deleted or back to draft
+                index.remove(postId);
+                current.neighbours().remove(postId);
+            }
+
+            for (UUID other : affected) {
+                update(current, other, postId, scores.get(other));
+            }
+        }
+    }
+
+    /*
+    Moves the changed post within the other post's list, or out of it when score is null. Below the
+    cutoff an unlisted post may rank higher, so the changed post is only kept if it ranks above it.
+    */
+    private void update(State current, UUID postId, UUID changedPostId, Float score) {
+        NeighbourList list = current.neighbours().get(postId);
+        if (list == null) {
+            return;
+        }
+        Neighbour changed = score == null ? null : new Neighbour(changedPostId, score);
+        boolean qualifies = changed != null
+                && (list.cutoff() == null || RelatedPostIndex.bestFirst().compare(changed, list.cutoff()) <= 0);
+        List<Neighbour> updated = new ArrayList<>(list.neighbours());
+        boolean listed = updated.removeIf(neighbour -> neighbour.postId().equals(changedPostId));
+        if (!listed && !qualifies) {
+            return;
+        }
+        if (qualifies) {
+            updated.add(changed);
+            updated.sort(RelatedPostIndex.bestFirst());
+        }
+
+        if (updated.size() < size && list.cutoff() != null) {
+            // lost more than its spare neighbours, there may be better ones than what is left
+            current.neighbours().put(postId, best(current.index().neighbours(postId, keep)));
+        } else if (updated.size() > keep) {
+            current.neighbours().put(postId, best(updated));
+        } else {
+            current.neighbours().put(postId, new NeighbourList(List.copyOf(updated), list.cutoff()));
+        }
+    }
+
+    // the first keep neighbours; a shorter list holds every candidate and needs no cutoff
+    private NeighbourList best(List<Neighbour> neighbours) {
+        if (neighbours.size() < keep) {
+            return new NeighbourList(List.copyOf(neighbours), null);
+        }
+        List<Neighbour> kept = List.copyOf(neighbours.subList(0, keep));
+        return new NeighbourList(kept, kept.get(keep - 1));
+    }
+
+    // title words count twice, they say more about a post than a word somewhere in its content
+    private static RelatedPostIndex.Document toIndexDocument(PostDocument document) {
+        Map<String, Integer> termCounts = new HashMap<>();
+        for (String term : TextTokenizer.tokenize(document.title())) {
+            termCounts.merge(term, 2, Integer::sum);
+        }
+        for (String term : TextTokenizer.tokenize(document.content())) {
+            termCounts.merge(term, 1, Integer::sum);
+        }
+        return new RelatedPostIndex.Document(document.id(), document.categoryId(), document.tagIds(), termCounts);
+    }
+}
@@ -0,0 +1,127 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.entities.RefreshToken;
+import com.mehrdad.SafePost.repositories.RefreshTokenRepository;
+import com.mehrdad.SafePost.repositories.UserRepository;
+import com.mehrdad.SafePost.services.RefreshTokenService;
+import com.mehrdad.SafePost.services.UserService;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.security.authentication.CredentialsExpiredException;
+import org.springframework.stereotype.Service;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.HexFormat;
+import java.util.UUID;
+
+/*
+Refresh tokens are random 256-bit values; the database keeps their SHA-256, which is enough to find
+them again because they are not guessable.
+
+Each token is exchanged once (rotation): the exchange marks it used and the caller issues a new one
+with a fresh lifetime, so an active session slides forward while an idle one expires. A used token
+presented again means two parties hold it, so all refresh tokens of the user are deleted and their
+access tokens revoked; only within a few seconds of the exchange is it taken for a second tab
+refreshing at the same time, and just refused.
+*/
+@Service
+@Slf4j
+public class RefreshTokenServiceImpl implements RefreshTokenService {
+
+    private static final int TOKEN_BYTES = 32;
+    private static final Duration REUSE_GRACE = Duration.ofSeconds(10);
+
+    private final RefreshTokenRepository refreshTokenRepository;
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final Duration lifetime;
+    private final Duration rememberMeLifetime;
+
+    private final SecureRandom random = new SecureRandom();
+
+    public RefreshTokenServiceImpl(RefreshTokenRepository refreshTokenRepository,
+                                   UserRepository userRepository,
+                                   UserService userService,
+                                   @Value("${jwt.refresh-token.ttl-seconds:86400}") long ttlSeconds,
+                                   @Value("${jwt.refresh-token.remember-me-ttl-seconds:2592000}") long rememberMeTtlSeconds) {
+        this.refreshTokenRepository = refreshTokenRepository;
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.lifetime = Duration.ofSeconds(ttlSeconds);
+        this.rememberMeLifetime = Duration.ofSeconds(rememberMeTtlSeconds);
+    }
+
+    @Override
+    public String issue(UUID userId, boolean rememberMe) {
+        byte[] bytes = new byte[TOKEN_BYTES];
+        random.nextBytes(bytes);
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(bytes);
+
+        refreshTokenRepository.save(RefreshToken.builder()
+                .user(userRepository.getReferenceById(userId))
+                .tokenHash(hash(token))
+                .rememberMe(rememberMe)
+                .expiresAt(LocalDateTime.now().plus(rememberMe ? rememberMeLifetime : lifetime))
+                .build());
+        return token;
+    }
+
+    @Override
+    public RefreshToken consume(String token) {
+        RefreshToken refreshToken = refreshTokenRepository.findByTokenHash(hash(token))
+                .orElseThrow(RefreshTokenServiceImpl::invalid);
+        LocalDateTime now = LocalDateTime.now();
+        if (refreshToken.getExpiresAt().isBefore(now)) {
+            throw invalid();
+        }
+
+        LocalDateTime usedAt = refreshToken.getUsedAt();
+        if (usedAt != null && usedAt.isBefore(now.minus(REUSE_GRACE))) {
+            UUID userId = refreshToken.getUser().getId();
+            log.warn("Refresh token of user {} was used again after it was exchanged, revoking all their sessions", userId);
+            refreshTokenRepository.deleteByUserId(userId);
+            userService.revokeTokens(userId);
+            throw invalid();
+        }
+        if (usedAt != null || refreshTokenRepository.markUsed(refreshToken.getId(), now) == 0) {
+            // exchanged a moment ago by a concurrent request
+            throw invalid();
+        }
+        return refreshToken;
+    }
+
+    @Override
+    public void revoke(String token) {
+        refreshTokenRepository.deleteByTokenHash(hash(token));
+    }
+
+    // used tokens are kept until they expire, so that replaying one is still recognised
+    @Scheduled(fixedDelayString = "${jwt.refresh-token.cleanup-interval-ms:3600000}",
+            initialDelayString = "${jwt.refresh-token.cleanup-interval-ms:3600000}")
+    public void deleteExpired() {
+        int deleted = refreshTokenRepository.deleteExpired(LocalDateTime.now());
+        if (deleted > 0) {
+            log.debug("Deleted {} expired refresh tokens", deleted);
+        }
+    }
+
+    private static CredentialsExpiredException invalid() {
+        return new CredentialsExpiredException("Refresh token is invalid or expired");
+    }
+
+    private static String hash(String token) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            return HexFormat.of().formatHex(digest.digest(token.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.repositories.PostCounterRepository;
+import com.mehrdad.SafePost.services.HotPostCounterService;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+Sharded counters for viral posts.
+
+Normally a like updates posts.likes_count directly, so every writer of one post queues on that
+row's lock. Once a post receives at least counters.hot-threshold writes within one fold interval
+it is flagged hot. From then on its deltas go to a random one of counters.shards rows in
+post_counter_shards, and write throughput scales with the shard count.
+
+A scheduler folds all shard rows back into posts every interval. The hot flags are persisted in
+posts.hot and reloaded on every fold, so all instances agree on which posts are sharded. A post
+cools down again when its writes drop well below the threshold.
+*/
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class ShardedHotPostCounterService implements HotPostCounterService {
+
+    // a hot post only cools down below threshold / COOL_DOWN_DIVISOR, so it does not flap around the threshold
+    private static final int COOL_DOWN_DIVISOR = 4;
+
+    private final PostCounterRepository postCounterRepository;
+
+    @Value("${counters.sharding.enabled:true}")
+    private boolean shardingEnabled;
+
+    @Value("${counters.shards:16}")
+    private int shardCount;
+
+    @Value("${counters.hot-threshold:50}")
+    private long hotThreshold;
+
+    private final Set<UUID> hotPosts = ConcurrentHashMap.newKeySet();
+
+    // writes per post since the last fold
+    private volatile ConcurrentHashMap<UUID, LongAdder> windowWrites = new ConcurrentHashMap<>();
+
+    @Override
+    public boolean isHot(UUID postId) {
+        return hotPosts.contains(postId);
+    }
+
+    @Override
+    public void recordWrite(UUID postId) {
+        if (!shardingEnabled) {
+            return;
+        }
+        LongAdder writes = windowWrites.computeIfAbsent(postId, id -> new LongAdder());
+        writes.increment();
+        // switch this instance over right away; the flag is persisted for the others on the next fold
+        if (writes.sum() >= hotThreshold && hotPosts.add(postId)) {
+            log.info("Post {} is hot, sharding its counters", postId);
+        }
+    }
+
+    @Override
+    public int pickShard() {
+        return ThreadLocalRandom.current().nextInt(shardCount);
+    }
+
+    @Override
+    @Scheduled(fixedDelayString = "${counters.fold-interval-ms:2000}")
+    public synchronized void foldShards() {
+        if (!shardingEnabled) {
+            return;
+        }
+
+        Map<UUID, LongAdder> window = windowWrites;
+        windowWrites = new ConcurrentHashMap<>();
+        Set<UUID> hotBefore = Set.copyOf(hotPosts);
+
+        try {
+            int folded = postCounterRepository.foldCounterShards();
+            if (folded > 0) {
+                log.debug("Folded counter shards of {} posts", folded);
+            }
+
+            Set<UUID> persistedHot = postCounterRepository.findHotPostIds();
+
+            Set<UUID> heated = new HashSet<>(hotBefore);
+            heated.removeAll(persistedHot);
+            postCounterRepository.setHot(heated, true);
+
+            // counts stay correct whichever way instances briefly disagree, because every fold covers all shards
+            Set<UUID> cooled = new HashSet<>();
+            for (UUID postId : hotBefore) {
+                LongAdder writes = window.get(postId);
+                if (writes == null || writes.sum() < hotThreshold / COOL_DOWN_DIVISOR) {
+                    cooled.add(postId);
+                }
+            }
+            postCounterRepository.setHot(cooled, false);
+
+            // adopt other instances' flags; posts that became hot during this fold stay hot
+            persistedHot.addAll(heated);
+            persistedHot.removeAll(cooled);
+            hotPosts.removeIf(postId -> hotBefore.contains(postId) && !persistedHot.contains(postId));
+            hotPosts.addAll(persistedHot);
+        } catch (RuntimeException ex) {
+            // shard rows stay in place and the counts are simply folded by the next run
+            log.error("Failed to fold counter shards, will retry", ex);
+        }
+    }
+}
@@ -0,0 +1,111 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.CategoryPostCount;
+import com.mehrdad.SafePost.domain.TagPostCount;
+import com.mehrdad.SafePost.domain.TaxonomySnapshot;
+import com.mehrdad.SafePost.domain.entities.Category;
+import com.mehrdad.SafePost.domain.entities.Tag;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.services.CategoryService;
+import com.mehrdad.SafePost.services.TagService;
+import com.mehrdad.SafePost.services.TaxonomyService;
+import jakarta.persistence.EntityNotFoundException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Copy-on-write taxonomy: all categories and tags with their counts live in one immutable
+TaxonomySnapshot, replaced as a whole, so readers never lock and never see half an update.
+
+Every committed change to a post, tag or category bumps a version, and the next reader rebuilds
+the snapshot with two GROUP BY queries; in between, listing the taxonomy and checking the category
+and tag ids of a post being written never touch the database. A snapshot older than the ttl is
+rebuilt as well, which bounds how long a change made on another instance stays unseen, and an id
+missing from the snapshot triggers one rebuild before it is reported as not found.
+*/
+@Service
+@Slf4j
+public class SnapshotTaxonomyService implements TaxonomyService {
+
+    private record Versioned(TaxonomySnapshot snapshot, long version, long builtAt) {
+    }
+
+    private final CategoryService categoryService;
+    private final TagService tagService;
+    private final long ttlNanos;
+
+    private final AtomicLong version = new AtomicLong();
+    private volatile Versioned current;
+
+    public SnapshotTaxonomyService(CategoryService categoryService, TagService tagService,
+                                   @Value("${taxonomy.cache.ttl-seconds:60}") long ttlSeconds) {
+        this.categoryService = categoryService;
+        this.tagService = tagService;
+        this.ttlNanos = Duration.ofSeconds(ttlSeconds).toNanos();
+    }
+
+    @Override
+    public TaxonomySnapshot getSnapshot() {
+        Versioned versioned = current;
+        if (versioned == null || versioned.version() != version.get() || System.nanoTime() - versioned.builtAt() > ttlNanos) {
+            versioned = rebuild(versioned);
+        }
+        return versioned.snapshot();
+    }
+
+    @Override
+    public Category getCategoryReference(UUID id) {
+        CategoryPostCount category = getSnapshot().categories().get(id);
+        if (category == null) {
+            // possibly created on another instance since the snapshot was taken
+            category = rebuild(current).snapshot().categories().get(id);
+        }
+        if (category == null) {
+            throw new EntityNotFoundException("Category with id " + id + " not found");
+        }
+        return Category.builder().id(category.id()).name(category.name()).build();
+    }
+
+    @Override
+    public Set<Tag> getTagReferences(Set<UUID> ids) {
+        TaxonomySnapshot snapshot = getSnapshot();
+        if (!snapshot.tags().keySet().containsAll(ids)) {
+            snapshot = rebuild(current).snapshot();
+        }
+        Set<Tag> tags = new HashSet<>();
+        for (UUID id : ids) {
+            TagPostCount tag = snapshot.tags().get(id);
+            if (tag == null) {
+                throw new EntityNotFoundException("Not all specified tag IDs exist!");
+            }
+            tags.add(Tag.builder().id(tag.id()).name(tag.name()).build());
+        }
+        return tags;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(SearchContentChangedEvent event) {
+        version.incrementAndGet();
+    }
+
+    // one rebuild at a time; whoever waited for it uses the snapshot it produced
+    private synchronized Versioned rebuild(Versioned seen) {
+        if (current != seen) {
+            return current;
+        }
+        // read before querying: a change committing during the queries leaves this snapshot stale, not wrong
+        long building = version.get();
+        TaxonomySnapshot snapshot = TaxonomySnapshot.of(categoryService.listCategories(), tagService.getTags());
+        current = new Versioned(snapshot, building, System.nanoTime());
+        log.debug("Loaded taxonomy snapshot with {} categories and {} tags", snapshot.categories().size(), snapshot.tags().size());
+        return current;
+    }
+}
@@ -1,64 +1,110 @@
 package com.mehrdad.SafePost.services.impl;
 
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.TagPostCount;
 import com.mehrdad.SafePost.domain.entities.Tag;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.repositories.PostRepository;
 import com.mehrdad.SafePost.repositories.TagRepository;
+import com.mehrdad.SafePost.repositories.TagUpsertRepository;
+import com.mehrdad.SafePost.repositories.TaxonomyMergeRepository;
+import com.mehrdad.SafePost.services.PostSearchEngine;
+import com.mehrdad.SafePost.services.SearchResultCache;
 import com.mehrdad.SafePost.services.TagService;
 import jakarta.persistence.EntityNotFoundException;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class TagServiceImpl implements TagService {
 
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
     private final TagRepository tagRepository;
+    private final TagUpsertRepository tagUpsertRepository;
+    private final TaxonomyMergeRepository taxonomyMergeRepository;
+    private final PostRepository postRepository;
+    private final PostSearchEngine postSearchEngine;
+    private final SearchResultCache searchResultCache;
+    private final ApplicationEventPublisher eventPublisher;
 
     @Override
-    public List<Tag> getTags() {
-        return tagRepository.findAllWithPostCount();
+    public List<TagPostCount> getTags() {
+        return tagRepository.findAllWithPostCount(PostStatus.PUBLISHED);
     }
 
+    // names are trimmed, whitespace collapsed and lowercased, so "Spring  Boot" and "spring boot" are one tag
     @Transactional
     @Override
-    public List<Tag> createTags(Set<String> tagNames) {
-        List<Tag> existingTags = tagRepository.findByNameIn(tagNames);
-
-        Set<String> existingTagNames = existingTags.stream()
-                .map(Tag::getName)
-                .collect(Collectors.toSet());
-
-        List<Tag> newTags = tagNames.stream()
-                .filter(name -> !existingTags.contains(name))
-                .map(name -> Tag.builder()
-                        .name(name)
-                        .posts(new HashSet<>())
-                        .build())
+    public List<Tag> createTags(Collection<String> tagNames) {
+        List<String> names = tagNames.stream()
+                .filter(Objects::nonNull)
+                .map(name -> WHITESPACE.matcher(name.trim()).replaceAll(" ").toLowerCase(Locale.ROOT))
+                .filter(name -> !name.isEmpty())
+                .distinct()
                 .toList();
-
-        List<Tag> savedTags = new ArrayList<>();
-        if(!newTags.isEmpty()) {
-            savedTags =  tagRepository.saveAll(newTags);
+        if (names.isEmpty()) {
+            return List.of();
         }
 
-        savedTags.addAll(existingTags);
-
-        return savedTags;
+        Collection<TagUpsertRepository.UpsertedTag> upserted = tagUpsertRepository.upsertByName(names).values();
+        Set<UUID> createdIds = upserted.stream()
+                .filter(TagUpsertRepository.UpsertedTag::created)
+                .map(tag -> tag.tag().getId())
+                .collect(Collectors.toSet());
+        if (!createdIds.isEmpty()) {
+            // one event for the whole import, listeners load the new tags together
+            eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.TAG, createdIds));
+        }
+        return upserted.stream().map(TagUpsertRepository.UpsertedTag::tag).toList();
     }
 
     @Transactional
     @Override
     public void deleteTag(UUID id) {
+        if (!tagRepository.existsById(id)) {
+            return;
+        }
         // we need to check and see if the tag is not associated with any posts first
-        tagRepository.findById(id).ifPresent(tag -> {
-            if(!tag.getPosts().isEmpty()) {
-                throw new IllegalStateException("Cannot delete a tag with posts!");
-            }
-            tagRepository.deleteById(id);
-        });
+        if (postRepository.existsByTagsId(id)) {
+            throw new IllegalStateException("Cannot delete a tag with posts!");
+        }
+        tagRepository.deleteById(id);
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.TAG, id));
+    }
+
+    // moves every post from the source tag to the target tag, then deletes the source tag
+    @Transactional
+    @Override
+    public Tag mergeTag(UUID sourceId, UUID targetId) {
+        if (sourceId.equals(targetId)) {
+            throw new IllegalArgumentException("Cannot merge a tag into itself");
+        }
+        Tag target = getTagByID(targetId);
+        if (!tagRepository.existsById(sourceId)) {
+            throw new EntityNotFoundException("tag not found with ID: " + sourceId);
+        }
+
+        Set<UUID> postIds = new HashSet<>(taxonomyMergeRepository.findPostIdsWithTag(sourceId));
+        Set<UUID> categoryIds = taxonomyMergeRepository.findCategoryIdsOfPostsWithTag(sourceId);
+        taxonomyMergeRepository.moveTag(sourceId, targetId);
+        tagRepository.deleteById(sourceId);
+
+        postSearchEngine.indexPosts(postIds);
+        searchResultCache.postChanged(categoryIds, Set.of(sourceId, targetId));
+        eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.TAG, Set.of(sourceId, targetId)));
+        if (!postIds.isEmpty()) {
+            eventPublisher.publishEvent(new SearchContentChangedEvent(ContentType.POST, postIds));
+        }
+        return target;
     }
 
     @Override
@@ -0,0 +1,268 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.ImageVariant;
+import com.mehrdad.SafePost.services.ImageVariantService;
+import com.mehrdad.SafePost.util.ImageResizer;
+import com.mehrdad.SafePost.util.LruCache;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+Variants are written next to the original, in a "variants" directory: one file per configured width
+narrower than the original ("<name>-w480.jpg"), and last a small metadata file listing them along with
+the placeholder. Every file is written to a temporary name and moved into place, so a request never
+sees half a file, and until the metadata file exists the image counts as pending and the original
+is served.
+
+Decoding a large photo takes up to a second and tens of megabytes, so images are processed one at a
+time (images.variants.threads) from a bounded queue. An image that did not fit in the queue, or was
+uploaded before variants existed, is queued again the next time it is requested at some width.
+Formats ImageIO cannot decode (WebP) and animated GIFs get no variants and are always served as is.
+*/
+@Service
+@Slf4j
+public class ThumbnailImageVariantService implements ImageVariantService, DisposableBean {
+
+    private static final String VARIANTS_DIRECTORY = "variants";
+    private static final String METADATA_SUFFIX = ".variants";
+    private static final String NO_VARIANTS = "-";
+    private static final int PLACEHOLDER_WIDTH = 16;
+    private static final float JPEG_QUALITY = 0.82f;
+    // ~200 MB decoded; larger images are not worth the memory and are served as uploaded
+    private static final long MAX_PIXELS = 50_000_000L;
+    private static final int MAX_CACHED = 10_000;
+
+    // what the metadata file says about an image: the format and widths of its variants, and its placeholder
+    private record Variants(String format, int[] widths, String placeholder) {
+    }
+
+    private record Decoded(BufferedImage image, boolean animated) {
+    }
+
+    private interface FileContent {
+        void write(OutputStream out) throws IOException;
+    }
+
+    private final int[] widths;
+    private final ThreadPoolExecutor executor;
+    private final Set<Path> queued = ConcurrentHashMap.newKeySet();
+    private final LruCache<Path, Variants> cache = new LruCache<>(MAX_CACHED, Duration.ofHours(1).toNanos());
+
+    public ThumbnailImageVariantService(@Value("${images.variants.widths:160,480,1200}") int[] widths,
+                                        @Value("${images.variants.threads:1}") int threads,
+                                        @Value("${images.variants.queue-capacity:100}") int queueCapacity) {
+        // largest first, each variant is scaled down from the previous one
+        this.widths = Arrays.stream(widths).boxed().sorted((a, b) -> b - a).mapToInt(Integer::intValue).toArray();
+        AtomicInteger count = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "image-variants-" + count.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    @Override
+    public void scheduleVariants(Path original) {
+        if (!queued.add(original)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generate(original);
+                } catch (IOException | RuntimeException e) {
+                    log.warn("Failed to generate variants of {}", original.getFileName(), e);
+                } finally {
+                    queued.remove(original);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            queued.remove(original);
+            log.debug("Variant queue is full, {} will be processed when requested again", original.getFileName());
+        }
+    }
+
+    @Override
+    public ImageVariant resolve(Path original, Integer width) {
+        if (width == null) {
+            return new ImageVariant(original, false);
+        }
+        Optional<Variants> variants = load(original);
+        if (variants.isEmpty()) {
+            scheduleVariants(original);
+            return new ImageVariant(original, true);
+        }
+        // widths are largest first: the last one still wide enough is the smallest that is
+        Path best = original;
+        for (int variantWidth : variants.get().widths()) {
+            if (variantWidth >= width) {
+                best = variantPath(original, variantWidth, variants.get().format());
+            }
+        }
+        return new ImageVariant(best, false);
+    }
+
+    @Override
+    public Optional<String> getPlaceholder(Path original) {
+        return load(original).map(Variants::placeholder).filter(placeholder -> !placeholder.isEmpty());
+    }
+
+    @Override
+    public void deleteVariants(Path original) throws IOException {
+        Optional<Variants> variants = load(original);
+        cache.remove(original);
+        Files.deleteIfExists(metadataPath(original));
+        if (variants.isPresent()) {
+            for (int width : variants.get().widths()) {
+                Files.deleteIfExists(variantPath(original, width, variants.get().format()));
+            }
+        }
+    }
+
+    @Override
+    public void destroy() {
+        executor.shutdownNow();
+    }
+
+    private void generate(Path original) throws IOException {
+        if (!Files.exists(original) || Files.exists(metadataPath(original))) {
+            return;
+        }
+        Files.createDirectories(original.resolveSibling(VARIANTS_DIRECTORY));
+
+        String format = NO_VARIANTS;
+        List<Integer> written = new ArrayList<>();
+        String placeholder = "";
+        Decoded decoded = decode(original);
+        if (decoded != null) {
+            BufferedImage image = decoded.image();
+            if (!decoded.animated()) {
+                format = image.getColorModel().hasAlpha() ? "png" : "jpg";
+                BufferedImage source = image;
+                for (int width : widths) {
+                    if (width >= source.getWidth()) {
+                        continue; // never upscale, the original is the better choice then
+                    }
+                    source = ImageResizer.scaleToWidth(source, width);
+                    BufferedImage variant = source;
+                    String variantFormat = format;
+                    writeAtomically(variantPath(original, width, format),
+                            out -> ImageResizer.write(variant, variantFormat, JPEG_QUALITY, out));
+                    written.add(width);
+                }
+            }
+            placeholder = ImageResizer.placeholderDataUri(image, PLACEHOLDER_WIDTH);
+        }
+
+        // written last, it marks the image as processed
+        StringBuilder metadata = new StringBuilder(written.isEmpty() ? NO_VARIANTS : format);
+        written.forEach(width -> metadata.append(' ').append(width));
+        metadata.append('\n').append(placeholder).append('\n');
+        writeAtomically(metadataPath(original), out -> out.write(metadata.toString().getBytes(StandardCharsets.UTF_8)));
+        cache.remove(original);
+        log.debug("Generated {} variants of {}", written.size(), original.getFileName());
+    }
+
+    // null for formats ImageIO cannot read and for oversized images
+    private static Decoded decode(Path original) throws IOException {
+        try (ImageInputStream in = ImageIO.createImageInputStream(original.toFile())) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                return null;
+            }
+            ImageReader reader = readers.next();
+            try {
+                reader.setInput(in, false, true);
+                // the header alone gives the size, before decoding allocates anything
+                if ((long) reader.getWidth(0) * reader.getHeight(0) > MAX_PIXELS) {
+                    log.info("Not generating variants of {}, it is too large", original.getFileName());
+                    return null;
+                }
+                String format = reader.getFormatName().toLowerCase();
+                BufferedImage image = reader.read(0);
+                boolean animated = format.equals("gif") && reader.getNumImages(true) > 1;
+                if (format.equals("jpeg")) {
+                    try (InputStream stream = Files.newInputStream(original)) {
+                        image = ImageResizer.applyOrientation(image, ImageResizer.readJpegOrientation(stream));
+                    }
+                }
+                return new Decoded(image, animated);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    private Optional<Variants> load(Path original) {
+        Variants variants = cache.get(original);
+        if (variants != null) {
+            return Optional.of(variants);
+        }
+        Path metadata = metadataPath(original);
+        if (!Files.exists(metadata)) {
+            return Optional.empty();
+        }
+        try {
+            List<String> lines = Files.readAllLines(metadata, StandardCharsets.UTF_8);
+            String[] header = lines.get(0).split(" ");
+            int[] widths = Arrays.stream(header, 1, header.length).mapToInt(Integer::parseInt).toArray();
+            variants = new Variants(header[0], widths, lines.size() > 1 ? lines.get(1) : "");
+        } catch (IOException | RuntimeException e) {
+            log.warn("Unreadable variant metadata for {}", original.getFileName(), e);
+            return Optional.empty();
+        }
+        cache.put(original, variants);
+        return Optional.of(variants);
+    }
+
+    private static void writeAtomically(Path target, FileContent content) throws IOException {
+        Path temporary = Files.createTempFile(target.getParent(), ".tmp-", null);
+        try {
+            try (OutputStream out = Files.newOutputStream(temporary)) {
+                content.write(out);
+            }
+            Files.move(temporary, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+    }
+
+    private static Path metadataPath(Path original) {
+        return original.resolveSibling(VARIANTS_DIRECTORY).resolve(original.getFileName() + METADATA_SUFFIX);
+    }
+
+    private static Path variantPath(Path original, int width, String format) {
+        String name = original.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        String base = dot > 0 ? name.substring(0, dot) : name;
+        return original.resolveSibling(VARIANTS_DIRECTORY).resolve(base + "-w" + width + "." + format);
+    }
+}
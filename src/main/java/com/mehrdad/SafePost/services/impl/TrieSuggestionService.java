@@ -0,0 +1,105 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.dtos.SuggestionDto;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.repositories.SuggestionRepository;
+import com.mehrdad.SafePost.services.SuggestionService;
+import com.mehrdad.SafePost.util.IndexRebuild;
+import com.mehrdad.SafePost.util.SuggestionTrie;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/*
+Search-as-you-type suggestions served from an in-memory SuggestionTrie.
+
+The trie is loaded at startup and rebuilt periodically, which also picks up changed like and view
+counts. In between, every committed change to a post, tag or category is applied to it right away
+through SearchContentChangedEvent, so new content can be suggested immediately.
+*/
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrieSuggestionService implements SuggestionService {
+
+    private static final int MAX_LIMIT = 20;
+
+    private final SuggestionRepository suggestionRepository;
+    private final TaskExecutor indexRebuildExecutor;
+
+    private volatile SuggestionTrie trie = new SuggestionTrie();
+    private final IndexRebuild<SearchContentChangedEvent> indexRebuild = new IndexRebuild<>();
+
+    @Override
+    public List<SuggestionDto> suggest(String prefix, int limit) {
+        return trie.complete(prefix, Math.min(Math.max(limit, 1), MAX_LIMIT)).stream()
+                .map(entry -> SuggestionDto.builder()
+                        .text(entry.text())
+                        .type(entry.type())
+                        .id(entry.id())
+                        .build())
+                .toList();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(fixedDelayString = "${search.suggest.refresh-interval-ms:600000}",
+            initialDelayString = "${search.suggest.refresh-interval-ms:600000}")
+    public synchronized void rebuild() {
+        SuggestionTrie rebuilt = indexRebuild.run(() -> {
+            SuggestionTrie built = new SuggestionTrie();
+            suggestionRepository.findAll().forEach(built::put);
+            return built;
+        }, built -> trie = built, this::apply);
+        log.debug("Loaded {} search suggestions", rebuilt.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(SearchContentChangedEvent event) {
+        if (event.type() == ContentType.POST && event.isBulk()) {
+            // each post also reweighs its author, category and tags; a reload is a few queries in total
+            indexRebuild.schedule(indexRebuildExecutor, () -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to reload search suggestions after a bulk change", ex);
+                }
+            });
+            return;
+        }
+        indexRebuild.changing(event);
+        apply(event);
+    }
+
+    private void apply(SearchContentChangedEvent event) {
+        try {
+            Map<UUID, SuggestionTrie.Entry> entries = suggestionRepository.find(event.type(), event.ids()).stream()
+                    .collect(Collectors.toMap(SuggestionTrie.Entry::id, Function.identity()));
+            for (UUID id : event.ids()) {
+                SuggestionTrie.Entry entry = entries.get(id);
+                if (entry != null) {
+                    trie.put(entry);
+                } else {
+                    trie.remove(event.type(), id);
+                }
+                if (event.type() == ContentType.POST) {
+                    suggestionRepository.findRelatedToPost(id).forEach(trie::put);
+                }
+            }
+        } catch (RuntimeException ex) {
+            // suggestions are best effort, the next rebuild repairs whatever was missed
+            log.warn("Failed to update search suggestions for {} {}", event.type(), event.ids(), ex);
+        }
+    }
+}
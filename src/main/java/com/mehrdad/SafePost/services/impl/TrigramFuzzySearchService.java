@@ -0,0 +1,119 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostDocument;
+import com.mehrdad.SafePost.domain.PostSummary;
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.dtos.CursorPage;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.repositories.PostDocumentRepository;
+import com.mehrdad.SafePost.repositories.PostRepository;
+import com.mehrdad.SafePost.services.FuzzySearchService;
+import com.mehrdad.SafePost.util.IndexRebuild;
+import com.mehrdad.SafePost.util.TextTokenizer;
+import com.mehrdad.SafePost.util.TrigramIndex;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.task.TaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/*
+Fuzzy search served from an in-process TrigramIndex over the title and tag words of published posts.
+
+Works the same on every database, and only titles and tags are held in memory. The index is built
+at startup and follows committed post changes through SearchContentChangedEvent. Each search gets
+search.fuzzy.budget-ms to find its matches; a search running out of time returns the best matches
+found so far instead of slowing down.
+*/
+@Service
+@RequiredArgsConstructor
+@Slf4j
+public class TrigramFuzzySearchService implements FuzzySearchService {
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final PostDocumentRepository postDocumentRepository;
+    private final PostRepository postRepository;
+    private final TaskExecutor indexRebuildExecutor;
+
+    @Value("${search.fuzzy.budget-ms:50}")
+    private long budgetMs;
+
+    private volatile TrigramIndex index = new TrigramIndex();
+    private final IndexRebuild<UUID> indexRebuild = new IndexRebuild<>();
+
+    @Override
+    public CursorPage<PostSummary> search(String query, UUID categoryId, TagFilter tags, String cursor, int pageSize) {
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(budgetMs);
+        List<RankedPostId> hits = index.search(
+                TextTokenizer.tokenize(query), categoryId, tags, SearchCursor.decode(cursor), pageSize + 1, deadline);
+        if (System.nanoTime() > deadline) {
+            log.debug("Fuzzy search for '{}' ran out of its {} ms budget", query, budgetMs);
+        }
+
+        CursorPage<RankedPostId> page = CursorPage.fromOverfetched(
+                hits, pageSize, hit -> SearchCursor.of(hit.rank(), hit.id()).encode());
+
+        return CursorPage.<PostSummary>builder()
+                .items(postRepository.findSummariesInOrder(page.getItems().stream().map(RankedPostId::id).toList()))
+                .nextCursor(page.getNextCursor())
+                .hasMore(page.isHasMore())
+                .build();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void rebuild() {
+        long started = System.nanoTime();
+        TrigramIndex rebuilt = indexRebuild.run(() -> {
+            TrigramIndex built = new TrigramIndex();
+            postDocumentRepository.streamPublishedDocuments(REBUILD_BATCH_SIZE, false, batch ->
+                    batch.forEach(document -> built.add(toIndexDocument(document))));
+            return built;
+        }, built -> index = built, this::reindex);
+
+        log.info("Built fuzzy search index for {} posts in {} ms", rebuilt.size(), (System.nanoTime() - started) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onContentChanged(SearchContentChangedEvent event) {
+        if (event.type() != ContentType.POST) {
+            return;
+        }
+        if (event.isBulk()) {
+            indexRebuild.schedule(indexRebuildExecutor, () -> {
+                try {
+                    rebuild();
+                } catch (RuntimeException ex) {
+                    log.warn("Failed to rebuild the fuzzy search index after a bulk change", ex);
+                }
+            });
+        } else {
+            event.ids().forEach(this::reindex);
+        }
+    }
+
+    private void reindex(UUID postId) {
+        indexRebuild.changing(postId);
+        postDocumentRepository.findPublishedDocument(postId, false).ifPresentOrElse(
+                document -> index.add(toIndexDocument(document)),
+                () -> index.remove(postId)); // deleted or back to draft
+    }
+
+    private static TrigramIndex.Document toIndexDocument(PostDocument document) {
+        Set<String> words = new LinkedHashSet<>(TextTokenizer.tokenize(document.title()));
+        words.addAll(TextTokenizer.tokenize(String.join(" ", document.tagNames())));
+        return new TrigramIndex.Document(document.id(), words, document.categoryId(), document.tagIds());
+    }
+}
@@ -1,7 +1,9 @@
 package com.mehrdad.SafePost.services.impl;
 
 import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.domain.enums.Role;
 import com.mehrdad.SafePost.repositories.UserRepository;
+import com.mehrdad.SafePost.services.UserAuthStateService;
 import com.mehrdad.SafePost.services.UserService;
 import jakarta.persistence.EntityNotFoundException;
 import lombok.RequiredArgsConstructor;
@@ -14,6 +16,7 @@ import java.util.UUID;
 public class UserServiceImpl implements UserService {
 
     private final UserRepository userRepository;
+    private final UserAuthStateService userAuthStateService;
 
     @Override
     public User getUserById(UUID id) {
@@ -21,4 +24,28 @@ public class UserServiceImpl implements UserService {
                 .findById(id)
                 .orElseThrow(() -> new EntityNotFoundException("User not found with id: " + id));
     }
+
+    // tokens carry the role they were issued with, so a role change also invalidates the user's tokens
+    @Override
+    public User changeRole(UUID id, Role role) {
+        User user = getUserById(id);
+        if (user.getRole() == role) {
+            return user;
+        }
+        user.setRole(role);
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        User savedUser = userRepository.save(user);
+        // committed by save, so the next request reloads the new state
+        userAuthStateService.evict(id);
+        return savedUser;
+    }
+
+    // every access token issued so far stops working, the user has to sign in again
+    @Override
+    public void revokeTokens(UUID id) {
+        User user = getUserById(id);
+        user.setTokenVersion(user.getTokenVersion() + 1);
+        userRepository.save(user);
+        userAuthStateService.evict(id);
+    }
 }
@@ -0,0 +1,75 @@
+package com.mehrdad.SafePost.util;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/*
+Bloom filter over UUIDs (Bloom 1970), sized for an expected number of items and false positive rate.
+
+Answers "definitely not added" or "maybe added" with k bit probes and no allocation. The k probe
+positions are derived from two hashes (Kirsch and Mitzenmacher), so a UUID is hashed only twice.
+Items cannot be removed, the filter is rebuilt instead.
+
+Thread-safe: adds set bits atomically, and a lookup running concurrently with an add of the same
+item may only miss it until the add returns.
+*/
+public final class BloomFilter {
+
+    private final AtomicLongArray words;
+    private final long bitCount;
+    private final int hashCount;
+
+    public BloomFilter(long expectedItems, double falsePositiveRate) {
+        if (expectedItems <= 0 || falsePositiveRate <= 0 || falsePositiveRate >= 1) {
+            throw new IllegalArgumentException("Expected items must be positive and the false positive rate within (0, 1)");
+        }
+        // optimal sizes: m = -n ln p / (ln 2)^2 bits and k = m / n ln 2 probes
+        long bits = (long) Math.ceil(-expectedItems * Math.log(falsePositiveRate) / (Math.log(2) * Math.log(2)));
+        this.words = new AtomicLongArray(Math.toIntExact((bits + Long.SIZE - 1) / Long.SIZE));
+        this.bitCount = (long) words.length() * Long.SIZE;
+        this.hashCount = Math.max(1, (int) Math.round((double) bitCount / expectedItems * Math.log(2)));
+    }
+
+    public void add(UUID item) {
+        long hash1 = hash1(item);
+        long hash2 = hash2(item);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            int word = (int) (bit >>> 6);
+            long mask = 1L << bit;
+            long current = words.get(word);
+            while ((current & mask) == 0 && !words.compareAndSet(word, current, current | mask)) {
+                current = words.get(word);
+            }
+        }
+    }
+
+    public boolean mightContain(UUID item) {
+        long hash1 = hash1(item);
+        long hash2 = hash2(item);
+        for (int i = 0; i < hashCount; i++) {
+            long bit = Math.floorMod(hash1 + i * hash2, bitCount);
+            if ((words.get((int) (bit >>> 6)) & (1L << bit)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public long bitCount() {
+        return bitCount;
+    }
+
+    public int hashCount() {
+        return hashCount;
+    }
+
+    private static long hash1(UUID item) {
+        return HyperLogLog.hash(item);
+    }
+
+    // never zero, or every probe of an item would land on the same bit
+    private static long hash2(UUID item) {
+        return HyperLogLog.hash(new UUID(item.getLeastSignificantBits(), item.getMostSignificantBits())) | 1L;
+    }
+}
@@ -0,0 +1,349 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+In-memory inverted index over posts, scored with Okapi BM25.
+
+Post ids are dictionary-encoded to dense ints in insertion order. Every term keeps one posting list of
+(doc, term frequency) pairs, stored as variable-length deltas in a single byte array, so a posting
+usually takes two bytes. Because doc numbers only ever grow, adding a post just appends to the
+posting lists of its terms.
+
+Updating a post removes the old doc (a tombstone in the live set) and appends it again under a new
+number. Once tombstones make up a quarter of the index the posting lists are rewritten without
+them and the docs are renumbered.
+
+A search adds up the scores of the docs it meets in a small primitive hash table sized by the length
+of the posting lists it reads, so it costs what those lists cost rather than the size of the index.
+
+Searches share a read lock, changes take the write lock.
+*/
+public final class Bm25Index {
+
+    // standard BM25 parameters: term frequency saturation and document length normalisation
+    private static final float K1 = 1.2f;
+    private static final float B = 0.75f;
+
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    // what the index keeps of a post: weighted term frequencies plus the fields the search can filter on
+    public record Document(UUID postId, Map<String, Integer> termFrequencies, int length,
+                           UUID categoryId, Set<UUID> tagIds) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private final Map<UUID, Integer> docByPostId = new HashMap<>();
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    // per doc number
+    private UUID[] postIds = new UUID[64];
+    private int[] lengths = new int[64];
+    private UUID[] categoryIds = new UUID[64];
+    private UUID[][] tagIds = new UUID[64][];
+    private final BitSet live = new BitSet();
+
+    private int docCount;      // doc numbers handed out, including tombstones
+    private int liveCount;
+    private long liveLength;   // sum of the lengths of live docs, for the average document length
+
+    public void add(Document document) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(document.postId());
+
+            int doc = docCount++;
+            ensureCapacity(docCount);
+            postIds[doc] = document.postId();
+            lengths[doc] = document.length();
+            categoryIds[doc] = document.categoryId();
+            tagIds[doc] = document.tagIds().toArray(UUID[]::new);
+            live.set(doc);
+            liveCount++;
+            liveLength += document.length();
+            docByPostId.put(document.postId(), doc);
+
+            document.termFrequencies().forEach((term, frequency) ->
+                    postings.computeIfAbsent(term, t -> new PostingList()).append(doc, frequency));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID postId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    The best matches for any of the terms, ordered by score and then post id (both descending),
+    starting strictly after the cursor. Category and tag filters are optional.
+    */
+    public List<RankedPostId> search(List<String> terms, UUID categoryId, TagFilter tags, SearchCursor after, int limit) {
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0 || limit <= 0) {
+                return List.of();
+            }
+
+            float averageLength = Math.max(1f, (float) liveLength / liveCount);
+            List<PostingList> lists = new ArrayList<>();
+            long postingCount = 0;
+            for (String term : new LinkedHashSet<>(terms)) {
+                PostingList list = postings.get(term);
+                if (list != null) {
+                    lists.add(list);
+                    postingCount += list.count;
+                }
+            }
+            Scores scores = new Scores((int) Math.min(postingCount, docCount));
+
+            for (PostingList list : lists) {
+                // df includes tombstones until the next compaction, which only shifts idf slightly
+                float idf = (float) Math.log(1 + (liveCount - list.count + 0.5) / (list.count + 0.5));
+                list.forEach((doc, frequency) -> {
+                    if (!live.get(doc)) {
+                        return;
+                    }
+                    float norm = K1 * (1 - B + B * lengths[doc] / averageLength);
+                    scores.add(doc, idf * frequency * (K1 + 1) / (frequency + norm));
+                });
+            }
+
+            // keep the best `limit` hits in a heap whose head is the worst of them
+            Comparator<RankedPostId> order = Comparator.comparingDouble(RankedPostId::rank)
+                    .thenComparing(RankedPostId::id);
+            PriorityQueue<RankedPostId> best = new PriorityQueue<>(limit + 1, order);
+            scores.forEach((doc, score) -> {
+                UUID postId = postIds[doc];
+                if (!isAfter(score, postId, after) || !matchesFilters(doc, categoryId, tags)) {
+                    return;
+                }
+                best.add(new RankedPostId(postId, score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            });
+
+            List<RankedPostId> hits = new ArrayList<>(best);
+            hits.sort(order.reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static boolean isAfter(float score, UUID postId, SearchCursor cursor) {
+        return score < cursor.rank() || (score == cursor.rank() && postId.compareTo(cursor.id()) < 0);
+    }
+
+    private boolean matchesFilters(int doc, UUID categoryId, TagFilter tags) {
+        if (categoryId != null && !categoryId.equals(categoryIds[doc])) {
+            return false;
+        }
+        return tags.isEmpty() || tags.matches(Arrays.asList(tagIds[doc]));
+    }
+
+    private void removeLocked(UUID postId) {
+        Integer doc = docByPostId.remove(postId);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+        liveCount--;
+        liveLength -= lengths[doc];
+
+        int tombstones = docCount - liveCount;
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 >= docCount) {
+            compact();
+        }
+    }
+
+    // renumber the live docs densely (keeping their order) and rewrite every posting list without tombstones
+    private void compact() {
+        int[] newDoc = new int[docCount];
+        int next = 0;
+        for (int doc = 0; doc < docCount; doc++) {
+            newDoc[doc] = live.get(doc) ? next++ : -1;
+        }
+
+        Map<String, PostingList> compacted = new HashMap<>(postings.size());
+        postings.forEach((term, list) -> {
+            PostingList rewritten = new PostingList();
+            list.forEach((doc, frequency) -> {
+                if (newDoc[doc] >= 0) {
+                    rewritten.append(newDoc[doc], frequency);
+                }
+            });
+            if (rewritten.count > 0) {
+                rewritten.trim();
+                compacted.put(term, rewritten);
+            }
+        });
+        postings.clear();
+        postings.putAll(compacted);
+
+        for (int doc = 0; doc < docCount; doc++) {
+            int target = newDoc[doc];
+            if (target >= 0) {
+                postIds[target] = postIds[doc];
+                lengths[target] = lengths[doc];
+                categoryIds[target] = categoryIds[doc];
+                tagIds[target] = tagIds[doc];
+                docByPostId.put(postIds[target], target);
+            }
+        }
+        Arrays.fill(postIds, next, docCount, null);
+        Arrays.fill(categoryIds, next, docCount, null);
+        Arrays.fill(tagIds, next, docCount, null);
+        live.clear();
+        live.set(0, next);
+        docCount = next;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= postIds.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, postIds.length * 2);
+        postIds = Arrays.copyOf(postIds, newLength);
+        lengths = Arrays.copyOf(lengths, newLength);
+        categoryIds = Arrays.copyOf(categoryIds, newLength);
+        tagIds = Arrays.copyOf(tagIds, newLength);
+    }
+
+    @FunctionalInterface
+    private interface PostingConsumer {
+        void accept(int doc, int frequency);
+    }
+
+    @FunctionalInterface
+    private interface ScoreConsumer {
+        void accept(int doc, float score);
+    }
+
+    /*
+    Doc -> summed score, by open addressing over primitive arrays. Sized for at least twice the docs
+    it can be given (at most one per posting read), so it never grows and probes stay short.
+    */
+    private static final class Scores {
+        private static final int EMPTY = -1;
+
+        private final int[] docs;
+        private final float[] values;
+        private final int mask;
+
+        Scores(int maxDocs) {
+            int capacity = Integer.highestOneBit(Math.max(maxDocs, 4)) << 2;
+            docs = new int[capacity];
+            values = new float[capacity];
+            mask = capacity - 1;
+            Arrays.fill(docs, EMPTY);
+        }
+
+        void add(int doc, float score) {
+            int h = doc * 0x9E3779B9;
+            int slot = (h ^ (h >>> 16)) & mask;
+            while (docs[slot] != EMPTY && docs[slot] != doc) {
+                slot = (slot + 1) & mask;
+            }
+            if (docs[slot] == EMPTY) {
+                docs[slot] = doc;
+            }
+            values[slot] += score;
+        }
+
+        void forEach(ScoreConsumer consumer) {
+            for (int slot = 0; slot < docs.length; slot++) {
+                if (docs[slot] != EMPTY) {
+                    consumer.accept(docs[slot], values[slot]);
+                }
+            }
+        }
+    }
+
+    // (doc, frequency) pairs in ascending doc order, written as varint(doc - previous doc), varint(frequency)
+    private static final class PostingList {
+        private byte[] data = new byte[8];
+        private int size;
+        private int count;
+        private int lastDoc = -1;
+
+        void append(int doc, int frequency) {
+            writeVarInt(doc - lastDoc);
+            writeVarInt(frequency);
+            lastDoc = doc;
+            count++;
+        }
+
+        void forEach(PostingConsumer consumer) {
+            int position = 0;
+            int doc = -1;
+            while (position < size) {
+                int delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = data[position++];
+                    delta |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                int frequency = 0;
+                shift = 0;
+                do {
+                    b = data[position++];
+                    frequency |= (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+
+                doc += delta;
+                consumer.accept(doc, frequency);
+            }
+        }
+
+        void trim() {
+            data = Arrays.copyOf(data, size);
+        }
+
+        private void writeVarInt(int value) {
+            if (size + 5 > data.length) {
+                data = Arrays.copyOf(data, Math.max(data.length * 2, size + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                data[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            data[size++] = (byte) value;
+        }
+    }
+}
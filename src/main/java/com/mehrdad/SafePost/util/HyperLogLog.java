@@ -0,0 +1,111 @@
+package com.mehrdad.SafePost.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+
+/*
+HyperLogLog cardinality sketch (Flajolet et al.) with 2^12 one-byte registers.
+
+Estimates the number of distinct items offered to it with ~1.6% standard error in a fixed
+4 KB, whatever the number of items. Offering is O(1) and two sketches of the same precision
+merge by taking the register-wise maximum, so per-day sketches can be combined into any
+longer time window without double counting repeat visitors.
+
+Not thread-safe, callers must serialise access to one instance.
+*/
+public final class HyperLogLog {
+
+    private static final int PRECISION = 12;
+    private static final int REGISTER_COUNT = 1 << PRECISION;
+    private static final byte FORMAT_VERSION = 1;
+
+    private final byte[] registers;
+
+    public HyperLogLog() {
+        this.registers = new byte[REGISTER_COUNT];
+    }
+
+    private HyperLogLog(byte[] registers) {
+        this.registers = registers;
+    }
+
+    public void offer(long hash) {
+        // the first PRECISION bits pick the register, the rest feed the leading-zero rank;
+        // the sentinel bit caps the rank when all remaining bits are zero
+        int index = (int) (hash >>> (Long.SIZE - PRECISION));
+        long remaining = (hash << PRECISION) | (1L << (PRECISION - 1));
+        byte rank = (byte) (Long.numberOfLeadingZeros(remaining) + 1);
+        if (rank > registers[index]) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTER_COUNT; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double harmonicSum = 0;
+        int zeroRegisters = 0;
+        for (byte register : registers) {
+            harmonicSum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeroRegisters++;
+            }
+        }
+
+        double alpha = 0.7213 / (1 + 1.079 / REGISTER_COUNT);
+        double estimate = alpha * REGISTER_COUNT * REGISTER_COUNT / harmonicSum;
+
+        // small range correction: linear counting is far more accurate while registers are still empty
+        if (estimate <= 2.5 * REGISTER_COUNT && zeroRegisters > 0) {
+            estimate = REGISTER_COUNT * Math.log((double) REGISTER_COUNT / zeroRegisters);
+        }
+        return Math.round(estimate);
+    }
+
+    // version byte followed by the raw registers, the database compresses the mostly-zero payload
+    public byte[] toBytes() {
+        byte[] bytes = new byte[REGISTER_COUNT + 1];
+        bytes[0] = FORMAT_VERSION;
+        System.arraycopy(registers, 0, bytes, 1, REGISTER_COUNT);
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes == null || bytes.length != REGISTER_COUNT + 1 || bytes[0] != FORMAT_VERSION) {
+            throw new IllegalArgumentException("Unsupported HyperLogLog encoding");
+        }
+        byte[] registers = new byte[REGISTER_COUNT];
+        System.arraycopy(bytes, 1, registers, 0, REGISTER_COUNT);
+        return new HyperLogLog(registers);
+    }
+
+    public static long hash(UUID value) {
+        return mix(value.getMostSignificantBits() ^ mix(value.getLeastSignificantBits()));
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes followed by a finaliser so every output bit is well mixed
+    public static long hash(String value) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b;
+            hash *= 0x100000001b3L;
+        }
+        return mix(hash);
+    }
+
+    // MurmurHash3 fmix64 finaliser
+    private static long mix(long value) {
+        value ^= value >>> 33;
+        value *= 0xff51afd7ed558ccdL;
+        value ^= value >>> 33;
+        value *= 0xc4ceb9fe1a85ec53L;
+        value ^= value >>> 33;
+        return value;
+    }
+}
@@ -0,0 +1,84 @@
+package com.mehrdad.SafePost.util;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/*
+Keeps an in-memory index current across a full rebuild. The rebuild scans the database while
+incremental changes keep being applied to the old index; the scan may or may not have seen them, so
+every key changed while it runs is recorded and applied again once the new index is in place.
+
+A change must be marked before it is applied: whatever was marked during the rebuild is replayed,
+and whatever is marked after it sees the new index. Applying a change twice must be harmless, which
+holds for changes that re-read the current state.
+*/
+public final class IndexRebuild<K> {
+
+    private boolean rebuilding;
+    private final Set<K> changedDuringRebuild = new LinkedHashSet<>();
+    private final AtomicBoolean scheduled = new AtomicBoolean();
+
+    /*
+    Runs rebuild on executor, unless a rebuild is already waiting there: it has not started scanning
+    yet, so it will see this change too. Back-to-back triggers thus cost one rebuild, plus at most one
+    more when they arrive while a rebuild is running.
+    */
+    public void schedule(Executor executor, Runnable rebuild) {
+        if (!scheduled.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                scheduled.set(false);
+                rebuild.run();
+            });
+        } catch (RuntimeException e) {
+            scheduled.set(false);
+            throw e;
+        }
+    }
+
+    // call before applying an incremental change for key
+    public synchronized void changing(K key) {
+        if (rebuilding) {
+            changedDuringRebuild.add(key);
+        }
+    }
+
+    /*
+    Builds a new index, installs it and applies the changes recorded meanwhile to it; returns the
+    new index. Rebuilds of one index must not overlap.
+    */
+    public <T> T run(Supplier<T> build, Consumer<T> install, Consumer<K> replay) {
+        synchronized (this) {
+            changedDuringRebuild.clear();
+            rebuilding = true;
+        }
+
+        T built;
+        try {
+            built = build.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                rebuilding = false;
+                changedDuringRebuild.clear();
+            }
+            throw e;
+        }
+
+        List<K> changed;
+        synchronized (this) {
+            install.accept(built);
+            rebuilding = false;
+            changed = List.copyOf(changedDuringRebuild);
+            changedDuringRebuild.clear();
+        }
+        changed.forEach(replay);
+        return built;
+    }
+}
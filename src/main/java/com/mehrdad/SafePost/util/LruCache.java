@@ -0,0 +1,73 @@
+package com.mehrdad.SafePost.util;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+Size-bounded map with a time to live: once maxEntries is reached, adding an entry evicts the least
+recently used one, and an entry older than the ttl counts as absent.
+All operations lock the whole map, which is fine for the short critical sections of a cache.
+*/
+public final class LruCache<K, V> {
+
+    private record Timestamped<V>(V value, long storedAtNanos) {
+    }
+
+    private final int maxEntries;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Timestamped<V>> entries;
+    private long evictions;
+
+    public LruCache(int maxEntries, long ttlNanos) {
+        if (maxEntries <= 0 || ttlNanos <= 0) {
+            throw new IllegalArgumentException("maxEntries and ttl must be positive");
+        }
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttlNanos;
+        // access order, so iteration (and eviction) starts at the least recently used entry
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<K, Timestamped<V>> eldest) {
+                if (size() > LruCache.this.maxEntries) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // the value, or null when there is none or it has expired
+    public synchronized V get(K key) {
+        Timestamped<V> entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (System.nanoTime() - entry.storedAtNanos() > ttlNanos) {
+            entries.remove(key);
+            return null;
+        }
+        return entry.value();
+    }
+
+    public synchronized void put(K key, V value) {
+        entries.put(key, new Timestamped<>(value, System.nanoTime()));
+    }
+
+    public synchronized void remove(K key) {
+        entries.remove(key);
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    // entries pushed out to make room, not counting expired or removed ones
+    public synchronized long evictions() {
+        return evictions;
+    }
+}
@@ -0,0 +1,356 @@
+package com.mehrdad.SafePost.util;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Post-to-post similarity for "related posts".
+
+A pair of posts scores
+    TAG_WEIGHT * Jaccard(tags) + TEXT_WEIGHT * cosine(tf-idf of title and content) + CATEGORY_WEIGHT * same category
+so two posts sharing most of their tags and vocabulary come first, and a post sharing only the
+category is a filler that ranks below any real overlap.
+
+Each post keeps a tf-idf vector of its MAX_TERMS_PER_POST heaviest terms, normalised to unit length.
+Posts get dense doc numbers, and every tag and vector term lists its docs (terms with the doc's
+weight), so the neighbours of a post are found term at a time: walking the lists of its tags and
+terms accumulates the shared tag count and the exact dot product of every post sharing anything
+with it in two arrays, without looking at any other post. The category only fills up when fewer
+posts than asked for share a tag or term. Tags and terms listing more than MAX_POSTINGS posts are
+skipped: they are in too many posts to say anything.
+
+An update tombstones the old doc and appends a new one, and the lists are rebuilt from the live docs
+once tombstones make up a quarter of them. Document frequencies are counted when a post is added
+and are not taken back when it is removed or replaced, so between two full builds they drift
+slightly upwards; a full build starts from scratch.
+*/
+public final class RelatedPostIndex {
+
+    private static final float TAG_WEIGHT = 0.5f;
+    private static final float TEXT_WEIGHT = 0.35f;
+    private static final float CATEGORY_WEIGHT = 0.15f;
+
+    private static final int MAX_TERMS_PER_POST = 32;
+    private static final int MAX_POSTINGS = 5000;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    // a post's tags and category, and how often each term occurs in its title and content
+    public record Document(UUID postId, UUID categoryId, Set<UUID> tagIds, Map<String, Integer> termCounts) {
+    }
+
+    public record Neighbour(UUID postId, float score) {
+    }
+
+    // a post as indexed: its tf-idf vector as parallel arrays
+    private record Entry(UUID postId, UUID categoryId, Set<UUID> tagIds, int[] terms, float[] weights) {
+    }
+
+    private static final Comparator<Neighbour> BEST_FIRST = Comparator.comparingDouble(Neighbour::score).reversed()
+            .thenComparing(Neighbour::postId);
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // per doc number; tag counts and category numbers are kept apart so scoring a doc stays in primitive arrays
+    private final Map<UUID, Integer> docByPostId = new HashMap<>();
+    private Entry[] entries = new Entry[64];
+    private int[] tagCounts = new int[64];
+    private int[] categoryNumbers = new int[64];
+    private final Map<UUID, Integer> categoryNumberById = new HashMap<>();
+    private final BitSet live = new BitSet();
+    private int docCount;
+    private int liveCount;
+
+    private final Map<UUID, Postings> postingsByTag = new HashMap<>();
+    private final Map<UUID, Postings> postingsByCategory = new HashMap<>();
+    private Postings[] postingsByTerm = new Postings[1024]; // by term id
+
+    // document frequencies
+    private final Map<String, Integer> termIds = new HashMap<>();
+    private int[] documentFrequencies = new int[1024];
+    private int documentCount;
+
+    // adds every document, counting all of their document frequencies before weighting any vector
+    public void addAll(List<Document> documents) {
+        lock.writeLock().lock();
+        try {
+            documents.forEach(this::countTerms);
+            documents.forEach(document -> addLocked(toEntry(document)));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // insert or replace the post
+    public void put(Document document) {
+        lock.writeLock().lock();
+        try {
+            countTerms(document);
+            addLocked(toEntry(document));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID postId) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(postId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public boolean contains(UUID postId) {
+        lock.readLock().lock();
+        try {
+            return docByPostId.containsKey(postId);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public List<UUID> postIds() {
+        lock.readLock().lock();
+        try {
+            return List.copyOf(docByPostId.keySet());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    The best limit neighbours of the post, best first, filled up from its category when fewer posts
+    share a tag or term with it. Empty for a post that is not in the index.
+    Safe to call from several threads at once.
+    */
+    public List<Neighbour> neighbours(UUID postId, int limit) {
+        return neighbours(postId, limit, limit);
+    }
+
+    // every post sharing a tag or term with the post, with the category filling up to fill of them
+    public List<Neighbour> allNeighbours(UUID postId, int fill) {
+        return neighbours(postId, fill, Integer.MAX_VALUE);
+    }
+
+    public static Comparator<Neighbour> bestFirst() {
+        return BEST_FIRST;
+    }
+
+    private List<Neighbour> neighbours(UUID postId, int fill, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer doc = docByPostId.get(postId);
+            if (doc == null || limit <= 0) {
+                return List.of();
+            }
+            Entry entry = entries[doc];
+
+            int[] sharedTags = new int[docCount];
+            float[] dotProducts = new float[docCount];
+            BitSet touched = new BitSet(docCount);
+            for (UUID tagId : entry.tagIds()) {
+                Postings postings = postingsByTag.get(tagId);
+                if (postings != null && postings.size <= MAX_POSTINGS) {
+                    for (int i = 0; i < postings.size; i++) {
+                        sharedTags[postings.docs[i]]++;
+                        touched.set(postings.docs[i]);
+                    }
+                }
+            }
+            for (int t = 0; t < entry.terms().length; t++) {
+                Postings postings = postingsByTerm[entry.terms()[t]];
+                if (postings != null && postings.size <= MAX_POSTINGS) {
+                    float weight = entry.weights()[t];
+                    for (int i = 0; i < postings.size; i++) {
+                        dotProducts[postings.docs[i]] += weight * postings.weights[i];
+                        touched.set(postings.docs[i]);
+                    }
+                }
+            }
+            touched.and(live);
+            touched.clear(doc);
+
+            Postings category = entry.categoryId() == null ? null : postingsByCategory.get(entry.categoryId());
+            int found = touched.cardinality();
+            for (int i = 0; category != null && i < category.size && found < fill; i++) {
+                int other = category.docs[i];
+                if (live.get(other) && other != doc && !touched.get(other)) {
+                    touched.set(other);
+                    found++;
+                }
+            }
+
+            // worst first, so the weakest of the best is the one dropped
+            PriorityQueue<Neighbour> best = new PriorityQueue<>(BEST_FIRST.reversed());
+            int tagCount = tagCounts[doc];
+            int categoryNumber = categoryNumbers[doc];
+            for (int other = touched.nextSetBit(0); other >= 0; other = touched.nextSetBit(other + 1)) {
+                float score = TAG_WEIGHT * jaccard(sharedTags[other], tagCount, tagCounts[other])
+                        + TEXT_WEIGHT * dotProducts[other]
+                        + (categoryNumber >= 0 && categoryNumber == categoryNumbers[other] ? CATEGORY_WEIGHT : 0f);
+                if (score <= 0 || (best.size() == limit && score < best.peek().score())) {
+                    continue;
+                }
+                best.add(new Neighbour(entries[other].postId(), score));
+                if (best.size() > limit) {
+                    best.poll();
+                }
+            }
+
+            List<Neighbour> neighbours = new ArrayList<>(best);
+            neighbours.sort(BEST_FIRST);
+            return neighbours;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private static float jaccard(int shared, int sizeA, int sizeB) {
+        return shared == 0 ? 0f : (float) shared / (sizeA + sizeB - shared);
+    }
+
+    private void countTerms(Document document) {
+        documentCount++;
+        for (String term : document.termCounts().keySet()) {
+            int termId = termIds.computeIfAbsent(term, t -> termIds.size());
+            if (termId == documentFrequencies.length) {
+                documentFrequencies = Arrays.copyOf(documentFrequencies, termId * 2);
+            }
+            documentFrequencies[termId]++;
+        }
+    }
+
+    private void addLocked(Entry entry) {
+        removeLocked(entry.postId());
+
+        int doc = docCount++;
+        if (doc == entries.length) {
+            entries = Arrays.copyOf(entries, doc * 2);
+            tagCounts = Arrays.copyOf(tagCounts, doc * 2);
+            categoryNumbers = Arrays.copyOf(categoryNumbers, doc * 2);
+        }
+        entries[doc] = entry;
+        tagCounts[doc] = entry.tagIds().size();
+        categoryNumbers[doc] = entry.categoryId() == null
+                ? -1 : categoryNumberById.computeIfAbsent(entry.categoryId(), id -> categoryNumberById.size());
+        live.set(doc);
+        liveCount++;
+        docByPostId.put(entry.postId(), doc);
+
+        for (UUID tagId : entry.tagIds()) {
+            postingsByTag.computeIfAbsent(tagId, id -> new Postings()).add(doc, 1f);
+        }
+        for (int t = 0; t < entry.terms().length; t++) {
+            int term = entry.terms()[t];
+            if (term >= postingsByTerm.length) {
+                postingsByTerm = Arrays.copyOf(postingsByTerm, Math.max(term + 1, postingsByTerm.length * 2));
+            }
+            if (postingsByTerm[term] == null) {
+                postingsByTerm[term] = new Postings();
+            }
+            postingsByTerm[term].add(doc, entry.weights()[t]);
+        }
+        if (entry.categoryId() != null) {
+            postingsByCategory.computeIfAbsent(entry.categoryId(), id -> new Postings()).add(doc, 1f);
+        }
+    }
+
+    private void removeLocked(UUID postId) {
+        Integer doc = docByPostId.remove(postId);
+        if (doc == null) {
+            return;
+        }
+        live.clear(doc);
+        entries[doc] = null;
+        liveCount--;
+
+        int tombstones = docCount - liveCount;
+        if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 >= docCount) {
+            compact();
+        }
+    }
+
+    // renumbers the live docs and rebuilds the lists without the tombstones
+    private void compact() {
+        List<Entry> liveEntries = new ArrayList<>(liveCount);
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            liveEntries.add(entries[doc]);
+        }
+        docByPostId.clear();
+        entries = new Entry[Math.max(64, liveEntries.size())];
+        tagCounts = new int[entries.length];
+        categoryNumbers = new int[entries.length];
+        live.clear();
+        docCount = 0;
+        liveCount = 0;
+        postingsByTag.clear();
+        postingsByCategory.clear();
+        Arrays.fill(postingsByTerm, null);
+        liveEntries.forEach(this::addLocked);
+    }
+
+    // the MAX_TERMS_PER_POST heaviest terms by (1 + log tf) * idf, normalised to unit length
+    private Entry toEntry(Document document) {
+        record Weighted(int term, float weight) {
+        }
+        List<Weighted> weighted = new ArrayList<>(document.termCounts().size());
+        document.termCounts().forEach((term, count) -> {
+            int termId = termIds.get(term);
+            double idf = Math.log((double) documentCount / documentFrequencies[termId]);
+            if (idf > 0) {
+                weighted.add(new Weighted(termId, (float) ((1 + Math.log(count)) * idf)));
+            }
+        });
+        weighted.sort(Comparator.comparingDouble(Weighted::weight).reversed().thenComparingInt(Weighted::term));
+
+        int kept = Math.min(weighted.size(), MAX_TERMS_PER_POST);
+        double norm = 0;
+        for (int i = 0; i < kept; i++) {
+            norm += (double) weighted.get(i).weight() * weighted.get(i).weight();
+        }
+        norm = Math.sqrt(norm);
+
+        int[] terms = new int[kept];
+        float[] weights = new float[kept];
+        for (int i = 0; i < kept; i++) {
+            terms[i] = weighted.get(i).term();
+            weights[i] = (float) (weighted.get(i).weight() / norm);
+        }
+        return new Entry(document.postId(), document.categoryId(), Set.copyOf(document.tagIds()), terms, weights);
+    }
+
+    // docs in the order they were added, each with a weight
+    private static final class Postings {
+        private int[] docs = new int[4];
+        private float[] weights = new float[4];
+        private int size;
+
+        void add(int doc, float weight) {
+            if (size == docs.length) {
+                docs = Arrays.copyOf(docs, size * 2);
+                weights = Arrays.copyOf(weights, size * 2);
+            }
+            docs[size] = doc;
+            weights[size] = weight;
+            size++;
+        }
+    }
+}
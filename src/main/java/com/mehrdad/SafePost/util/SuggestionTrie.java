@@ -0,0 +1,347 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.domain.enums.ContentType;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/*
+Weighted prefix completion over short texts (titles, tag, category and author names).
+
+The keys live in a radix trie: every edge holds a string rather than a single char, so a key only
+costs nodes where it branches off from others. Every node also remembers the highest weight found
+anywhere below it. A completion walks to the node of the prefix and then expands nodes best-first
+by that maximum, so the top k entries come out after visiting a handful of nodes, however many keys
+share the prefix.
+
+Besides its full text, an entry is also reachable from the start of each of its first few words,
+so "secu" finds "Spring Security in depth".
+*/
+public final class SuggestionTrie {
+
+    public record Entry(ContentType type, UUID id, String text, long weight) {
+    }
+
+    private record EntryKey(ContentType type, UUID id) {
+    }
+
+    private static final int MAX_WORD_STARTS = 5;
+    private static final int MAX_KEY_LENGTH = 100;
+
+    private static final Pattern MARKS = Pattern.compile("\\p{M}+");
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    private static final String[] NO_LABELS = new String[0];
+    private static final Node[] NO_CHILDREN = new Node[0];
+    private static final Entry[] NO_ENTRIES = new Entry[0];
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final Node root = new Node();
+    private final Map<EntryKey, Entry> entries = new HashMap<>();
+
+    // insert or replace the entry with the same type and id
+    public void put(Entry entry) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(new EntryKey(entry.type(), entry.id()));
+            for (String key : keysOf(entry.text())) {
+                insert(key, entry);
+            }
+            entries.put(new EntryKey(entry.type(), entry.id()), entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(ContentType type, UUID id) {
+        lock.writeLock().lock();
+        try {
+            removeLocked(new EntryKey(type, id));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return entries.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // the heaviest entries with a key starting with the prefix, heaviest first
+    public List<Entry> complete(String prefix, int limit) {
+        String normalized = normalize(prefix);
+        if (normalized.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+
+        lock.readLock().lock();
+        try {
+            Node start = findPrefixNode(normalized);
+            if (start == null) {
+                return List.of();
+            }
+
+            PriorityQueue<Candidate> queue = new PriorityQueue<>(
+                    Comparator.comparingLong(Candidate::weight).reversed());
+            queue.add(new Candidate(start.maxWeight, start, null));
+
+            List<Entry> completions = new ArrayList<>(limit);
+            Set<EntryKey> seen = new HashSet<>();
+            while (!queue.isEmpty() && completions.size() < limit) {
+                Candidate candidate = queue.poll();
+                if (candidate.entry() != null) {
+                    // an entry can be reachable through several of its word starts
+                    if (seen.add(new EntryKey(candidate.entry().type(), candidate.entry().id()))) {
+                        completions.add(candidate.entry());
+                    }
+                    continue;
+                }
+                Node node = candidate.node();
+                for (Entry entry : node.terminals) {
+                    queue.add(new Candidate(entry.weight(), null, entry));
+                }
+                for (Node child : node.children) {
+                    queue.add(new Candidate(child.maxWeight, child, null));
+                }
+            }
+            return completions;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // lower-case, accents removed, every run of non letters/digits turned into a single space
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String decomposed = MARKS.matcher(Normalizer.normalize(text, Normalizer.Form.NFD)).replaceAll("");
+        return SEPARATORS.matcher(decomposed.toLowerCase(Locale.ROOT)).replaceAll(" ").trim();
+    }
+
+    private static List<String> keysOf(String text) {
+        String normalized = normalize(text);
+        if (normalized.isEmpty()) {
+            return List.of();
+        }
+        List<String> keys = new ArrayList<>();
+        int start = 0;
+        for (int word = 0; word < MAX_WORD_STARTS && start >= 0; word++) {
+            String key = normalized.substring(start);
+            keys.add(key.length() > MAX_KEY_LENGTH ? key.substring(0, MAX_KEY_LENGTH) : key);
+            int space = normalized.indexOf(' ', start);
+            start = space < 0 ? -1 : space + 1;
+        }
+        return keys;
+    }
+
+    private Node findPrefixNode(String prefix) {
+        Node node = root;
+        int position = 0;
+        while (position < prefix.length()) {
+            int index = node.childIndex(prefix.charAt(position));
+            if (index < 0) {
+                return null;
+            }
+            String label = node.labels[index];
+            int common = commonPrefixLength(label, prefix, position);
+            if (position + common == prefix.length()) {
+                return node.children[index]; // the prefix ends on or inside this edge
+            }
+            if (common < label.length()) {
+                return null;
+            }
+            node = node.children[index];
+            position += common;
+        }
+        return node;
+    }
+
+    private void insert(String key, Entry entry) {
+        List<Node> path = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+        while (true) {
+            path.add(node);
+            if (position == key.length()) {
+                node.addTerminal(entry);
+                break;
+            }
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0) {
+                Node leaf = new Node();
+                leaf.addTerminal(entry);
+                node.insertChild(key.substring(position), leaf);
+                path.add(leaf);
+                break;
+            }
+            String label = node.labels[index];
+            int common = commonPrefixLength(label, key, position);
+            if (common < label.length()) {
+                // split the edge where the new key branches off
+                Node middle = new Node();
+                middle.insertChild(label.substring(common), node.children[index]);
+                node.labels[index] = label.substring(0, common);
+                node.children[index] = middle;
+            }
+            node = node.children[index];
+            position += common;
+        }
+        recomputeMaxWeights(path);
+    }
+
+    private void removeLocked(EntryKey entryKey) {
+        Entry entry = entries.remove(entryKey);
+        if (entry == null) {
+            return;
+        }
+        for (String key : keysOf(entry.text())) {
+            removeKey(key, entryKey);
+        }
+    }
+
+    private void removeKey(String key, EntryKey entryKey) {
+        List<Node> path = new ArrayList<>();
+        List<Integer> childIndexes = new ArrayList<>();
+        Node node = root;
+        int position = 0;
+        path.add(node);
+        while (position < key.length()) {
+            int index = node.childIndex(key.charAt(position));
+            if (index < 0 || !key.startsWith(node.labels[index], position)) {
+                return;
+            }
+            position += node.labels[index].length();
+            node = node.children[index];
+            childIndexes.add(index);
+            path.add(node);
+        }
+        node.removeTerminal(entryKey);
+
+        // drop nodes that became empty and fold pass-through nodes back into their parent edge
+        for (int depth = path.size() - 1; depth > 0; depth--) {
+            Node child = path.get(depth);
+            Node parent = path.get(depth - 1);
+            int index = childIndexes.get(depth - 1);
+            if (child.terminals.length == 0 && child.children.length == 0) {
+                parent.removeChild(index);
+                path.remove(depth);
+            } else if (child.terminals.length == 0 && child.children.length == 1) {
+                parent.labels[index] = parent.labels[index] + child.labels[0];
+                parent.children[index] = child.children[0];
+                path.set(depth, child.children[0]);
+            }
+        }
+        recomputeMaxWeights(path);
+    }
+
+    private static void recomputeMaxWeights(List<Node> path) {
+        for (int depth = path.size() - 1; depth >= 0; depth--) {
+            path.get(depth).recomputeMaxWeight();
+        }
+    }
+
+    private static int commonPrefixLength(String label, String key, int offset) {
+        int max = Math.min(label.length(), key.length() - offset);
+        int i = 0;
+        while (i < max && label.charAt(i) == key.charAt(offset + i)) {
+            i++;
+        }
+        return i;
+    }
+
+    private record Candidate(long weight, Node node, Entry entry) {
+    }
+
+    private static final class Node {
+        // edges sorted by their first char, which is unique among siblings
+        private String[] labels = NO_LABELS;
+        private Node[] children = NO_CHILDREN;
+        private Entry[] terminals = NO_ENTRIES;
+        private long maxWeight = Long.MIN_VALUE;
+
+        int childIndex(char first) {
+            int low = 0;
+            int high = labels.length - 1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                char c = labels[middle].charAt(0);
+                if (c < first) {
+                    low = middle + 1;
+                } else if (c > first) {
+                    high = middle - 1;
+                } else {
+                    return middle;
+                }
+            }
+            return -1;
+        }
+
+        void insertChild(String label, Node child) {
+            int index = 0;
+            while (index < labels.length && labels[index].charAt(0) < label.charAt(0)) {
+                index++;
+            }
+            labels = insertAt(labels, index, label);
+            children = insertAt(children, index, child);
+        }
+
+        void removeChild(int index) {
+            labels = removeAt(labels, index);
+            children = removeAt(children, index);
+        }
+
+        void addTerminal(Entry entry) {
+            terminals = insertAt(terminals, terminals.length, entry);
+        }
+
+        void removeTerminal(EntryKey key) {
+            for (int i = 0; i < terminals.length; i++) {
+                if (terminals[i].type() == key.type() && terminals[i].id().equals(key.id())) {
+                    terminals = removeAt(terminals, i);
+                    return;
+                }
+            }
+        }
+
+        void recomputeMaxWeight() {
+            long max = Long.MIN_VALUE;
+            for (Entry entry : terminals) {
+                max = Math.max(max, entry.weight());
+            }
+            for (Node child : children) {
+                max = Math.max(max, child.maxWeight);
+            }
+            maxWeight = max;
+        }
+
+        private static <T> T[] insertAt(T[] array, int index, T value) {
+            T[] result = Arrays.copyOf(array, array.length + 1);
+            System.arraycopy(array, index, result, index + 1, array.length - index);
+            result[index] = value;
+            return result;
+        }
+
+        private static <T> T[] removeAt(T[] array, int index) {
+            T[] result = Arrays.copyOf(array, array.length - 1);
+            System.arraycopy(array, index + 1, result, index, array.length - index - 1);
+            return result;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com.mehrdad.SafePost.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/*
+Token bucket holding up to `capacity` tokens and gaining one every `interval` nanoseconds.
+
+Kept as a single number, the time at which the bucket will be full again (the "theoretical arrival
+time" of GCRA): taking a token moves it one interval further, and a token is available as long as
+that time stays within capacity * interval from now. So one bucket is one AtomicLong, and taking a
+token is a read and a compare-and-set, without locks.
+*/
+public final class TokenBucket {
+
+    private final long intervalNanos;
+    private final long burstNanos;
+    private final AtomicLong fullAt;
+
+    public TokenBucket(int capacity, long intervalNanos, long nowNanos) {
+        if (capacity <= 0 || intervalNanos <= 0) {
+            throw new IllegalArgumentException("Capacity and interval must be positive");
+        }
+        this.intervalNanos = intervalNanos;
+        this.burstNanos = capacity * intervalNanos;
+        this.fullAt = new AtomicLong(nowNanos);
+    }
+
+    // takes a token, or returns how long to wait until one is available (0 when taken)
+    public long tryAcquire(long nowNanos) {
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, nowNanos) + intervalNanos;
+            long excess = next - nowNanos - burstNanos;
+            if (excess > 0) {
+                return excess;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    // a full bucket behaves exactly like a new one, so it can be dropped
+    public boolean isFull(long nowNanos) {
+        return fullAt.get() - nowNanos <= 0;
+    }
+}
@@ -0,0 +1,376 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/*
+Typo-tolerant lookup of posts by the words of their title and tags.
+
+Two levels keep a query away from the posts themselves until the very end:
+  - every distinct word (the vocabulary) is indexed by its trigrams, padded like pg_trgm does
+    ("  kub", " ku", ..., "es "), each trigram keeping a primitive int list of word ids;
+  - every word keeps the list of docs (posts) it occurs in.
+A query word counts the trigrams it shares with every vocabulary word, shortlists the words sharing
+the most, keeps those with a trigram similarity (shared / union) of at least MIN_SIMILARITY, checks
+the most similar ones against an edit distance bound, and only then visits their docs. Posts are
+ranked by the summed similarity of their best match per query word, minus a small penalty per edit,
+so equal similarities order by edit distance.
+
+Work is bounded: trigrams shared by a large part of the vocabulary are skipped when counting (they
+say little and would touch most words), only SHORTLIST_SIZE words per query word get their exact
+similarity and MAX_CANDIDATES_PER_TERM their edit distance computed, and a search stops expanding
+once its deadline has passed, ranking what it found so far.
+
+Post ids are mapped to dense doc numbers; an update tombstones the old doc and appends a new one,
+and the whole index is rebuilt from the live docs once tombstones make up a quarter of it.
+*/
+public final class TrigramIndex {
+
+    // below pg_trgm's default of 0.3: swapping two letters of a short word breaks three of its
+    // trigrams ("dokcer"), and the edit distance check keeps out what the lower bar lets in
+    private static final float MIN_SIMILARITY = 0.2f;
+    private static final float EDIT_PENALTY = 0.01f;
+    private static final int SHORTLIST_SIZE = 256;
+    private static final int MAX_CANDIDATES_PER_TERM = 64;
+    private static final int MIN_TOMBSTONES_TO_COMPACT = 1024;
+
+    // trigrams found in more than this share of a large vocabulary are not used to find candidates
+    private static final int COMMON_TRIGRAM_MIN_VOCABULARY = 5000;
+    private static final float COMMON_TRIGRAM_SHARE = 0.2f;
+
+    // the words of a post's title and tags (as produced by TextTokenizer) and its filter fields
+    public record Document(UUID postId, Set<String> words, UUID categoryId, Set<UUID> tagIds) {
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // vocabulary
+    private final Map<String, Integer> wordIds = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final List<IntList> docsByWord = new ArrayList<>();
+    private final Map<Long, IntList> wordsByTrigram = new HashMap<>();
+
+    // per doc number
+    private final Map<UUID, Integer> docByPostId = new HashMap<>();
+    private Document[] documents = new Document[64];
+    private final BitSet live = new BitSet();
+    private int docCount;
+    private int liveCount;
+
+    public void add(Document document) {
+        lock.writeLock().lock();
+        try {
+            addLocked(document);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void remove(UUID postId) {
+        lock.writeLock().lock();
+        try {
+            Integer doc = docByPostId.remove(postId);
+            if (doc == null) {
+                return;
+            }
+            live.clear(doc);
+            documents[doc] = null;
+            liveCount--;
+
+            int tombstones = docCount - liveCount;
+            if (tombstones >= MIN_TOMBSTONES_TO_COMPACT && tombstones * 4 >= docCount) {
+                compact();
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return liveCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /*
+    The best matches for the query words, ordered by rank and then post id (both descending),
+    starting strictly after the cursor. Stops looking for more matches at deadlineNanos (System.nanoTime()).
+    */
+    public List<RankedPostId> search(List<String> terms, UUID categoryId, TagFilter tags, SearchCursor after,
+                                     int limit, long deadlineNanos) {
+        lock.readLock().lock();
+        try {
+            if (liveCount == 0 || limit <= 0) {
+                return List.of();
+            }
+
+            Map<Integer, Float> ranks = new HashMap<>();
+            for (String term : new LinkedHashSet<>(terms)) {
+                if (System.nanoTime() > deadlineNanos) {
+                    break;
+                }
+                // best match of this term per doc, so a post is not rewarded for several spellings of one word
+                Map<Integer, Float> best = new HashMap<>();
+                for (WordMatch match : matchingWords(term, deadlineNanos)) {
+                    float score = match.similarity() - EDIT_PENALTY * match.edits();
+                    docsByWord.get(match.wordId()).forEach(doc -> {
+                        if (live.get(doc) && matchesFilters(documents[doc], categoryId, tags)) {
+                            best.merge(doc, score, Math::max);
+                        }
+                    });
+                }
+                best.forEach((doc, score) -> ranks.merge(doc, score, Float::sum));
+            }
+
+            Comparator<RankedPostId> order = Comparator.comparingDouble(RankedPostId::rank)
+                    .thenComparing(RankedPostId::id);
+            PriorityQueue<RankedPostId> top = new PriorityQueue<>(limit + 1, order);
+            ranks.forEach((doc, rank) -> {
+                UUID postId = documents[doc].postId();
+                if (rank < after.rank() || (rank == after.rank() && postId.compareTo(after.id()) < 0)) {
+                    top.add(new RankedPostId(postId, rank));
+                    if (top.size() > limit) {
+                        top.poll();
+                    }
+                }
+            });
+
+            List<RankedPostId> hits = new ArrayList<>(top);
+            hits.sort(order.reversed());
+            return hits;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private record WordMatch(int wordId, float similarity, int edits) {
+    }
+
+    // vocabulary words close enough to the term, most similar first
+    private List<WordMatch> matchingWords(String term, long deadlineNanos) {
+        Integer exact = wordIds.get(term);
+        if (term.length() < 3) {
+            // too short for a typo to leave anything recognisable
+            return exact == null ? List.of() : List.of(new WordMatch(exact, 1f, 0));
+        }
+        Set<Long> termTrigrams = trigrams(term);
+
+        // count the trigrams every word shares with the term, skipping the very common ones
+        int commonLimit = words.size() >= COMMON_TRIGRAM_MIN_VOCABULARY
+                ? (int) (words.size() * COMMON_TRIGRAM_SHARE) : Integer.MAX_VALUE;
+        int[] shared = new int[words.size()];
+        IntList touched = new IntList();
+        for (long trigram : termTrigrams) {
+            IntList wordList = wordsByTrigram.get(trigram);
+            if (wordList != null && wordList.size <= commonLimit) {
+                wordList.forEach(wordId -> {
+                    if (shared[wordId]++ == 0) {
+                        touched.add(wordId);
+                    }
+                });
+            }
+        }
+
+        // shortlist the words sharing the most trigrams, then compute their exact similarity
+        int[] wordsWithCount = new int[termTrigrams.size() + 1];
+        touched.forEach(wordId -> wordsWithCount[shared[wordId]]++);
+        int minShared = termTrigrams.size();
+        for (int selected = wordsWithCount[minShared]; minShared > 1 && selected + wordsWithCount[minShared - 1] <= SHORTLIST_SIZE; ) {
+            minShared--;
+            selected += wordsWithCount[minShared];
+        }
+        List<WordMatch> candidates = new ArrayList<>();
+        int threshold = minShared;
+        touched.forEach(wordId -> {
+            if (shared[wordId] >= threshold && candidates.size() < SHORTLIST_SIZE) {
+                float similarity = similarity(termTrigrams, trigrams(words.get(wordId)));
+                if (similarity >= MIN_SIMILARITY) {
+                    candidates.add(new WordMatch(wordId, similarity, -1));
+                }
+            }
+        });
+        candidates.sort(Comparator.comparingDouble(WordMatch::similarity).reversed());
+
+        int maxEdits = term.length() <= 4 ? 1 : 2;
+        List<WordMatch> matches = new ArrayList<>();
+        if (exact != null) {
+            matches.add(new WordMatch(exact, 1f, 0));
+        }
+        for (WordMatch candidate : candidates.subList(0, Math.min(candidates.size(), MAX_CANDIDATES_PER_TERM))) {
+            if (System.nanoTime() > deadlineNanos) {
+                break;
+            }
+            if (exact != null && candidate.wordId() == exact) {
+                continue;
+            }
+            int edits = editDistance(term, words.get(candidate.wordId()), maxEdits);
+            if (edits <= maxEdits) {
+                matches.add(new WordMatch(candidate.wordId(), candidate.similarity(), edits));
+            }
+        }
+        return matches;
+    }
+
+    // shared trigrams over all distinct trigrams of the two words
+    private static float similarity(Set<Long> a, Set<Long> b) {
+        int shared = 0;
+        for (Long trigram : b) {
+            if (a.contains(trigram)) {
+                shared++;
+            }
+        }
+        return (float) shared / (a.size() + b.size() - shared);
+    }
+
+    private boolean matchesFilters(Document document, UUID categoryId, TagFilter tags) {
+        if (categoryId != null && !categoryId.equals(document.categoryId())) {
+            return false;
+        }
+        return tags.isEmpty() || tags.matches(document.tagIds());
+    }
+
+    private void addLocked(Document document) {
+        Integer previous = docByPostId.remove(document.postId());
+        if (previous != null) {
+            live.clear(previous);
+            documents[previous] = null;
+            liveCount--;
+        }
+
+        int doc = docCount++;
+        if (doc == documents.length) {
+            documents = Arrays.copyOf(documents, doc * 2);
+        }
+        documents[doc] = document;
+        live.set(doc);
+        liveCount++;
+        docByPostId.put(document.postId(), doc);
+
+        for (String word : document.words()) {
+            docsByWord.get(wordId(word)).add(doc);
+        }
+    }
+
+    private int wordId(String word) {
+        Integer existing = wordIds.get(word);
+        if (existing != null) {
+            return existing;
+        }
+        int id = words.size();
+        words.add(word);
+        wordIds.put(word, id);
+        docsByWord.add(new IntList());
+
+        for (long trigram : trigrams(word)) {
+            wordsByTrigram.computeIfAbsent(trigram, t -> new IntList()).add(id);
+        }
+        return id;
+    }
+
+    // rebuild from the live docs, which also drops words no live post uses anymore
+    private void compact() {
+        List<Document> liveDocuments = new ArrayList<>(liveCount);
+        for (int doc = live.nextSetBit(0); doc >= 0; doc = live.nextSetBit(doc + 1)) {
+            liveDocuments.add(documents[doc]);
+        }
+        wordIds.clear();
+        words.clear();
+        docsByWord.clear();
+        wordsByTrigram.clear();
+        docByPostId.clear();
+        documents = new Document[Math.max(64, liveDocuments.size())];
+        live.clear();
+        docCount = 0;
+        liveCount = 0;
+        liveDocuments.forEach(this::addLocked);
+    }
+
+    // distinct trigrams of "  word ", each packed into a long (three 16-bit chars)
+    private static Set<Long> trigrams(String word) {
+        String padded = "  " + word + " ";
+        Set<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            trigrams.add(((long) padded.charAt(i) << 32) | ((long) padded.charAt(i + 1) << 16) | padded.charAt(i + 2));
+        }
+        return trigrams;
+    }
+
+    /*
+    Optimal string alignment distance (Levenshtein plus swapping two adjacent chars, the most common
+    typo), computed row by row and abandoned as soon as it must exceed maxEdits.
+    */
+    private static int editDistance(String a, String b, int maxEdits) {
+        if (Math.abs(a.length() - b.length()) > maxEdits) {
+            return maxEdits + 1;
+        }
+        int[] beforePrevious = new int[b.length() + 1];
+        int[] previous = new int[b.length() + 1];
+        int[] current = new int[b.length() + 1];
+        for (int j = 0; j <= b.length(); j++) {
+            previous[j] = j;
+        }
+        for (int i = 1; i <= a.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            for (int j = 1; j <= b.length(); j++) {
+                int cost = a.charAt(i - 1) == b.charAt(j - 1) ? 0 : 1;
+                int distance = Math.min(Math.min(previous[j] + 1, current[j - 1] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && a.charAt(i - 1) == b.charAt(j - 2) && a.charAt(i - 2) == b.charAt(j - 1)) {
+                    distance = Math.min(distance, beforePrevious[j - 2] + 1);
+                }
+                current[j] = distance;
+                rowMin = Math.min(rowMin, distance);
+            }
+            if (rowMin > maxEdits) {
+                return maxEdits + 1;
+            }
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        return previous[b.length()];
+    }
+
+    @FunctionalInterface
+    private interface IntConsumer {
+        void accept(int value);
+    }
+
+    // growable int array, without the boxing of a List<Integer>
+    private static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        void forEach(IntConsumer consumer) {
+            for (int i = 0; i < size; i++) {
+                consumer.accept(values[i]);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+-- Estimated number of distinct viewers per post, refreshed from the all-time sketch below
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS unique_viewers INTEGER DEFAULT 0 NOT NULL;
+
+-- HyperLogLog sketches of post viewers (4 KB each), one row per day plus an all-time row
+CREATE TABLE IF NOT EXISTS post_view_sketches (
+    post_id UUID NOT NULL REFERENCES posts(id) ON DELETE CASCADE,
+    bucket VARCHAR(10) NOT NULL,
+    sketch BYTEA NOT NULL,
+    updated_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT pk_post_view_sketches PRIMARY KEY (post_id, bucket)
+);
+
+COMMENT ON COLUMN posts.unique_viewers IS 'HyperLogLog estimate of distinct viewers, maintained by the view flusher';
+COMMENT ON TABLE post_view_sketches IS 'Mergeable HyperLogLog sketches of post viewers; bucket is an ISO day or ''all''';
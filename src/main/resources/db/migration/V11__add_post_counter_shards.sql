@@ -0,0 +1,16 @@
+-- Set while a post receives more counter writes than a single row can absorb
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS hot BOOLEAN DEFAULT FALSE NOT NULL;
+
+CREATE INDEX IF NOT EXISTS idx_posts_hot ON posts(id) WHERE hot;
+
+-- Pending like/view deltas of hot posts, spread over several rows so writers do not queue on one row lock
+CREATE TABLE IF NOT EXISTS post_counter_shards (
+    post_id UUID NOT NULL REFERENCES posts(id) ON DELETE CASCADE,
+    shard SMALLINT NOT NULL,
+    likes_delta BIGINT NOT NULL DEFAULT 0,
+    views_delta BIGINT NOT NULL DEFAULT 0,
+    CONSTRAINT pk_post_counter_shards PRIMARY KEY (post_id, shard)
+);
+
+COMMENT ON COLUMN posts.hot IS 'Counter writes for this post go to post_counter_shards instead of the posts row';
+COMMENT ON TABLE post_counter_shards IS 'Unfolded counter deltas of hot posts; periodically added to posts.likes_count/view_count and deleted';
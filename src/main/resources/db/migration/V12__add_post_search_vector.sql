@@ -0,0 +1,14 @@
+-- Weighted full-text document per post: title (A) > tags (B) > content (C) > author name (D).
+-- Filled by the application whenever a post is written; rows from before this migration are
+-- indexed on startup, since the tag join table is managed by Hibernate and may not exist yet here.
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS search_vector TSVECTOR;
+
+CREATE INDEX IF NOT EXISTS idx_posts_search_vector ON posts USING gin(search_vector);
+
+-- Superseded by idx_posts_search_vector. The title/content b-tree also failed inserts of long posts
+-- (b-tree rows are limited to about 2.7 KB) without serving any query.
+DROP INDEX IF EXISTS idx_posts_title_search;
+DROP INDEX IF EXISTS idx_posts_content_search;
+DROP INDEX IF EXISTS idx_posts_title_content;
+
+COMMENT ON COLUMN posts.search_vector IS 'Weighted tsvector of title, tags, content and author name, maintained by the application';
@@ -0,0 +1,2 @@
+-- Tag names are matched case-insensitively when tags are created, so "Docker" is reused for "docker"
+CREATE INDEX IF NOT EXISTS idx_tags_name_lower ON tags(LOWER(name));
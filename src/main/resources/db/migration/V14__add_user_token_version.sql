@@ -0,0 +1,3 @@
+-- Every JWT carries the token version of its user; bumping it (e.g. on a role change) invalidates
+-- all tokens issued before
+ALTER TABLE users ADD COLUMN IF NOT EXISTS token_version INTEGER NOT NULL DEFAULT 0;
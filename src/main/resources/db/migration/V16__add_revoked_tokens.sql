@@ -0,0 +1,8 @@
+-- Access tokens revoked before they expire (e.g. on logout), by their jti claim. Rows are only
+-- needed until the token would have expired anyway
+CREATE TABLE IF NOT EXISTS revoked_tokens (
+    jti UUID PRIMARY KEY,
+    expires_at TIMESTAMP NOT NULL
+);
+
+CREATE INDEX IF NOT EXISTS idx_revoked_tokens_expires_at ON revoked_tokens(expires_at);
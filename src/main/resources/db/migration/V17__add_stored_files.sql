@@ -0,0 +1,20 @@
+-- Uploads are stored under the SHA-256 of their content, so the same image uploaded twice is one
+-- file. Each upload holds a reference for the user who made it and each delete releases one of the
+-- caller's; the file goes with the last reference of any user
+CREATE TABLE IF NOT EXISTS stored_files (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    directory VARCHAR(16) NOT NULL,
+    filename VARCHAR(80) NOT NULL,
+    created_at TIMESTAMP NOT NULL DEFAULT CURRENT_TIMESTAMP,
+    CONSTRAINT uk_stored_files_directory_filename UNIQUE (directory, filename)
+);
+
+CREATE TABLE IF NOT EXISTS stored_file_references (
+    id UUID PRIMARY KEY DEFAULT gen_random_uuid(),
+    stored_file_id UUID NOT NULL REFERENCES stored_files(id) ON DELETE CASCADE,
+    owner_id UUID NOT NULL REFERENCES users(id) ON DELETE CASCADE,
+    ref_count INTEGER NOT NULL,
+    CONSTRAINT uk_stored_file_references_file_owner UNIQUE (stored_file_id, owner_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stored_file_references_owner_id ON stored_file_references(owner_id);
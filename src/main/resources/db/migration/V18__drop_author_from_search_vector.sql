@@ -0,0 +1,6 @@
+-- The search document no longer includes the author's name: nothing re-indexed a user's posts when
+-- they were renamed, so posts stayed findable under the old name. Clearing the column makes the
+-- application rebuild every document without it on startup, in batches.
+UPDATE posts SET search_vector = NULL;
+
+COMMENT ON COLUMN posts.search_vector IS 'Weighted tsvector of title, tags and content, maintained by the application';
@@ -0,0 +1,3 @@
+-- Composite index backing keyset pagination of published posts
+-- Matches ORDER BY created_at DESC, id DESC so every page is a single index range scan
+CREATE INDEX IF NOT EXISTS idx_posts_status_created_at_id ON posts(status, created_at DESC, id DESC);
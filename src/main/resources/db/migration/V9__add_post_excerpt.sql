@@ -0,0 +1,9 @@
+-- Precomputed plain-text teaser so list endpoints never have to read the content column
+ALTER TABLE posts ADD COLUMN IF NOT EXISTS excerpt VARCHAR(300);
+
+-- Backfill existing posts: strip HTML tags, collapse whitespace and cut to 200 characters
+UPDATE posts
+SET excerpt = LEFT(TRIM(regexp_replace(regexp_replace(content, '<[^>]*>', ' ', 'g'), '\s+', ' ', 'g')), 200)
+WHERE excerpt IS NULL;
+
+COMMENT ON COLUMN posts.excerpt IS 'Plain-text teaser derived from content on write';
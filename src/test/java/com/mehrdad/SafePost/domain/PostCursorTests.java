@@ -0,0 +1,61 @@
+package com.mehrdad.SafePost.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PostCursorTests {
+
+	@Test
+	void decodesWhatItEncoded() {
+		PostCursor cursor = PostCursor.of(LocalDateTime.of(2025, 1, 31, 12, 30, 15, 123_456_789), UUID.randomUUID());
+
+		assertThat(PostCursor.decode(cursor.encode())).isEqualTo(cursor);
+	}
+
+	// LocalDateTime prints whole seconds and minutes without their zero fields
+	@Test
+	void keepsTimestampsWithoutSecondsOrNanos() {
+		PostCursor minutes = PostCursor.of(LocalDateTime.of(2025, 1, 31, 12, 30), UUID.randomUUID());
+		PostCursor millis = PostCursor.of(LocalDateTime.of(2025, 1, 31, 12, 30, 0, 1_000_000), UUID.randomUUID());
+
+		assertThat(PostCursor.decode(minutes.encode())).isEqualTo(minutes);
+		assertThat(PostCursor.decode(millis.encode())).isEqualTo(millis);
+	}
+
+	@Test
+	void encodesToAUrlSafeStringWithoutPadding() {
+		String encoded = PostCursor.FIRST.encode();
+
+		assertThat(encoded).matches("[A-Za-z0-9_-]+");
+		assertThat(PostCursor.decode(encoded)).isEqualTo(PostCursor.FIRST);
+	}
+
+	@Test
+	void aMissingCursorStartsAtTheFirstPage() {
+		assertThat(PostCursor.decode(null)).isEqualTo(PostCursor.FIRST);
+		assertThat(PostCursor.decode(" ")).isEqualTo(PostCursor.FIRST);
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		assertThatThrownBy(() -> PostCursor.decode("not base64!")).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+		assertThatThrownBy(() -> PostCursor.decode(encode("no separator"))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+		assertThatThrownBy(() -> PostCursor.decode(encode("yesterday|" + UUID.randomUUID()))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+		assertThatThrownBy(() -> PostCursor.decode(encode("2025-01-31T12:30|not-a-uuid"))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
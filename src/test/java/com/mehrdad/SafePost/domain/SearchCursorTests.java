@@ -0,0 +1,46 @@
+package com.mehrdad.SafePost.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SearchCursorTests {
+
+	// the next page resumes strictly after the last rank, so it has to come back as the exact same float
+	@Test
+	void keepsTheExactRank() {
+		UUID id = UUID.randomUUID();
+		for (float rank : new float[]{0.1f, 1f / 3, 0.060792710f, Float.MIN_VALUE, 12345.678f, 0f}) {
+			SearchCursor decoded = SearchCursor.decode(SearchCursor.of(rank, id).encode());
+
+			assertThat(Float.floatToIntBits(decoded.rank())).isEqualTo(Float.floatToIntBits(rank));
+			assertThat(decoded.id()).isEqualTo(id);
+		}
+	}
+
+	@Test
+	void theFirstPageStartsAboveEveryRank() {
+		assertThat(SearchCursor.decode(null)).isEqualTo(SearchCursor.FIRST);
+		assertThat(SearchCursor.decode("")).isEqualTo(SearchCursor.FIRST);
+		assertThat(SearchCursor.decode(SearchCursor.FIRST.encode()).rank()).isEqualTo(Float.POSITIVE_INFINITY);
+	}
+
+	@Test
+	void rejectsMalformedCursors() {
+		assertThatThrownBy(() -> SearchCursor.decode("%%%")).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+		assertThatThrownBy(() -> SearchCursor.decode(encode("0.5"))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+		assertThatThrownBy(() -> SearchCursor.decode(encode("high|" + UUID.randomUUID()))).isInstanceOf(IllegalArgumentException.class)
+				.hasMessage("Invalid cursor");
+	}
+
+	private static String encode(String raw) {
+		return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+	}
+}
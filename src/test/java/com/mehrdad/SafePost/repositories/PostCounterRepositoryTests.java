@@ -0,0 +1,90 @@
+package com.mehrdad.SafePost.repositories;
+
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.entities.Category;
+import com.mehrdad.SafePost.domain.entities.Post;
+import com.mehrdad.SafePost.domain.entities.User;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+@SpringBootTest
+class PostCounterRepositoryTests {
+
+	@Autowired
+	private PostCounterRepository postCounterRepository;
+
+	@Autowired
+	private PostRepository postRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private JdbcTemplate jdbcTemplate;
+
+	@AfterEach
+	void cleanUp() {
+		postRepository.deleteAll();
+		categoryRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void addViewCountsAddsEachDelta() {
+		UUID first = post("first");
+		UUID second = post("second");
+
+		postCounterRepository.addViewCounts(new TreeMap<>(Map.of(first, 3L, second, 5L)));
+
+		assertThat(viewCount(first)).isEqualTo(3);
+		assertThat(viewCount(second)).isEqualTo(5);
+	}
+
+	// the flush puts a failed batch back to retry it, which must not count the statements that succeeded twice
+	@Test
+	void aFailingBatchWritesNothing() {
+		UUID fine = post("fine");
+		UUID overflowing = post("overflowing");
+		jdbcTemplate.update("UPDATE posts SET view_count = ? WHERE id = ?", Integer.MAX_VALUE, overflowing);
+
+		Map<UUID, Long> deltas = new TreeMap<>(Map.of(fine, 1L, overflowing, 1L));
+		assertThatThrownBy(() -> postCounterRepository.addViewCounts(deltas)).isInstanceOf(RuntimeException.class);
+
+		assertThat(viewCount(fine)).isZero();
+		assertThat(viewCount(overflowing)).isEqualTo(Integer.MAX_VALUE);
+	}
+
+	private UUID post(String title) {
+		User author = userRepository.save(User.builder()
+				.email(title + "@example.com")
+				.password("password")
+				.name(title)
+				.build());
+		Category category = categoryRepository.save(Category.builder().name(title).build());
+		return postRepository.save(Post.builder()
+				.title(title)
+				.content("content")
+				.status(PostStatus.PUBLISHED)
+				.readingTime(1)
+				.author(author)
+				.category(category)
+				.build()).getId();
+	}
+
+	private int viewCount(UUID postId) {
+		return jdbcTemplate.queryForObject("SELECT view_count FROM posts WHERE id = ?", Integer.class, postId);
+	}
+}
@@ -0,0 +1,58 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.repositories.RevokedTokenRepository;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class BloomFilterTokenRevocationServiceTests {
+
+	private final RevokedTokenRepository repository = mock(RevokedTokenRepository.class);
+	private final BloomFilterTokenRevocationService service = new BloomFilterTokenRevocationService(repository, 1000);
+
+	// a token revoked before a restart must not pass while the filter is still empty
+	@Test
+	void checksTheDatabaseUntilTheFirstRebuild() {
+		UUID revoked = UUID.randomUUID();
+		when(repository.existsByJtiAndExpiresAtAfter(eq(revoked), any())).thenReturn(true);
+
+		assertThat(service.isRevoked(revoked)).isTrue();
+		assertThat(service.isRevoked(UUID.randomUUID())).isFalse();
+	}
+
+	@Test
+	void answersTokensThatWereNeverRevokedFromTheFilterAfterARebuild() {
+		UUID revoked = UUID.randomUUID();
+		UUID other = UUID.randomUUID();
+		when(repository.findActiveJtis(any())).thenReturn(List.of(revoked));
+		when(repository.existsByJtiAndExpiresAtAfter(eq(revoked), any())).thenReturn(true);
+
+		service.rebuild();
+
+		assertThat(service.isRevoked(revoked)).isTrue();
+		assertThat(service.isRevoked(other)).isFalse();
+		verify(repository, never()).existsByJtiAndExpiresAtAfter(eq(other), any());
+	}
+
+	@Test
+	void revocationsBeforeTheFirstRebuildAreStillPickedUp() {
+		UUID jti = UUID.randomUUID();
+		service.revoke(jti, Instant.now().plusSeconds(60));
+		when(repository.findActiveJtis(any())).thenReturn(List.of(jti));
+		when(repository.existsByJtiAndExpiresAtAfter(eq(jti), any())).thenReturn(true);
+
+		service.rebuild();
+
+		assertThat(service.isRevoked(jti)).isTrue();
+	}
+}
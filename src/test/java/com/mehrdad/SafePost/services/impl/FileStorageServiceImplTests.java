@@ -0,0 +1,174 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.entities.StoredFileReference;
+import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.repositories.StoredFileReferenceRepository;
+import com.mehrdad.SafePost.repositories.StoredFileRepository;
+import com.mehrdad.SafePost.repositories.UserRepository;
+import com.mehrdad.SafePost.services.FileStorageService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class FileStorageServiceImplTests {
+
+	@TempDir
+	static Path uploads;
+
+	@DynamicPropertySource
+	static void uploadDir(DynamicPropertyRegistry registry) {
+		registry.add("file.upload.dir", () -> uploads.resolve("covers").toString());
+	}
+
+	@Autowired
+	private FileStorageService fileStorageService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private StoredFileRepository storedFileRepository;
+
+	@Autowired
+	private StoredFileReferenceRepository storedFileReferenceRepository;
+
+	@AfterEach
+	void cleanUp() {
+		storedFileReferenceRepository.deleteAll();
+		storedFileRepository.deleteAll();
+		userRepository.deleteAll();
+	}
+
+	@Test
+	void sameContentIsStoredOnceUnderItsHash() throws Exception {
+		UUID alice = user("alice");
+		UUID bob = user("bob");
+
+		String first = fileStorageService.storeCoverImage(image("same bytes", "image/jpeg"), alice);
+		String second = fileStorageService.storeCoverImage(image("same bytes", "image/jpg"), bob);
+
+		assertThat(second).isEqualTo(first);
+		assertThat(first).matches("[0-9a-f]{64}\\.jpg");
+		assertThat(Files.readString(cover(first))).isEqualTo("same bytes");
+	}
+
+	@Test
+	void deleteOnlyReleasesTheCallersReferences() throws Exception {
+		UUID alice = user("alice");
+		UUID mallory = user("mallory");
+		String filename = fileStorageService.storeCoverImage(image("shared cover", "image/png"), alice);
+		fileStorageService.storeCoverImage(image("shared cover", "image/png"), alice);
+
+		for (int i = 0; i < 5; i++) {
+			fileStorageService.deleteCoverImage(filename, mallory);
+		}
+		assertThat(cover(filename)).exists();
+
+		fileStorageService.deleteCoverImage(filename, alice);
+		assertThat(cover(filename)).exists();
+
+		fileStorageService.deleteCoverImage(filename, alice);
+		assertThat(cover(filename)).doesNotExist();
+		assertThat(storedFileRepository.count()).isZero();
+		assertThat(storedFileReferenceRepository.count()).isZero();
+	}
+
+	@Test
+	void fileIsKeptUntilTheLastUserReleasesIt() throws Exception {
+		UUID alice = user("alice");
+		UUID bob = user("bob");
+		String filename = fileStorageService.storeCoverImage(image("stock cover", "image/jpeg"), alice);
+		fileStorageService.storeCoverImage(image("stock cover", "image/jpeg"), bob);
+
+		fileStorageService.deleteCoverImage(filename, alice);
+		assertThat(cover(filename)).exists();
+
+		fileStorageService.deleteCoverImage(filename, bob);
+		assertThat(cover(filename)).doesNotExist();
+	}
+
+	@Test
+	void filesWithoutReferencesAreDeletedRightAway() throws Exception {
+		UUID alice = user("alice");
+		Path legacy = Files.writeString(cover(UUID.randomUUID() + ".jpg"), "uploaded before hashing");
+
+		fileStorageService.deleteCoverImage(legacy.getFileName().toString(), alice);
+
+		assertThat(legacy).doesNotExist();
+	}
+
+	// one user keeps uploading while another uploads and deletes the same content
+	@Test
+	void concurrentReleaseNeverRemovesAFileStillReferenced() throws Exception {
+		UUID alice = user("alice");
+		UUID bob = user("bob");
+		int rounds = 20;
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<String>> stored = new ArrayList<>();
+		try {
+			for (int i = 0; i < rounds; i++) {
+				stored.add(pool.submit(() -> fileStorageService.storeCoverImage(image("contended", "image/png"), alice)));
+				stored.add(pool.submit(() -> {
+					String name = fileStorageService.storeCoverImage(image("contended", "image/png"), bob);
+					fileStorageService.deleteCoverImage(name, bob);
+					return name;
+				}));
+			}
+			for (Future<String> upload : stored) {
+				upload.get();
+			}
+		} finally {
+			pool.shutdown();
+		}
+
+		String filename = stored.get(0).get();
+		assertThat(cover(filename)).exists();
+		List<StoredFileReference> references = storedFileReferenceRepository.findAll();
+		assertThat(references).hasSize(1);
+		assertThat(references.get(0).getRefCount()).isEqualTo(rounds);
+
+		for (int i = 0; i < rounds; i++) {
+			fileStorageService.deleteCoverImage(filename, alice);
+		}
+		assertThat(cover(filename)).doesNotExist();
+		try (var files = Files.list(uploads.resolve("covers"))) {
+			// no temporary upload is left behind either
+			assertThat(files.filter(file -> file.getFileName().toString().startsWith("upload-"))).isEmpty();
+		}
+	}
+
+	private UUID user(String name) {
+		return userRepository.save(User.builder()
+				.email(name + "@example.com")
+				.password("password")
+				.name(name)
+				.build()).getId();
+	}
+
+	private static MockMultipartFile image(String content, String contentType) {
+		return new MockMultipartFile("file", "image", contentType, content.getBytes(StandardCharsets.UTF_8));
+	}
+
+	private static Path cover(String filename) {
+		return uploads.resolve("covers").resolve(filename);
+	}
+}
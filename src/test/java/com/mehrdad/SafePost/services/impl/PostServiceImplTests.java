@@ -0,0 +1,59 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.CreatePostRequest;
+import com.mehrdad.SafePost.domain.PostStatus;
+import com.mehrdad.SafePost.domain.entities.Category;
+import com.mehrdad.SafePost.domain.entities.Post;
+import com.mehrdad.SafePost.domain.entities.User;
+import com.mehrdad.SafePost.repositories.CategoryRepository;
+import com.mehrdad.SafePost.repositories.UserRepository;
+import com.mehrdad.SafePost.services.PostService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class PostServiceImplTests {
+
+	@Autowired
+	private PostService postService;
+
+	@Autowired
+	private UserRepository userRepository;
+
+	@Autowired
+	private CategoryRepository categoryRepository;
+
+	@Test
+	void excerptIsThePlainTextThePostRenders() {
+		Post post = createPost("<p>Tom &amp;amp; Jerry&nbsp;&lt;3 <b>AT&amp;T</b> &amp;lt;br&amp;gt;</p>");
+
+		assertThat(post.getExcerpt()).isEqualTo("Tom &amp; Jerry <3 AT&T &lt;br&gt;");
+	}
+
+	@Test
+	void excerptIsCutAtTheLastCompleteWord() {
+		Post post = createPost("<p>" + "word ".repeat(100) + "</p>");
+
+		assertThat(post.getExcerpt()).endsWith("word...").hasSizeLessThanOrEqualTo(203);
+	}
+
+	private Post createPost(String content) {
+		String suffix = UUID.randomUUID().toString();
+		User author = userRepository.save(User.builder()
+				.email(suffix + "@example.com").password("x").name("Author").build());
+		Category category = categoryRepository.save(Category.builder().name("Category " + suffix).build());
+		return postService.createPost(author, CreatePostRequest.builder()
+				.title("Excerpt")
+				.content(content)
+				.categoryId(category.getId())
+				.tagIds(Set.of())
+				.status(PostStatus.DRAFT)
+				.build());
+	}
+}
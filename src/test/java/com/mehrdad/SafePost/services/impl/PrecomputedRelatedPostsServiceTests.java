@@ -0,0 +1,142 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.PostDocument;
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import com.mehrdad.SafePost.domain.events.SearchContentChangedEvent;
+import com.mehrdad.SafePost.repositories.PostDocumentRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class PrecomputedRelatedPostsServiceTests {
+
+	private static final int SIZE = 3;
+
+	// the published posts, as the repository would return them
+	private final Map<UUID, PostDocument> published = new LinkedHashMap<>();
+	private final PostDocumentRepository repository = mock(PostDocumentRepository.class);
+
+	private final List<UUID> tags = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID(),
+			UUID.randomUUID(), UUID.randomUUID());
+	private final List<UUID> categories = List.of(UUID.randomUUID(), UUID.randomUUID());
+
+	PrecomputedRelatedPostsServiceTests() {
+		doAnswer(invocation -> {
+			Consumer<List<PostDocument>> consumer = invocation.getArgument(2);
+			consumer.accept(List.copyOf(published.values()));
+			return null;
+		}).when(repository).streamPublishedDocuments(anyInt(), anyBoolean(), any());
+		when(repository.findPublishedDocument(any(), anyBoolean()))
+				.thenAnswer(invocation -> Optional.ofNullable(published.get(invocation.<UUID>getArgument(0))));
+	}
+
+	@Test
+	void listsTheMostRelatedPostsAfterARebuild() {
+		PostDocument post = publish(Set.of(tags.get(0), tags.get(1)), categories.get(0), "spring security filters");
+		PostDocument close = publish(Set.of(tags.get(0), tags.get(1)), categories.get(1), "spring security");
+		PostDocument further = publish(Set.of(tags.get(0)), categories.get(1), "kafka");
+		publish(Set.of(tags.get(4)), categories.get(1), "helm");
+		PrecomputedRelatedPostsService service = newService();
+
+		service.rebuild();
+
+		assertThat(service.getRelatedPostIds(post.id(), 10)).containsExactly(close.id(), further.id());
+		assertThat(service.getRelatedPostIds(close.id(), 1)).containsExactly(post.id());
+		assertThat(service.getRelatedPostIds(UUID.randomUUID(), 10)).isEmpty();
+	}
+
+	@Test
+	void aChangedPostMovesIntoAndOutOfTheListsOfOtherPosts() {
+		PostDocument post = publish(Set.of(tags.get(0)), null, "");
+		PostDocument other = publish(Set.of(tags.get(1)), null, "");
+		PrecomputedRelatedPostsService service = newService();
+		service.rebuild();
+		assertThat(service.getRelatedPostIds(post.id(), 10)).isEmpty();
+
+		PostDocument retagged = change(other, Set.of(tags.get(0)));
+		service.onContentChanged(new SearchContentChangedEvent(ContentType.POST, retagged.id()));
+		assertThat(service.getRelatedPostIds(post.id(), 10)).containsExactly(other.id());
+
+		published.remove(other.id());
+		service.onContentChanged(new SearchContentChangedEvent(ContentType.POST, other.id()));
+		assertThat(service.getRelatedPostIds(post.id(), 10)).isEmpty();
+		assertThat(service.getRelatedPostIds(other.id(), 10)).isEmpty();
+	}
+
+	/*
+	Tag scores do not depend on the rest of the posts (unlike tf-idf weights, which drift between full
+	builds), so after any sequence of changes the incrementally updated lists must match a full rebuild
+	over the same posts. Posts have no category here: category slots are only filled up, in no
+	particular order.
+	*/
+	@Test
+	void incrementalUpdatesMatchAFullRebuild() {
+		Random random = new Random(17);
+		List<UUID> ids = new ArrayList<>();
+		for (int i = 0; i < 60; i++) {
+			ids.add(publish(randomTags(random), null, "").id());
+		}
+		PrecomputedRelatedPostsService incremental = newService();
+		incremental.rebuild();
+
+		for (int step = 0; step < 400; step++) {
+			UUID id = ids.get(random.nextInt(ids.size()));
+			if (random.nextInt(4) == 0) {
+				published.remove(id);
+			} else {
+				published.put(id, new PostDocument(id, "", "", "author", null, randomTags(random),
+						List.of()));
+			}
+			incremental.onContentChanged(new SearchContentChangedEvent(ContentType.POST, id));
+		}
+
+		PrecomputedRelatedPostsService rebuilt = newService();
+		rebuilt.rebuild();
+		for (UUID id : ids) {
+			assertThat(incremental.getRelatedPostIds(id, SIZE)).as(id.toString())
+					.isEqualTo(rebuilt.getRelatedPostIds(id, SIZE));
+		}
+	}
+
+	private PrecomputedRelatedPostsService newService() {
+		return new PrecomputedRelatedPostsService(repository, Runnable::run, SIZE);
+	}
+
+	private PostDocument publish(Set<UUID> tagIds, UUID categoryId, String content) {
+		PostDocument document = new PostDocument(UUID.randomUUID(), "", content, "author", categoryId, tagIds, List.of());
+		published.put(document.id(), document);
+		return document;
+	}
+
+	private PostDocument change(PostDocument document, Set<UUID> tagIds) {
+		PostDocument changed = new PostDocument(document.id(), document.title(), document.content(),
+				document.authorName(), document.categoryId(), tagIds, document.tagNames());
+		published.put(changed.id(), changed);
+		return changed;
+	}
+
+	private Set<UUID> randomTags(Random random) {
+		Set<UUID> tagIds = new HashSet<>();
+		for (int i = random.nextInt(4); i > 0; i--) {
+			tagIds.add(tags.get(random.nextInt(tags.size())));
+		}
+		return tagIds;
+	}
+}
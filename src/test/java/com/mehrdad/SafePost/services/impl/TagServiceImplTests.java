@@ -0,0 +1,76 @@
+package com.mehrdad.SafePost.services.impl;
+
+import com.mehrdad.SafePost.domain.entities.Tag;
+import com.mehrdad.SafePost.repositories.TagRepository;
+import com.mehrdad.SafePost.services.TagService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@SpringBootTest
+class TagServiceImplTests {
+
+	@Autowired
+	private TagService tagService;
+
+	@Autowired
+	private TagRepository tagRepository;
+
+	@AfterEach
+	void cleanUp() {
+		tagRepository.deleteAll();
+	}
+
+	@Test
+	void createTagsNormalizesNamesAndReusesExistingTags() {
+		Tag upperCase = tagRepository.save(Tag.builder().name("Docker").posts(new HashSet<>()).build());
+		Tag lowerCase = tagRepository.save(Tag.builder().name("docker").posts(new HashSet<>()).build());
+		Tag java = tagRepository.save(Tag.builder().name("Java").posts(new HashSet<>()).build());
+
+		List<Tag> tags = tagService.createTags(List.of("DOCKER", "  Spring   Boot ", "java", "spring boot", " "));
+
+		assertThat(tags).extracting(Tag::getName).containsExactly("docker", "spring boot", "Java");
+		// an exact match wins over one differing in case
+		assertThat(tags.get(0).getId()).isEqualTo(lowerCase.getId()).isNotEqualTo(upperCase.getId());
+		assertThat(tags.get(2).getId()).isEqualTo(java.getId());
+		assertThat(tagRepository.count()).isEqualTo(4);
+	}
+
+	@Test
+	void concurrentCreatesOfTheSameNamesEndUpWithOneTagEach() throws Exception {
+		List<String> names = IntStream.range(0, 50).mapToObj(i -> "tag " + i).toList();
+
+		ExecutorService pool = Executors.newFixedThreadPool(4);
+		List<Future<List<Tag>>> results = new ArrayList<>();
+		try {
+			for (int i = 0; i < 8; i++) {
+				results.add(pool.submit(() -> tagService.createTags(names)));
+			}
+			Map<String, UUID> first = ids(results.get(0).get());
+			for (Future<List<Tag>> result : results) {
+				assertThat(ids(result.get())).isEqualTo(first);
+			}
+		} finally {
+			pool.shutdown();
+		}
+		assertThat(tagRepository.count()).isEqualTo(names.size());
+	}
+
+	private static Map<String, UUID> ids(List<Tag> tags) {
+		return tags.stream().collect(Collectors.toMap(Tag::getName, Tag::getId));
+	}
+}
@@ -0,0 +1,96 @@
+package com.mehrdad.SafePost.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BloomFilterTests {
+
+	private final Random random = new Random(23);
+
+	@Test
+	void isSizedForTheExpectedItemsAndRate() {
+		BloomFilter filter = new BloomFilter(1000, 0.01);
+
+		// 9586 bits rounded up to whole words, and 9600 / 1000 * ln 2 probes
+		assertThat(filter.bitCount()).isEqualTo(9600);
+		assertThat(filter.hashCount()).isEqualTo(7);
+	}
+
+	@Test
+	void rejectsInvalidSizes() {
+		assertThatThrownBy(() -> new BloomFilter(0, 0.01)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new BloomFilter(1000, 0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new BloomFilter(1000, 1)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void neverMissesAnAddedItem() {
+		BloomFilter filter = new BloomFilter(10_000, 0.001);
+		List<UUID> added = randomIds(10_000);
+
+		added.forEach(filter::add);
+
+		assertThat(added).allMatch(filter::mightContain);
+	}
+
+	@Test
+	void keepsTheFalsePositiveRateAtCapacity() {
+		BloomFilter filter = new BloomFilter(10_000, 0.01);
+		randomIds(10_000).forEach(filter::add);
+
+		long falsePositives = randomIds(100_000).stream().filter(filter::mightContain).count();
+
+		// about 1,000 expected; well below what a broken second hash would give
+		assertThat(falsePositives).isBetween(500L, 1_500L);
+	}
+
+	@Test
+	void anEmptyFilterContainsNothing() {
+		BloomFilter filter = new BloomFilter(100, 0.01);
+
+		assertThat(randomIds(1000)).noneMatch(filter::mightContain);
+	}
+
+	@Test
+	void concurrentAddsToTheSameWordsAreAllKept() throws Exception {
+		// small enough that the threads keep setting bits in the same words
+		BloomFilter filter = new BloomFilter(2_000, 0.01);
+		List<List<UUID>> perThread = new ArrayList<>();
+		for (int thread = 0; thread < 4; thread++) {
+			perThread.add(randomIds(500));
+		}
+
+		ExecutorService executor = Executors.newFixedThreadPool(perThread.size());
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (List<UUID> ids : perThread) {
+				futures.add(executor.submit(() -> ids.forEach(filter::add)));
+			}
+			for (Future<?> future : futures) {
+				future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(perThread).allSatisfy(ids -> assertThat(ids).allMatch(filter::mightContain));
+	}
+
+	private List<UUID> randomIds(int count) {
+		List<UUID> ids = new ArrayList<>(count);
+		for (int i = 0; i < count; i++) {
+			ids.add(new UUID(random.nextLong(), random.nextLong()));
+		}
+		return ids;
+	}
+}
@@ -0,0 +1,191 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+import com.mehrdad.SafePost.domain.enums.TagMatchMode;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class Bm25IndexTests {
+
+	private final UUID category = UUID.randomUUID();
+
+	@Test
+	void ranksMoreFrequentMatchesFirst() {
+		Bm25Index index = new Bm25Index();
+		UUID once = add(index, Map.of("java", 1, "filler", 9));
+		UUID often = add(index, Map.of("java", 5, "filler", 5));
+		add(index, Map.of("filler", 10));
+
+		assertThat(ids(index.search(List.of("java"), null, TagFilter.NONE, SearchCursor.FIRST, 10)))
+				.containsExactly(often, once);
+	}
+
+	// deltas and frequencies past one varint byte must decode to the same values
+	@Test
+	void decodesLargeDocGapsAndFrequencies() {
+		Bm25Index index = new Bm25Index();
+		UUID first = add(index, Map.of("rare", 200, "filler", 100_000));
+		for (int i = 0; i < 20_000; i++) {
+			add(index, Map.of("filler", 100_200));
+		}
+		UUID last = add(index, Map.of("rare", 70_000, "filler", 30_200));
+
+		List<RankedPostId> hits = index.search(List.of("rare"), null, TagFilter.NONE, SearchCursor.FIRST, 10);
+
+		assertThat(ids(hits)).containsExactly(last, first);
+	}
+
+	@Test
+	void removedAndUpdatedPostsNoLongerMatchTheirOldTerms() {
+		Bm25Index index = new Bm25Index();
+		UUID removed = add(index, Map.of("java", 1));
+		UUID updated = add(index, Map.of("java", 1));
+
+		index.remove(removed);
+		index.add(document(updated, Map.of("kotlin", 1)));
+
+		assertThat(index.size()).isEqualTo(1);
+		assertThat(index.search(List.of("java"), null, TagFilter.NONE, SearchCursor.FIRST, 10)).isEmpty();
+		assertThat(ids(index.search(List.of("kotlin"), null, TagFilter.NONE, SearchCursor.FIRST, 10)))
+				.containsExactly(updated);
+	}
+
+	// after compaction the index must rank exactly like one built from the surviving posts alone
+	@Test
+	void compactionKeepsScoresAndOrder() {
+		Bm25Index churned = new Bm25Index();
+		List<Bm25Index.Document> documents = new ArrayList<>();
+		for (int i = 0; i < 4000; i++) {
+			Bm25Index.Document document = document(UUID.randomUUID(),
+					Map.of("java", 1 + i % 7, "spring", 1 + i % 3, "post" + i % 50, 2));
+			documents.add(document);
+			churned.add(document);
+		}
+		// the 1024th removal crosses both thresholds, so no tombstones are left behind
+		Bm25Index fresh = new Bm25Index();
+		int removed = 0;
+		for (int i = 0; i < documents.size(); i++) {
+			if (i % 3 == 1 && removed < 1024) {
+				churned.remove(documents.get(i).postId());
+				removed++;
+			} else {
+				fresh.add(documents.get(i));
+			}
+		}
+
+		List<String> terms = List.of("java", "spring", "post7");
+		assertThat(churned.size()).isEqualTo(fresh.size()).isEqualTo(2976);
+		assertThat(churned.search(terms, null, TagFilter.NONE, SearchCursor.FIRST, 100))
+				.isEqualTo(fresh.search(terms, null, TagFilter.NONE, SearchCursor.FIRST, 100));
+		// the renumbered docs keep accepting new posts
+		UUID added = add(churned, Map.of("zebra", 1));
+		assertThat(ids(churned.search(List.of("zebra"), null, TagFilter.NONE, SearchCursor.FIRST, 10)))
+				.containsExactly(added);
+	}
+
+	// scores are summed per doc in a hash table, which must not mix up or drop any doc
+	@Test
+	void sumsTheScoresOfEveryTermPerPost() {
+		Bm25Index index = new Bm25Index();
+		for (int i = 0; i < 5000; i++) {
+			Map<String, Integer> termFrequencies = new HashMap<>();
+			if (i % 2 == 0) {
+				termFrequencies.put("java", 1 + i % 5);
+			}
+			if (i % 3 == 0) {
+				termFrequencies.put("spring", 1 + i % 4);
+			}
+			termFrequencies.put("filler", 1 + i % 7);
+			add(index, termFrequencies);
+		}
+
+		Map<UUID, Float> java = scores(index.search(List.of("java"), null, TagFilter.NONE, SearchCursor.FIRST, 5000));
+		Map<UUID, Float> spring = scores(index.search(List.of("spring"), null, TagFilter.NONE, SearchCursor.FIRST, 5000));
+		Map<UUID, Float> both = scores(index.search(List.of("java", "spring"), null, TagFilter.NONE, SearchCursor.FIRST, 5000));
+
+		assertThat(java).hasSize(2500);
+		assertThat(spring).hasSize(1667);
+		assertThat(both).hasSize(2500 + 1667 - 834);
+		both.forEach((postId, score) -> assertThat(score)
+				.isEqualTo(java.getOrDefault(postId, 0f) + spring.getOrDefault(postId, 0f)));
+	}
+
+	@Test
+	void pagesResumeStrictlyAfterTheCursor() {
+		Bm25Index index = new Bm25Index();
+		for (int i = 0; i < 50; i++) {
+			// only five distinct scores, so pages have to break ties by id
+			add(index, Map.of("java", 1 + i % 5, "filler", 10));
+		}
+		List<RankedPostId> all = index.search(List.of("java"), null, TagFilter.NONE, SearchCursor.FIRST, 100);
+
+		List<RankedPostId> paged = new ArrayList<>();
+		SearchCursor cursor = SearchCursor.FIRST;
+		List<RankedPostId> page;
+		do {
+			page = index.search(List.of("java"), null, TagFilter.NONE, cursor, 7);
+			paged.addAll(page);
+			if (!page.isEmpty()) {
+				RankedPostId last = page.get(page.size() - 1);
+				cursor = SearchCursor.of(last.rank(), last.id());
+			}
+		} while (!page.isEmpty());
+
+		assertThat(all).hasSize(50);
+		assertThat(paged).isEqualTo(all);
+	}
+
+	@Test
+	void appliesCategoryAndTagFilters() {
+		Bm25Index index = new Bm25Index();
+		UUID tag = UUID.randomUUID();
+		UUID otherTag = UUID.randomUUID();
+		UUID otherCategory = UUID.randomUUID();
+		UUID tagged = UUID.randomUUID();
+		UUID bothTags = UUID.randomUUID();
+		UUID elsewhere = UUID.randomUUID();
+		index.add(new Bm25Index.Document(tagged, Map.of("java", 1), 1, category, Set.of(tag)));
+		index.add(new Bm25Index.Document(bothTags, Map.of("java", 1), 1, category, Set.of(tag, otherTag)));
+		index.add(new Bm25Index.Document(elsewhere, Map.of("java", 1), 1, otherCategory, Set.of(tag)));
+
+		assertThat(ids(index.search(List.of("java"), category, TagFilter.NONE, SearchCursor.FIRST, 10)))
+				.containsExactlyInAnyOrder(tagged, bothTags);
+		assertThat(ids(index.search(List.of("java"), null,
+				TagFilter.of(null, Set.of(tag, otherTag), TagMatchMode.ALL), SearchCursor.FIRST, 10)))
+				.containsExactly(bothTags);
+		assertThat(ids(index.search(List.of("java"), otherCategory,
+				TagFilter.of(tag, null, TagMatchMode.ANY), SearchCursor.FIRST, 10)))
+				.containsExactly(elsewhere);
+	}
+
+	private UUID add(Bm25Index index, Map<String, Integer> termFrequencies) {
+		UUID postId = UUID.randomUUID();
+		index.add(document(postId, termFrequencies));
+		return postId;
+	}
+
+	private Bm25Index.Document document(UUID postId, Map<String, Integer> termFrequencies) {
+		int length = termFrequencies.values().stream().mapToInt(Integer::intValue).sum();
+		return new Bm25Index.Document(postId, termFrequencies, length, category, Set.of());
+	}
+
+	private static Map<UUID, Float> scores(List<RankedPostId> hits) {
+		Map<UUID, Float> scores = new HashMap<>();
+		hits.forEach(hit -> scores.put(hit.id(), hit.rank()));
+		return scores;
+	}
+
+	private static List<UUID> ids(List<RankedPostId> hits) {
+		return hits.stream().map(RankedPostId::id).toList();
+	}
+}
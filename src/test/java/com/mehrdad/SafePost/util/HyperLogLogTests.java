@@ -0,0 +1,117 @@
+package com.mehrdad.SafePost.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTests {
+
+	private final Random random = new Random(42);
+
+	@Test
+	void anEmptySketchEstimatesZero() {
+		assertThat(new HyperLogLog().estimate()).isZero();
+	}
+
+	// linear counting covers the small range, where most posts are
+	@Test
+	void smallCountsAreNearlyExact() {
+		HyperLogLog sketch = offerDistinct(new HyperLogLog(), 100);
+
+		assertThat(sketch.estimate()).isCloseTo(100, within(2L));
+	}
+
+	// 1.6% standard error, checked at three times that
+	@Test
+	void largeCountsStayWithinTheExpectedError() {
+		for (int distinct : new int[]{20_000, 1_000_000}) {
+			HyperLogLog sketch = offerDistinct(new HyperLogLog(), distinct);
+
+			assertThat((double) sketch.estimate()).isCloseTo(distinct, within(distinct * 0.05));
+		}
+	}
+
+	@Test
+	void repeatedViewersAreCountedOnce() {
+		HyperLogLog sketch = new HyperLogLog();
+		for (int i = 0; i < 1000; i++) {
+			sketch.offer(HyperLogLog.hash("10.0.0." + (i % 50) + "|Mozilla/5.0"));
+		}
+
+		assertThat(sketch.estimate()).isCloseTo(50, within(1L));
+	}
+
+	@Test
+	void mergingCountsTheUnionWithoutDoubleCounting() {
+		UUID[] viewers = new UUID[30_000];
+		for (int i = 0; i < viewers.length; i++) {
+			viewers[i] = new UUID(random.nextLong(), random.nextLong());
+		}
+		// two days sharing a third of their viewers
+		HyperLogLog monday = new HyperLogLog();
+		HyperLogLog tuesday = new HyperLogLog();
+		HyperLogLog both = new HyperLogLog();
+		for (int i = 0; i < viewers.length; i++) {
+			long hash = HyperLogLog.hash(viewers[i]);
+			if (i < 20_000) {
+				monday.offer(hash);
+			}
+			if (i >= 10_000) {
+				tuesday.offer(hash);
+			}
+			both.offer(hash);
+		}
+
+		monday.merge(tuesday);
+
+		assertThat(monday.estimate()).isEqualTo(both.estimate());
+		assertThat((double) monday.estimate()).isCloseTo(30_000, within(30_000 * 0.05));
+		// merging is idempotent, so a retried flush does not inflate the count
+		monday.merge(tuesday);
+		assertThat(monday.estimate()).isEqualTo(both.estimate());
+	}
+
+	@Test
+	void survivesARoundTripThroughBytes() {
+		HyperLogLog sketch = offerDistinct(new HyperLogLog(), 5_000);
+
+		byte[] bytes = sketch.toBytes();
+		HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+		assertThat(bytes).hasSize(4097);
+		assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+		assertThat(restored.toBytes()).isEqualTo(bytes);
+	}
+
+	@Test
+	void rejectsForeignEncodings() {
+		byte[] otherVersion = new HyperLogLog().toBytes();
+		otherVersion[0] = 2;
+
+		assertThatThrownBy(() -> HyperLogLog.fromBytes(null)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[16])).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> HyperLogLog.fromBytes(otherVersion)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	@Test
+	void hashesAreStableAcrossRuns() {
+		// sketches are stored, so the same viewer must hash the same way after a restart
+		UUID viewer = UUID.fromString("123e4567-e89b-12d3-a456-426614174000");
+
+		assertThat(HyperLogLog.hash(viewer)).isEqualTo(HyperLogLog.hash(UUID.fromString(viewer.toString())));
+		assertThat(HyperLogLog.hash("10.0.0.1|curl")).isEqualTo(HyperLogLog.hash("10.0.0.1|curl"))
+				.isNotEqualTo(HyperLogLog.hash("10.0.0.2|curl"));
+	}
+
+	private HyperLogLog offerDistinct(HyperLogLog sketch, int count) {
+		for (int i = 0; i < count; i++) {
+			sketch.offer(HyperLogLog.hash(new UUID(random.nextLong(), random.nextLong())));
+		}
+		return sketch;
+	}
+}
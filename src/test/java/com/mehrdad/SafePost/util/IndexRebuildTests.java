@@ -0,0 +1,79 @@
+package com.mehrdad.SafePost.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IndexRebuildTests {
+
+	private final IndexRebuild<String> indexRebuild = new IndexRebuild<>();
+	private final AtomicReference<String> installed = new AtomicReference<>();
+	private final List<String> replayed = new ArrayList<>();
+
+	@Test
+	void changesMadeDuringTheBuildAreReplayedOnTheNewIndex() {
+		String built = indexRebuild.run(() -> {
+			indexRebuild.changing("a");
+			indexRebuild.changing("b");
+			indexRebuild.changing("a");
+			return "new index";
+		}, installed::set, key -> {
+			// replayed against the installed index
+			assertThat(installed.get()).isEqualTo("new index");
+			replayed.add(key);
+		});
+
+		assertThat(built).isEqualTo("new index");
+		assertThat(replayed).containsExactly("a", "b");
+	}
+
+	@Test
+	void changesOutsideOfARebuildAreNotRecorded() {
+		indexRebuild.changing("before");
+		indexRebuild.run(() -> "index", installed::set, replayed::add);
+		indexRebuild.changing("after");
+		indexRebuild.run(() -> "index", installed::set, replayed::add);
+
+		assertThat(replayed).isEmpty();
+	}
+
+	@Test
+	void aFailedBuildKeepsTheOldIndexAndForgetsItsChanges() {
+		installed.set("old index");
+		assertThatThrownBy(() -> indexRebuild.run(() -> {
+			indexRebuild.changing("lost with the build");
+			throw new IllegalStateException("scan failed");
+		}, installed::set, replayed::add)).isInstanceOf(IllegalStateException.class);
+
+		indexRebuild.changing("after the failure");
+		indexRebuild.run(() -> "new index", installed::set, replayed::add);
+
+		assertThat(installed.get()).isEqualTo("new index");
+		assertThat(replayed).isEmpty();
+	}
+
+	@Test
+	void triggersWhileARebuildIsWaitingAreMergedIntoIt() {
+		List<Runnable> queue = new ArrayList<>();
+		AtomicInteger rebuilds = new AtomicInteger();
+
+		indexRebuild.schedule(queue::add, rebuilds::incrementAndGet);
+		indexRebuild.schedule(queue::add, rebuilds::incrementAndGet);
+		indexRebuild.schedule(queue::add, rebuilds::incrementAndGet);
+		assertThat(queue).hasSize(1);
+
+		// once it started, it may have scanned past the next change, which needs a rebuild of its own
+		queue.remove(0).run();
+		indexRebuild.schedule(queue::add, rebuilds::incrementAndGet);
+		queue.remove(0).run();
+
+		assertThat(rebuilds).hasValue(2);
+		assertThat(queue).isEmpty();
+	}
+}
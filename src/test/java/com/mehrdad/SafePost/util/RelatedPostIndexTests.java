@@ -0,0 +1,156 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.util.RelatedPostIndex.Neighbour;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class RelatedPostIndexTests {
+
+	private final UUID spring = UUID.randomUUID();
+	private final UUID java = UUID.randomUUID();
+	private final UUID docker = UUID.randomUUID();
+	private final UUID backend = UUID.randomUUID();
+	private final UUID ops = UUID.randomUUID();
+
+	@Test
+	void ranksSharedTagsAndTextAboveTheCategoryAlone() {
+		RelatedPostIndex index = new RelatedPostIndex();
+		UUID post = UUID.randomUUID();
+		UUID sameTags = UUID.randomUUID();
+		UUID sameText = UUID.randomUUID();
+		UUID sameCategory = UUID.randomUUID();
+		UUID unrelated = UUID.randomUUID();
+		index.addAll(List.of(
+				new RelatedPostIndex.Document(post, backend, Set.of(spring, java), Map.of("security", 3, "filter", 2)),
+				new RelatedPostIndex.Document(sameTags, ops, Set.of(spring, java), Map.of("kafka", 1)),
+				new RelatedPostIndex.Document(sameText, ops, Set.of(), Map.of("security", 3, "filter", 2)),
+				new RelatedPostIndex.Document(sameCategory, backend, Set.of(), Map.of("gradle", 1)),
+				new RelatedPostIndex.Document(unrelated, ops, Set.of(docker), Map.of("helm", 1))));
+
+		List<Neighbour> neighbours = index.neighbours(post, 10);
+
+		assertThat(neighbours).extracting(Neighbour::postId).containsExactly(sameTags, sameText, sameCategory);
+		assertThat(neighbours.get(0).score()).isCloseTo(0.5f, within(1e-5f));
+		assertThat(neighbours.get(1).score()).isCloseTo(0.35f, within(1e-5f));
+		assertThat(neighbours.get(2).score()).isCloseTo(0.15f, within(1e-5f));
+		assertThat(index.neighbours(UUID.randomUUID(), 10)).isEmpty();
+	}
+
+	@Test
+	void fillsFromTheCategoryOnlyUpToTheLimit() {
+		RelatedPostIndex index = new RelatedPostIndex();
+		UUID post = UUID.randomUUID();
+		UUID tagged = UUID.randomUUID();
+		List<RelatedPostIndex.Document> documents = new ArrayList<>(List.of(
+				new RelatedPostIndex.Document(post, backend, Set.of(spring), Map.of()),
+				new RelatedPostIndex.Document(tagged, ops, Set.of(spring), Map.of())));
+		for (int i = 0; i < 10; i++) {
+			documents.add(new RelatedPostIndex.Document(UUID.randomUUID(), backend, Set.of(), Map.of()));
+		}
+		index.addAll(documents);
+
+		assertThat(index.neighbours(post, 3)).hasSize(3).first().extracting(Neighbour::postId).isEqualTo(tagged);
+		assertThat(index.allNeighbours(post, 0)).extracting(Neighbour::postId).containsExactly(tagged);
+	}
+
+	// the incremental updates of the related posts service rely on this
+	@Test
+	void scoresAreSymmetric() {
+		RelatedPostIndex index = new RelatedPostIndex();
+		List<RelatedPostIndex.Document> documents = randomDocuments(new Random(11), 300);
+		index.addAll(documents);
+
+		for (RelatedPostIndex.Document document : documents.subList(0, 30)) {
+			for (Neighbour neighbour : index.allNeighbours(document.postId(), 0)) {
+				Map<UUID, Float> back = scores(index.allNeighbours(neighbour.postId(), 0));
+				assertThat(back.get(document.postId())).isEqualTo(neighbour.score());
+			}
+		}
+	}
+
+	@Test
+	void putReplacesThePost() {
+		RelatedPostIndex index = new RelatedPostIndex();
+		UUID post = UUID.randomUUID();
+		UUID other = UUID.randomUUID();
+		index.addAll(List.of(
+				new RelatedPostIndex.Document(post, null, Set.of(spring), Map.of()),
+				new RelatedPostIndex.Document(other, null, Set.of(spring), Map.of())));
+
+		index.put(new RelatedPostIndex.Document(post, null, Set.of(docker), Map.of()));
+
+		assertThat(index.size()).isEqualTo(2);
+		assertThat(index.neighbours(other, 10)).isEmpty();
+		index.remove(post);
+		assertThat(index.contains(post)).isFalse();
+		assertThat(index.postIds()).containsExactly(other);
+	}
+
+	// compaction renumbers the docs but keeps every vector, so the survivors keep their exact scores
+	@Test
+	void compactionKeepsTheNeighboursOfTheSurvivingPosts() {
+		RelatedPostIndex index = new RelatedPostIndex();
+		List<RelatedPostIndex.Document> documents = randomDocuments(new Random(13), 3000);
+		index.addAll(documents);
+
+		Set<UUID> removed = new HashSet<>();
+		for (int i = 1; i < documents.size() && removed.size() < 1024; i += 2) {
+			removed.add(documents.get(i).postId());
+		}
+		List<UUID> survivors = documents.stream().map(RelatedPostIndex.Document::postId)
+				.filter(id -> !removed.contains(id)).limit(50).toList();
+		Map<UUID, List<Neighbour>> expected = new HashMap<>();
+		for (UUID survivor : survivors) {
+			expected.put(survivor, index.allNeighbours(survivor, 0).stream()
+					.filter(neighbour -> !removed.contains(neighbour.postId()))
+					.toList());
+		}
+
+		removed.forEach(index::remove);
+
+		assertThat(index.size()).isEqualTo(documents.size() - removed.size());
+		for (UUID survivor : survivors) {
+			assertThat(index.allNeighbours(survivor, 0)).isEqualTo(expected.get(survivor));
+		}
+		// the rebuilt lists keep taking new posts
+		UUID added = UUID.randomUUID();
+		index.put(new RelatedPostIndex.Document(added, null, Set.of(spring, java, docker), Map.of()));
+		assertThat(index.allNeighbours(added, 0)).isNotEmpty();
+	}
+
+	private List<RelatedPostIndex.Document> randomDocuments(Random random, int count) {
+		List<UUID> tags = List.of(spring, java, docker, UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+		List<String> words = List.of("security", "filter", "kafka", "helm", "gradle", "thread", "cache", "index");
+		List<RelatedPostIndex.Document> documents = new ArrayList<>();
+		for (int i = 0; i < count; i++) {
+			Set<UUID> postTags = new HashSet<>();
+			Map<String, Integer> termCounts = new HashMap<>();
+			for (int t = random.nextInt(3); t > 0; t--) {
+				postTags.add(tags.get(random.nextInt(tags.size())));
+			}
+			for (int w = random.nextInt(4); w > 0; w--) {
+				termCounts.merge(words.get(random.nextInt(words.size())), 1 + random.nextInt(3), Integer::sum);
+			}
+			documents.add(new RelatedPostIndex.Document(UUID.randomUUID(), random.nextBoolean() ? backend : ops,
+					postTags, termCounts));
+		}
+		return documents;
+	}
+
+	private static Map<UUID, Float> scores(List<Neighbour> neighbours) {
+		Map<UUID, Float> scores = new HashMap<>();
+		neighbours.forEach(neighbour -> scores.put(neighbour.postId(), neighbour.score()));
+		return scores;
+	}
+}
@@ -0,0 +1,157 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.domain.enums.ContentType;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SuggestionTrieTests {
+
+	@Test
+	void completesHeaviestFirstFromAnyWordStart() {
+		SuggestionTrie trie = new SuggestionTrie();
+		SuggestionTrie.Entry security = put(trie, "Spring Security in depth", 10);
+		SuggestionTrie.Entry boot = put(trie, "Spring Boot", 30);
+		put(trie, "Kotlin", 50);
+
+		assertThat(trie.complete("spr", 10)).containsExactly(boot, security);
+		assertThat(trie.complete("SECU", 10)).containsExactly(security);
+		assertThat(trie.complete("spring b", 10)).containsExactly(boot);
+		assertThat(trie.complete("spr", 1)).containsExactly(boot);
+	}
+
+	@Test
+	void matchesRegardlessOfCaseAccentsAndPunctuation() {
+		SuggestionTrie trie = new SuggestionTrie();
+		SuggestionTrie.Entry cafe = put(trie, "Café--Crème", 1);
+
+		assertThat(trie.complete("cafe cr", 5)).containsExactly(cafe);
+		assertThat(trie.complete("  CRÈME", 5)).containsExactly(cafe);
+		assertThat(trie.complete("!!!", 5)).isEmpty();
+	}
+
+	// "sprin" splits the "spring" edge, then "spr" splits the new edge again
+	@Test
+	void splitsEdgesWhereKeysBranchOff() {
+		SuggestionTrie trie = new SuggestionTrie();
+		SuggestionTrie.Entry spring = put(trie, "spring", 3);
+		SuggestionTrie.Entry sprint = put(trie, "sprint", 2);
+		SuggestionTrie.Entry spr = put(trie, "spr", 1);
+
+		assertThat(trie.complete("s", 10)).containsExactly(spring, sprint, spr);
+		assertThat(trie.complete("spri", 10)).containsExactly(spring, sprint);
+		assertThat(trie.complete("sprint", 10)).containsExactly(sprint);
+		assertThat(trie.complete("springs", 10)).isEmpty();
+		assertThat(trie.complete("sq", 10)).isEmpty();
+	}
+
+	// removing "sprint" leaves "sprin" with one child, which is folded back into a single "spring" edge
+	@Test
+	void foldsPassThroughNodesOnRemove() {
+		SuggestionTrie trie = new SuggestionTrie();
+		SuggestionTrie.Entry spring = put(trie, "spring", 1);
+		SuggestionTrie.Entry sprint = put(trie, "sprint", 5);
+
+		trie.remove(sprint.type(), sprint.id());
+
+		assertThat(trie.size()).isEqualTo(1);
+		assertThat(trie.complete("sprin", 10)).containsExactly(spring);
+		assertThat(trie.complete("sprint", 10)).isEmpty();
+		// the folded edge splits again for a new branch, and the removed weight no longer leads the way
+		SuggestionTrie.Entry sprinkle = put(trie, "sprinkle", 0);
+		assertThat(trie.complete("spr", 10)).containsExactly(spring, sprinkle);
+
+		trie.remove(spring.type(), spring.id());
+		trie.remove(sprinkle.type(), sprinkle.id());
+		assertThat(trie.size()).isZero();
+		assertThat(trie.complete("s", 10)).isEmpty();
+	}
+
+	@Test
+	void putReplacesTheEntryWithTheSameTypeAndId() {
+		SuggestionTrie trie = new SuggestionTrie();
+		UUID id = UUID.randomUUID();
+		trie.put(new SuggestionTrie.Entry(ContentType.TAG, id, "java", 1));
+		SuggestionTrie.Entry renamed = new SuggestionTrie.Entry(ContentType.TAG, id, "kotlin", 2);
+		SuggestionTrie.Entry sameIdOtherType = new SuggestionTrie.Entry(ContentType.CATEGORY, id, "java", 3);
+
+		trie.put(renamed);
+		trie.put(sameIdOtherType);
+
+		assertThat(trie.size()).isEqualTo(2);
+		assertThat(trie.complete("java", 10)).containsExactly(sameIdOtherType);
+		assertThat(trie.complete("kot", 10)).containsExactly(renamed);
+	}
+
+	// random puts and removes over a small alphabet, so edges split and fold all the time
+	@Test
+	void agreesWithAScanOfAllEntries() {
+		Random random = new Random(7);
+		SuggestionTrie trie = new SuggestionTrie();
+		Map<UUID, SuggestionTrie.Entry> expected = new HashMap<>();
+		List<UUID> ids = new ArrayList<>();
+		for (int i = 0; i < 200; i++) {
+			ids.add(UUID.randomUUID());
+		}
+
+		for (int step = 0; step < 5000; step++) {
+			UUID id = ids.get(random.nextInt(ids.size()));
+			if (random.nextInt(3) == 0) {
+				trie.remove(ContentType.POST, id);
+				expected.remove(id);
+			} else {
+				// weights are unique, so the expected order is unambiguous
+				SuggestionTrie.Entry entry = new SuggestionTrie.Entry(ContentType.POST, id, randomText(random), step);
+				trie.put(entry);
+				expected.put(id, entry);
+			}
+
+			if (step % 50 == 0) {
+				for (String prefix : List.of("a", "ab", "ba", "abc", "c", "b a", "aab")) {
+					assertThat(trie.complete(prefix, 5)).as(prefix).isEqualTo(scan(expected, prefix, 5));
+				}
+			}
+		}
+		assertThat(trie.size()).isEqualTo(expected.size());
+	}
+
+	private static SuggestionTrie.Entry put(SuggestionTrie trie, String text, long weight) {
+		SuggestionTrie.Entry entry = new SuggestionTrie.Entry(ContentType.POST, UUID.randomUUID(), text, weight);
+		trie.put(entry);
+		return entry;
+	}
+
+	private static String randomText(Random random) {
+		StringBuilder text = new StringBuilder();
+		int words = 1 + random.nextInt(3);
+		for (int word = 0; word < words; word++) {
+			if (word > 0) {
+				text.append(' ');
+			}
+			int length = 1 + random.nextInt(4);
+			for (int i = 0; i < length; i++) {
+				text.append((char) ('a' + random.nextInt(3)));
+			}
+		}
+		return text.toString();
+	}
+
+	private static List<SuggestionTrie.Entry> scan(Map<UUID, SuggestionTrie.Entry> entries, String prefix, int limit) {
+		return entries.values().stream()
+				.filter(entry -> {
+					String text = SuggestionTrie.normalize(entry.text());
+					return text.startsWith(prefix) || text.contains(" " + prefix);
+				})
+				.sorted(Comparator.comparingLong(SuggestionTrie.Entry::weight).reversed())
+				.limit(limit)
+				.toList();
+	}
+}
@@ -0,0 +1,118 @@
+package com.mehrdad.SafePost.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenBucketTests {
+
+	private static final long INTERVAL = 100;
+
+	@Test
+	void allowsABurstOfCapacityThenSaysHowLongToWait() {
+		TokenBucket bucket = new TokenBucket(3, INTERVAL, 0);
+
+		assertThat(bucket.tryAcquire(0)).isZero();
+		assertThat(bucket.tryAcquire(0)).isZero();
+		assertThat(bucket.tryAcquire(0)).isZero();
+		assertThat(bucket.tryAcquire(0)).isEqualTo(INTERVAL);
+		assertThat(bucket.tryAcquire(40)).isEqualTo(INTERVAL - 40);
+	}
+
+	@Test
+	void refillsOneTokenPerInterval() {
+		TokenBucket bucket = new TokenBucket(3, INTERVAL, 0);
+		for (int i = 0; i < 3; i++) {
+			bucket.tryAcquire(0);
+		}
+
+		assertThat(bucket.tryAcquire(INTERVAL)).isZero();
+		assertThat(bucket.tryAcquire(INTERVAL)).isEqualTo(INTERVAL);
+		assertThat(bucket.tryAcquire(3 * INTERVAL)).isZero();
+		assertThat(bucket.tryAcquire(3 * INTERVAL)).isZero();
+		assertThat(bucket.tryAcquire(3 * INTERVAL)).isEqualTo(INTERVAL);
+	}
+
+	// a rejected request does not use up a token
+	@Test
+	void rejectionsDoNotPushTheNextTokenBack() {
+		TokenBucket bucket = new TokenBucket(1, INTERVAL, 0);
+		bucket.tryAcquire(0);
+		for (int i = 0; i < 10; i++) {
+			bucket.tryAcquire(50);
+		}
+
+		assertThat(bucket.tryAcquire(INTERVAL)).isZero();
+	}
+
+	@Test
+	void idleTimeDoesNotSaveUpMoreThanCapacity() {
+		TokenBucket bucket = new TokenBucket(2, INTERVAL, 0);
+		long later = 1_000_000;
+
+		assertThat(bucket.tryAcquire(later)).isZero();
+		assertThat(bucket.tryAcquire(later)).isZero();
+		assertThat(bucket.tryAcquire(later)).isEqualTo(INTERVAL);
+	}
+
+	@Test
+	void isFullOnceEveryTokenIsBack() {
+		TokenBucket bucket = new TokenBucket(2, INTERVAL, 0);
+		assertThat(bucket.isFull(0)).isTrue();
+
+		bucket.tryAcquire(0);
+		bucket.tryAcquire(0);
+
+		assertThat(bucket.isFull(INTERVAL)).isFalse();
+		assertThat(bucket.isFull(2 * INTERVAL)).isTrue();
+	}
+
+	@Test
+	void rejectsInvalidSettings() {
+		assertThatThrownBy(() -> new TokenBucket(0, INTERVAL, 0)).isInstanceOf(IllegalArgumentException.class);
+		assertThatThrownBy(() -> new TokenBucket(1, 0, 0)).isInstanceOf(IllegalArgumentException.class);
+	}
+
+	// the compare-and-set must hand out exactly capacity tokens however the threads interleave
+	@Test
+	void concurrentCallersNeverGetMoreThanCapacity() throws Exception {
+		int capacity = 1000;
+		TokenBucket bucket = new TokenBucket(capacity, INTERVAL, 0);
+		int threads = 8;
+		CountDownLatch start = new CountDownLatch(1);
+
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		int acquired = 0;
+		try {
+			List<Future<Integer>> futures = new ArrayList<>();
+			for (int thread = 0; thread < threads; thread++) {
+				futures.add(executor.submit(() -> {
+					start.await();
+					int taken = 0;
+					for (int i = 0; i < capacity; i++) {
+						if (bucket.tryAcquire(0) == 0) {
+							taken++;
+						}
+					}
+					return taken;
+				}));
+			}
+			start.countDown();
+			for (Future<Integer> future : futures) {
+				acquired += future.get();
+			}
+		} finally {
+			executor.shutdown();
+		}
+
+		assertThat(acquired).isEqualTo(capacity);
+	}
+}
@@ -0,0 +1,145 @@
+package com.mehrdad.SafePost.util;
+
+import com.mehrdad.SafePost.domain.RankedPostId;
+import com.mehrdad.SafePost.domain.SearchCursor;
+import com.mehrdad.SafePost.domain.TagFilter;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrigramIndexTests {
+
+	private static final long NO_DEADLINE = Long.MAX_VALUE;
+
+	@Test
+	void findsWordsDespiteTypos() {
+		TrigramIndex index = new TrigramIndex();
+		UUID docker = add(index, "docker", "compose");
+		UUID kubernetes = add(index, "kubernetes");
+
+		assertThat(search(index, "dokcer")).containsExactly(docker);
+		assertThat(search(index, "kubernets")).containsExactly(kubernetes);
+		assertThat(search(index, "compose")).containsExactly(docker);
+	}
+
+	@Test
+	void ranksExactMatchesAboveTypos() {
+		TrigramIndex index = new TrigramIndex();
+		UUID typo = add(index, "dockers");
+		UUID exact = add(index, "docker");
+
+		assertThat(search(index, "docker")).containsExactly(exact, typo);
+	}
+
+	@Test
+	void requiresShortWordsToMatchExactly() {
+		TrigramIndex index = new TrigramIndex();
+		UUID go = add(index, "go");
+		add(index, "gi");
+
+		assertThat(search(index, "go")).containsExactly(go);
+		assertThat(search(index, "ga")).isEmpty();
+	}
+
+	// two adjacent swaps are two edits for OSA but four for plain Levenshtein
+	@Test
+	void countsAdjacentSwapsAsOneEdit() {
+		TrigramIndex index = new TrigramIndex();
+		UUID kubernetes = add(index, "kubernetes");
+
+		assertThat(search(index, "ukbernetse")).containsExactly(kubernetes);
+	}
+
+	// similar enough by trigrams, but the distance is abandoned after three rows that all exceed two edits
+	@Test
+	void rejectsWordsBeyondTheEditBound() {
+		TrigramIndex index = new TrigramIndex();
+		UUID other = add(index, "internationalization");
+		UUID close = add(index, "internationalisation");
+
+		assertThat(search(index, "xyzernationalization")).isEmpty();
+		assertThat(search(index, "internationalizasion")).containsExactlyInAnyOrder(other, close);
+		// one swap from one spelling, a swap and a substitution from the other
+		assertThat(search(index, "internationalisatoin")).containsExactly(close, other);
+	}
+
+	// the best match is the last word added, so a shortlist taken in vocabulary order would miss it
+	@Test
+	void shortlistsTheWordsSharingTheMostTrigrams() {
+		TrigramIndex index = new TrigramIndex();
+		Random random = new Random(3);
+		for (int i = 0; i < 1000; i++) {
+			add(index, "kubern" + noise(random));
+		}
+		UUID kubernetes = add(index, "kubernetes");
+
+		assertThat(search(index, "kubernetse")).containsExactly(kubernetes);
+	}
+
+	// past COMMON_TRIGRAM_MIN_VOCABULARY the shared "kubern" trigrams are skipped, the rest still finds it
+	@Test
+	void stillMatchesWhenCommonTrigramsAreSkipped() {
+		TrigramIndex index = new TrigramIndex();
+		Random random = new Random(5);
+		for (int i = 0; i < 6000; i++) {
+			add(index, "kubern" + noise(random));
+		}
+		UUID kubernetes = add(index, "kubernetes");
+
+		assertThat(search(index, "kubernetse")).containsExactly(kubernetes);
+	}
+
+	@Test
+	void dropsRemovedPostsAndSurvivesCompaction() {
+		TrigramIndex index = new TrigramIndex();
+		UUID[] posts = new UUID[2000];
+		for (int i = 0; i < posts.length; i++) {
+			posts[i] = add(index, "post" + i, "spring");
+		}
+		for (int i = 0; i < 1500; i++) {
+			index.remove(posts[i]);
+		}
+
+		assertThat(index.size()).isEqualTo(500);
+		assertThat(search(index, "post10")).isEmpty();
+		assertThat(search(index, "post1999")).first().isEqualTo(posts[1999]);
+		assertThat(index.search(List.of("sprign"), null, TagFilter.NONE, SearchCursor.FIRST, 1000, NO_DEADLINE))
+				.hasSize(500);
+	}
+
+	@Test
+	void stopsAtTheDeadline() {
+		TrigramIndex index = new TrigramIndex();
+		add(index, "docker");
+
+		assertThat(index.search(List.of("docker"), null, TagFilter.NONE, SearchCursor.FIRST, 10, System.nanoTime() - 1))
+				.isEmpty();
+	}
+
+	private static UUID add(TrigramIndex index, String... words) {
+		UUID postId = UUID.randomUUID();
+		index.add(new TrigramIndex.Document(postId, Set.of(words), null, Set.of()));
+		return postId;
+	}
+
+	private static List<UUID> search(TrigramIndex index, String term) {
+		return index.search(List.of(term), null, TagFilter.NONE, SearchCursor.FIRST, 10, NO_DEADLINE).stream()
+				.map(RankedPostId::id)
+				.toList();
+	}
+
+	// four letters that never appear in "kubernetes", so no noise word is within two edits of it
+	private static String noise(Random random) {
+		String letters = "acdfghijlmopqvwxyz";
+		StringBuilder noise = new StringBuilder();
+		for (int i = 0; i < 4; i++) {
+			noise.append(letters.charAt(random.nextInt(letters.length())));
+		}
+		return noise.toString();
+	}
+}